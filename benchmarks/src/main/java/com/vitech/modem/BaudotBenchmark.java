@@ -0,0 +1,69 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.Baudot;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baudot codec throughput over {@link FskSignal#TEXT}; the <code>chars</code> secondary score is in characters/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BaudotBenchmark {
+    private final Baudot encoder = new Baudot();
+    private final Baudot decoder = new Baudot();
+
+    private byte[] text;
+    private byte[] words;
+    private byte[] encoded;
+    private byte[] decoded;
+
+    @Setup
+    public void setup() {
+        text = FskSignal.TEXT.getBytes();
+        words = new byte[2 * text.length];
+        decoded = new byte[2 * text.length];
+        encoded = Arrays.copyOf(words, new Baudot().encode(text, words));
+    }
+
+    @Benchmark
+    public int encode(CharCounter counter) {
+        counter.chars += text.length;
+        return encoder.encode(text, words);
+    }
+
+    @Benchmark
+    public int decode(CharCounter counter) {
+        int n = decoder.decode(encoded, decoded);
+        counter.chars += n;
+        return n;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class CharCounter {
+        public long chars;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            chars = 0;
+        }
+    }
+}
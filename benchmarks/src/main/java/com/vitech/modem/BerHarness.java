@@ -0,0 +1,217 @@
+package com.vitech.modem;
+
+import com.vitech.modem.corpus.BerMeasurement;
+import com.vitech.modem.corpus.SyntheticSignal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bit error rate against CPU time over a grid of {@link SyntheticSignal}s: the common baud rates, as in
+ * {@link FskSignal}, at several SNRs, with no impairment, a frequency offset of a tenth of the baud rate, or a
+ * timing drift. Meant to be run before and after a change to the frame search or the bit analysis, which must not
+ * cost decode quality for its speed.
+ *
+ * <pre>
+ * mvn -B package
+ * java --add-modules jdk.incubator.vector -cp benchmarks/target/benchmarks.jar com.vitech.modem.BerHarness -o baseline.csv
+ * ... change ...
+ * java --add-modules jdk.incubator.vector -cp benchmarks/target/benchmarks.jar com.vitech.modem.BerHarness -b baseline.csv
+ * </pre>
+ *
+ * Options: <code>-s seconds</code> of audio per case (default 10), <code>-r repeats</code> per case, the least
+ * CPU time counting (default 5), <code>-o file</code> to save the results as CSV, <code>-b file</code> to compare
+ * with saved results, <code>--ber-tolerance</code> (absolute, default 0.001) and <code>--cpu-tolerance</code>
+ * (relative, default 0.25) for the comparison. Exits with 1 if anything got worse beyond a tolerance.
+ *
+ * Signals are deterministic, so BER only changes when decoding does, and is compared case by case. A case takes
+ * milliseconds of CPU, too few to time alone, so CPU time is compared as the total of each baud rate, measured
+ * after one warm-up pass.
+ */
+public class BerHarness {
+    private static final float[] SNR_DB = { Float.POSITIVE_INFINITY, 16.0f, 13.0f, 11.0f };
+    private static final float DRIFT_PPM = 2000.0f;
+    private static final String CSV_HEADER = "baud,mark,space,bits,stop,snr_db,offset_hz,drift_ppm,chars,bits_sent,bit_errors,ber,lost,extra,cpu_ms_per_s";
+
+    public static void main(String[] args) throws IOException {
+        Locale.setDefault(Locale.ROOT);
+        float seconds = 10.0f;
+        int repeats = 5;
+        Path output = null;
+        Path baseline = null;
+        double berTolerance = 0.001;
+        double cpuTolerance = 0.25;
+
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.err.println(args[i] + " expects a value");
+                System.exit(2);
+                return;
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-s":
+                    seconds = Float.parseFloat(value);
+                    break;
+                case "-r":
+                    repeats = Integer.parseInt(value);
+                    break;
+                case "-o":
+                    output = Paths.get(value);
+                    break;
+                case "-b":
+                    baseline = Paths.get(value);
+                    break;
+                case "--ber-tolerance":
+                    berTolerance = Double.parseDouble(value);
+                    break;
+                case "--cpu-tolerance":
+                    cpuTolerance = Double.parseDouble(value);
+                    break;
+                default:
+                    System.err.println("unknown option " + args[i]);
+                    System.exit(2);
+                    return;
+            }
+            i++;
+        }
+
+        List<SyntheticSignal> signals = grid();
+        Map<String, String[]> base = baseline != null ? read(baseline) : new HashMap<String, String[]>();
+        FskConfig config = FskConfig.builder().build();
+
+        // warm-up: the first pass through a code path is interpreted
+        for (SyntheticSignal signal : signals) {
+            BerMeasurement.measure(signal, nChars(signal, 1.0f), config);
+        }
+
+        List<String> rows = new ArrayList<String>();
+        // per baud rate: CPU ms per audio second summed over its cases, now and in the baseline
+        Map<Float, double[]> cpuTotals = new LinkedHashMap<Float, double[]>();
+        int regressions = 0;
+        PrintStream out = System.out;
+        out.println(String.format("%-44s %10s %6s %6s %8s %s", "signal", "BER", "lost", "extra", "CPU ms/s", ""));
+        for (SyntheticSignal signal : signals) {
+            BerMeasurement best = null;
+            for (int r = 0; r < repeats; r++) {
+                BerMeasurement measurement = BerMeasurement.measure(signal, nChars(signal, seconds), config);
+                if (best == null || measurement.getCpuNanos() < best.getCpuNanos()) {
+                    best = measurement;
+                }
+            }
+
+            String row = row(best);
+            rows.add(row);
+
+            String verdict = "";
+            String[] previous = base.get(key(row));
+            double[] cpuTotal = cpuTotals.computeIfAbsent(signal.getBaudRate(), b -> new double[2]);
+            cpuTotal[0] += best.getCpuMillisPerAudioSecond();
+            if (previous != null) {
+                double berBefore = Double.parseDouble(previous[11]);
+                double cpuBefore = Double.parseDouble(previous[14]);
+                cpuTotal[1] += cpuBefore;
+                verdict = String.format("(was %.2e, %.3f)", berBefore, cpuBefore);
+                if (best.getBitErrorRate() > berBefore + berTolerance) {
+                    verdict += " BER REGRESSION";
+                    regressions++;
+                }
+            }
+            out.println(String.format("%-44s %10.2e %6d %6d %8.3f %s", describe(signal), best.getBitErrorRate(), best.getCharsLost(),
+                    best.getCharsExtra(), best.getCpuMillisPerAudioSecond(), verdict));
+        }
+
+        for (Map.Entry<Float, double[]> total : cpuTotals.entrySet()) {
+            double[] cpu = total.getValue();
+            String verdict = "";
+            if (cpu[1] > 0.0) {
+                verdict = String.format("(was %.3f)", cpu[1]);
+                if (cpu[0] > cpu[1] * (1.0 + cpuTolerance)) {
+                    verdict += " CPU REGRESSION";
+                    regressions++;
+                }
+            }
+            out.println(String.format("%.2f baud total %8.3f CPU ms/s %s", total.getKey(), cpu[0], verdict));
+        }
+
+        if (output != null) {
+            List<String> lines = new ArrayList<String>();
+            lines.add(CSV_HEADER);
+            lines.addAll(rows);
+            Files.write(output, lines);
+        }
+        if (regressions > 0) {
+            out.println(regressions + " regressions");
+            System.exit(1);
+        }
+    }
+
+    private static List<SyntheticSignal> grid() {
+        List<SyntheticSignal> signals = new ArrayList<SyntheticSignal>();
+        for (float baudRate : new float[] { 45.45f, 300.0f, 1200.0f }) {
+            SyntheticSignal.Builder builder = SyntheticSignal.builder().setSampleRate(FskSignal.SAMPLE_RATE).setBaudRate(baudRate);
+            if (baudRate < 100.0f) {
+                builder.setTones(1585.0f, 1415.0f).setFraming(5, 1.5f);
+            } else if (baudRate < 1000.0f) {
+                builder.setTones(1200.0f, 2100.0f).setFraming(8, 1.0f);
+            } else {
+                builder.setTones(1200.0f, 2200.0f).setFraming(8, 1.0f);
+            }
+
+            for (float snrDb : SNR_DB) {
+                builder.setSnrDb(snrDb);
+                signals.add(builder.setFrequencyOffset(0.0f).setTimingDriftPpm(0.0f).build());
+                signals.add(builder.setFrequencyOffset(baudRate / 10.0f).setTimingDriftPpm(0.0f).build());
+                signals.add(builder.setFrequencyOffset(0.0f).setTimingDriftPpm(DRIFT_PPM).build());
+            }
+        }
+        return signals;
+    }
+
+    private static int nChars(SyntheticSignal signal, float seconds) {
+        float frameBits = 1 + signal.getNDataBits() + signal.getNStopBits();
+        return Math.max(1, (int) (seconds * signal.getBaudRate() / frameBits));
+    }
+
+    private static String describe(SyntheticSignal signal) {
+        return String.format("%.2f baud %s dB %+.1f Hz %+.0f ppm", signal.getBaudRate(),
+                Float.isInfinite(signal.getSnrDb()) ? "inf" : String.format("%.1f", signal.getSnrDb()),
+                signal.getFrequencyOffset(), signal.getTimingDriftPpm());
+    }
+
+    private static String row(BerMeasurement m) {
+        SyntheticSignal s = m.getSignal();
+        return String.format("%s,%s,%s,%d,%s,%s,%s,%s,%d,%d,%d,%.6e,%d,%d,%.4f", s.getBaudRate(), s.getMarkFreq(), s.getSpaceFreq(),
+                s.getNDataBits(), s.getNStopBits(), s.getSnrDb(), s.getFrequencyOffset(), s.getTimingDriftPpm(), m.getCharsSent(),
+                m.getBitsSent(), m.getBitErrors(), m.getBitErrorRate(), m.getCharsLost(), m.getCharsExtra(),
+                m.getCpuMillisPerAudioSecond());
+    }
+
+    /**
+     * The signal columns of a CSV row.
+     */
+    private static String key(String row) {
+        String[] fields = row.split(",");
+        return String.join(",", Arrays.copyOfRange(fields, 0, 8));
+    }
+
+    private static Map<String, String[]> read(Path csv) throws IOException {
+        Map<String, String[]> rows = new HashMap<String, String[]>();
+        for (String line : Files.readAllLines(csv)) {
+            if (!line.isEmpty() && !line.equals(CSV_HEADER)) {
+                rows.put(key(line), line.split(","));
+            }
+        }
+        return rows;
+    }
+}
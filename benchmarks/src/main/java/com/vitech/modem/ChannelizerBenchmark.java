@@ -0,0 +1,89 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.Baudot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A band of <code>nChannels</code> RTTY channels 250 Hz apart, decoded by one {@link Channelizer} or by one
+ * {@link FSKDemodulator} per channel; the <code>samples</code> secondary score is in samples/s of the band.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChannelizerBenchmark {
+    private static final int SAMPLE_RATE = 8000;
+    private static final float BAUD_RATE = 45.45f;
+    private static final float SHIFT = 170.0f;
+
+    @Param({"1", "4", "12"})
+    public int nChannels;
+
+    private float[] band;
+
+    @Setup
+    public void setup() {
+        band = new float[SAMPLE_RATE * 10];
+        byte[] text = FskSignal.TEXT.getBytes();
+
+        for (int c = 0; c < nChannels; c++) {
+            FSKModulator modulator = new FSKModulator(SAMPLE_RATE, BAUD_RATE, markFreq(c), markFreq(c) - SHIFT, 5, 1.5f, new Baudot());
+            modulator.setAmplitude(0.5f / nChannels);
+            float[] signal = new float[Math.max(band.length, modulator.getMaxSamples(text.length) + SAMPLE_RATE)];
+            int n = modulator.idle(1.0f + c, signal, 0);
+            n += modulator.modulate(text, 0, text.length, signal, n);
+            for (int i = 0; i < Math.min(n, band.length); i++) {
+                band[i] += signal[i];
+            }
+        }
+    }
+
+    private static float markFreq(int channel) {
+        return 600.0f + 250.0f * channel;
+    }
+
+    @Benchmark
+    public int channelizer(SampleCounter counter) throws IOException {
+        Channelizer channelizer = new Channelizer(SAMPLE_RATE, BAUD_RATE, FskConfig.builder().build());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int c = 0; c < nChannels; c++) {
+            channelizer.addChannel(markFreq(c), markFreq(c) - SHIFT, 5, new Baudot(), out).setStopBits(1.5f);
+        }
+
+        channelizer.write(band, 0, band.length);
+        channelizer.flush();
+        counter.samples += band.length;
+        return out.size();
+    }
+
+    @Benchmark
+    public int demodulators(SampleCounter counter) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int c = 0; c < nChannels; c++) {
+            FSKDemodulator demodulator = new FSKDemodulator(SAMPLE_RATE, BAUD_RATE, markFreq(c), markFreq(c) - SHIFT, 5,
+                    new Baudot(), FskConfig.builder().build());
+            demodulator.setStopBits(1.5f);
+            demodulator.setOutputStream(out);
+            demodulator.write(band, 0, band.length);
+            demodulator.flush();
+        }
+        counter.samples += band.length;
+        return out.size();
+    }
+}
@@ -0,0 +1,41 @@
+package com.vitech.modem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link FSKDemodulator}: 16-bit PCM in, text out, a fresh demodulator per transmission.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class DemodulatorBenchmark {
+    /** 0 decimates as far as the tones allow, 1 analyzes the input rate */
+    @Param({"0", "1"})
+    public int decimation;
+
+    /** frame timing lock, see {@link FSKDemodulator#setTracking(boolean)} */
+    @Param({"true", "false"})
+    public boolean tracking;
+
+    @Benchmark
+    public String demodulate(FskSignal signal, SampleCounter counter) {
+        counter.samples += signal.samples.length;
+        FSKDemodulator demodulator = signal.newDemodulator(decimation);
+        demodulator.setTracking(tracking);
+        return signal.demodulate(demodulator);
+    }
+}
@@ -0,0 +1,127 @@
+package com.vitech.modem;
+
+import com.vitech.modem.dsp.Kernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link FSK} analysis primitives, each over the window the demodulator hands it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class FSKBenchmark {
+    @Param({"FFT", "GOERTZEL"})
+    public FSK.AnalysisMode analysisMode;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    /** frame search candidates per bit; the demodulator tries 8 */
+    @Param({"8"})
+    public int tryStepsPerBit;
+
+    private FSK fsk;
+    private float[] samples;
+
+    private int carrierFrom;
+    private int frameFrom;
+    private int frameNSamples;
+    private int tryMaxNSamples;
+    private int tryStepNSamples;
+    private String expectBitsString;
+    private FSK.FrameAnalysisInfo frameInfo;
+
+    private int bitNSamples;
+    private FSK.BitAnalysisInfo bitInfo;
+
+    private CarrierTracker carrierTracker;
+    private int trackerFrom;
+
+    @Setup
+    public void setup(FskSignal signal) {
+        // the primitives see the samples at the input rate
+        fsk = signal.newDemodulator(1).getFsk();
+        fsk.setAnalysisMode(analysisMode);
+        fsk.setKernels("vector".equals(kernels) ? Kernels.vector() : Kernels.scalar());
+        samples = signal.samples;
+
+        StringBuilder expect = new StringBuilder("10");
+        for (int i = 0; i < signal.nDataBits; i++) {
+            expect.append('d');
+        }
+        expectBitsString = expect.append('1').toString();
+
+        float samplesPerBit = signal.getSamplesPerBit();
+        carrierFrom = signal.dataStart;
+        frameNSamples = (int) (samplesPerBit * expectBitsString.length() + 0.5f);
+        tryMaxNSamples = (int) (samplesPerBit + 0.5f);
+        tryStepNSamples = Math.max(1, tryMaxNSamples / tryStepsPerBit);
+        // the search starts half a bit ahead of the idle bit preceding the start bit
+        frameFrom = signal.dataStart - (int) (1.5f * samplesPerBit);
+        frameInfo = fsk.new FrameAnalysisInfo();
+
+        bitNSamples = (int) samplesPerBit;
+        bitInfo = fsk.new BitAnalysisInfo();
+
+        // sliding detection is meant for a narrow autodetection range: the tones and 100 Hz around them
+        FskConfig trackerConfig = FskConfig.builder()
+                .setFskMinFreq(Math.min(signal.markFreq, signal.spaceFreq) - 100.0f)
+                .setFskMaxFreq(Math.max(signal.markFreq, signal.spaceFreq) + 100.0f)
+                .build();
+        carrierTracker = new CarrierTracker(new FSK(fsk.getBandWidth(), fsk.getNBands(), trackerConfig));
+
+        if (findFrame(new SampleCounter()) <= FSKDemodulator.DEFAULT_CONFIDENCE_THRESHOLD) {
+            throw new IllegalStateException("no frame found at " + frameFrom);
+        }
+    }
+
+    @Benchmark
+    public int detectCarrier(SampleCounter counter) {
+        counter.samples += fsk.getFftSize();
+        return fsk.detectCarrier(samples, carrierFrom, fsk.getFftSize(), 0.0f);
+    }
+
+    /**
+     * Sliding counterpart of {@link #detectCarrier} over the tone range, fed the half window hop of block detection.
+     */
+    @Benchmark
+    public int trackCarrier(SampleCounter counter) {
+        int hop = fsk.getFftSize() / 2;
+        if (trackerFrom + hop > samples.length) {
+            trackerFrom = 0;
+        }
+        carrierTracker.update(samples, trackerFrom, hop);
+        trackerFrom += hop;
+        counter.samples += hop;
+        return carrierTracker.getCarrierBand(0.0f);
+    }
+
+    @Benchmark
+    public double findFrame(SampleCounter counter) {
+        counter.samples += tryMaxNSamples + frameNSamples;
+        return fsk.findFrame(samples, frameFrom, frameNSamples, 0, tryMaxNSamples, tryStepNSamples,
+                FSKDemodulator.DEFAULT_CONFIDENCE_SEARCH_LIMIT, expectBitsString, frameInfo);
+    }
+
+    @Benchmark
+    public double bitAnalyze(SampleCounter counter) {
+        counter.samples += bitNSamples;
+        fsk.bitAnalyze(samples, carrierFrom, bitNSamples, bitInfo);
+        return bitInfo.getSignalMag();
+    }
+}
@@ -0,0 +1,113 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.ASCII;
+import com.vitech.modem.databits.Baudot;
+import com.vitech.modem.databits.IDatabits;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Synthetic transmission at one of the common baud rates, shared by the benchmarks.
+ *
+ * 45.45 baud is RTTY (Baudot, 170 Hz shift), 300 baud is 8N1 ASCII with a 900 Hz shift
+ * and 1200 baud is Bell 202 8N1 ASCII.
+ */
+@State(Scope.Benchmark)
+public class FskSignal {
+    public static final int SAMPLE_RATE = 48000;
+    public static final String TEXT = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG 0123456789\n";
+    public static final float LEADER_BITS = 2.0f;
+
+    @Param({"45.45", "300", "1200"})
+    public float baudRate;
+
+    float markFreq;
+    float spaceFreq;
+    int nDataBits;
+    float nStopBits;
+
+    /** modulated {@link #TEXT}, leader and trailer included */
+    float[] samples;
+    /** {@link #samples} as 16-bit little-endian PCM */
+    byte[] pcm;
+    /** position of the first start bit in {@link #samples} */
+    int dataStart;
+
+    @Setup
+    public void setup() {
+        if (baudRate < 100.0f) {
+            markFreq = 1585.0f;
+            spaceFreq = 1415.0f;
+            nDataBits = 5;
+            nStopBits = 1.5f;
+        } else if (baudRate < 1000.0f) {
+            markFreq = 1200.0f;
+            spaceFreq = 2100.0f;
+            nDataBits = 8;
+            nStopBits = 1.0f;
+        } else {
+            markFreq = 1200.0f;
+            spaceFreq = 2200.0f;
+            nDataBits = 8;
+            nStopBits = 1.0f;
+        }
+
+        FSKModulator modulator = new FSKModulator(SAMPLE_RATE, baudRate, markFreq, spaceFreq, nDataBits, nStopBits, newDatabits());
+        byte[] text = TEXT.getBytes();
+        float[] buffer = new float[modulator.getMaxSamples(text.length) + 4 * (int) Math.ceil(LEADER_BITS * SAMPLE_RATE / baudRate)];
+
+        dataStart = modulator.idle(LEADER_BITS, buffer, 0);
+        int n = dataStart + modulator.modulate(text, 0, text.length, buffer, dataStart);
+        n += modulator.idle(LEADER_BITS, buffer, n);
+
+        samples = new float[n];
+        System.arraycopy(buffer, 0, samples, 0, n);
+
+        pcm = new byte[2 * n];
+        for (int i = 0; i < n; i++) {
+            int value = Math.round(samples[i] * 0.5f * Short.MAX_VALUE);
+            pcm[2 * i] = (byte) value;
+            pcm[2 * i + 1] = (byte) (value >> 8);
+        }
+
+        String decoded = demodulate(newDemodulator());
+        if (!TEXT.equals(decoded)) {
+            throw new IllegalStateException(baudRate + " baud signal decodes as '" + decoded + "'");
+        }
+    }
+
+    float getSamplesPerBit() {
+        return SAMPLE_RATE / baudRate;
+    }
+
+    IDatabits newDatabits() {
+        return nDataBits == 5 ? new Baudot() : new ASCII();
+    }
+
+    FSKDemodulator newDemodulator() {
+        return newDemodulator(0);
+    }
+
+    /**
+     * @param decimation    see {@link FSKDemodulator}; 1 analyzes {@link #samples} as they are
+     */
+    FSKDemodulator newDemodulator(int decimation) {
+        FSKDemodulator demodulator = new FSKDemodulator(SAMPLE_RATE, baudRate, markFreq, spaceFreq, nDataBits, newDatabits(), FskConfig.builder().build(),
+                decimation);
+        demodulator.setStopBits(nStopBits);
+        return demodulator;
+    }
+
+    String demodulate(FSKDemodulator demodulator) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setInputStream(new ByteArrayInputStream(pcm));
+        demodulator.setOutputStream(out);
+        demodulator.run();
+        return new String(out.toByteArray());
+    }
+}
@@ -0,0 +1,21 @@
+package com.vitech.modem;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports the samples a benchmark went through as a secondary <code>samples</code> score, in samples/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class SampleCounter {
+    public long samples;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        samples = 0;
+    }
+}
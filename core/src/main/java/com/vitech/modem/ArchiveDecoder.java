@@ -0,0 +1,250 @@
+package com.vitech.modem;
+
+import com.vitech.modem.io.PcmFile;
+import com.vitech.modem.metrics.DemodulatorMetrics;
+import org.apache.commons.lang3.Validate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Batch decoder of long recordings: splits a {@link PcmFile} into segments, decodes them in parallel, each with
+ * its own {@link FSKDemodulator} (so its own {@link FSK} and databits codec), and writes the text in order.
+ *
+ * Segments are cut at the first block without carrier (silence or another signal) after each nominal boundary.
+ * Each segment is read from a lead-in before its start to a tail after its end, so that a frame straddling the cut
+ * is complete; only the frames starting within the segment are written, see {@link FSKDemodulator#setOutputRange}.
+ *
+ * Only when a transmission outlasts {@link #getSearchSeconds()} is it cut, at its quietest block. Asynchronous
+ * framing cannot be reliably picked up in the middle of a transmission, so a few characters after such a cut may
+ * be lost or garbled, and the codec state (e.g. Baudot letters/figures shift) does not carry over it.
+ */
+public class ArchiveDecoder {
+    public static final float DEFAULT_SEGMENT_SECONDS = 60.0f;
+    public static final float DEFAULT_SEARCH_SECONDS = 30.0f;
+
+    // Lead-in of a segment, in demodulator windows
+    private static final int LEAD_IN_WINDOWS = 4;
+    // Samples converted at once
+    private static final int BLOCK_NSAMPLES = 8192;
+    // Segments queued ahead of the one being written
+    private static final int SEGMENTS_IN_FLIGHT_PER_WORKER = 2;
+
+    private final Supplier<FSKDemodulator> demodulators;
+    private float segmentSeconds = DEFAULT_SEGMENT_SECONDS;
+    private float searchSeconds = DEFAULT_SEARCH_SECONDS;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * @param demodulators   factory of identically configured demodulators, called once per segment
+     */
+    public ArchiveDecoder(Supplier<FSKDemodulator> demodulators) {
+        Validate.notNull(demodulators);
+        this.demodulators = demodulators;
+    }
+
+    public float getSegmentSeconds() {
+        return segmentSeconds;
+    }
+
+    /**
+     * Nominal segment length; the unit of parallel work.
+     */
+    public void setSegmentSeconds(float segmentSeconds) {
+        Validate.isTrue(segmentSeconds > 0.0f, "segment length must be positive: %f", segmentSeconds);
+        this.segmentSeconds = segmentSeconds;
+    }
+
+    public float getSearchSeconds() {
+        return searchSeconds;
+    }
+
+    /**
+     * How far past a nominal segment boundary to look for a carrier-free cut point.
+     */
+    public void setSearchSeconds(float searchSeconds) {
+        Validate.isTrue(searchSeconds >= 0.0f, "search length must not be negative: %f", searchSeconds);
+        this.searchSeconds = searchSeconds;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        Validate.notNull(pool);
+        this.pool = pool;
+    }
+
+    /**
+     * One piece of a recording: frames starting at samples <code>[start, end)</code> belong to it.
+     */
+    public static class Segment {
+        private final long start;
+        private final long end;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * Decodes the whole recording into <code>out</code>, segments in parallel, output in order.
+     */
+    public void decode(PcmFile file, OutputStream out) throws IOException {
+        decode(file, out, null);
+    }
+
+    /**
+     * As {@link #decode(PcmFile, OutputStream)}, adding the metrics of every segment's demodulator to
+     * <code>metrics</code> unless null. Frames in the overlap of two segments are counted by both.
+     */
+    public void decode(PcmFile file, OutputStream out, DemodulatorMetrics metrics) throws IOException {
+        List<Segment> segments = split(file);
+        int inFlight = Math.max(1, pool.getParallelism() * SEGMENTS_IN_FLIGHT_PER_WORKER);
+        Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<ForkJoinTask<byte[]>>();
+
+        try {
+            for (final Segment segment : segments) {
+                pending.addLast(pool.submit(() -> decode(file, segment, metrics)));
+                if (pending.size() >= inFlight) {
+                    out.write(join(pending.removeFirst()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                out.write(join(pending.removeFirst()));
+            }
+            out.flush();
+        } finally {
+            for (ForkJoinTask<byte[]> task : pending) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static byte[] join(ForkJoinTask<byte[]> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Decodes one segment with a fresh demodulator.
+     *
+     * @return the text of the frames starting within the segment
+     */
+    public byte[] decode(PcmFile file, Segment segment) {
+        return decode(file, segment, null);
+    }
+
+    private byte[] decode(PcmFile file, Segment segment, DemodulatorMetrics metrics) {
+        FSKDemodulator demodulator = newDemodulator(file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setOutputStream(out);
+
+        long from = Math.max(0L, segment.getStart() - (long) LEAD_IN_WINDOWS * demodulator.getWindowNSamples());
+        long to = Math.min(file.getNSamples(), segment.getEnd() + demodulator.getWindowNSamples());
+        demodulator.setOutputRange(segment.getStart() - from, segment.getEnd() - from);
+
+        float[] block = new float[BLOCK_NSAMPLES];
+        try {
+            for (long position = from; position < to; ) {
+                int n = file.read(position, block, 0, (int) Math.min(block.length, to - position));
+                demodulator.write(block, 0, n);
+                position += n;
+            }
+            demodulator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (metrics != null) {
+            metrics.add(demodulator.getMetrics());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Cuts the recording into segments of about {@link #getSegmentSeconds()}, each cut at the first carrier-free
+     * block within {@link #getSearchSeconds()} after the nominal boundary, or else the quietest one.
+     */
+    public List<Segment> split(PcmFile file) {
+        FSKDemodulator demodulator = newDemodulator(file);
+        int blockNSamples = demodulator.getCarrierBlockNSamples();
+        long segmentNSamples = Math.max(blockNSamples, (long) (segmentSeconds * file.getSampleRate()));
+        long searchNSamples = (long) (searchSeconds * file.getSampleRate());
+        long nSamples = file.getNSamples();
+
+        List<Segment> segments = new ArrayList<Segment>();
+        float[] block = new float[blockNSamples];
+        long start = 0L;
+
+        while (nSamples - start > segmentNSamples) {
+            long searchFrom = start + segmentNSamples;
+            long searchTo = Math.min(nSamples, searchFrom + searchNSamples);
+
+            long cut = searchFrom;
+            double minEnergy = Double.MAX_VALUE;
+            for (long position = searchFrom; position + blockNSamples <= searchTo; position += blockNSamples / 2) {
+                int n = file.read(position, block, 0, blockNSamples);
+                if (!demodulator.hasCarrier(block, 0, n)) {
+                    cut = position + blockNSamples / 2;
+                    break;
+                }
+
+                double energy = 0.0;
+                for (int i = 0; i < n; i++) {
+                    energy += block[i] * block[i];
+                }
+                if (energy < minEnergy) {
+                    minEnergy = energy;
+                    cut = position + blockNSamples / 2;
+                }
+            }
+
+            segments.add(new Segment(start, cut));
+            start = cut;
+        }
+        segments.add(new Segment(start, nSamples));
+
+        return segments;
+    }
+
+    private FSKDemodulator newDemodulator(PcmFile file) {
+        FSKDemodulator demodulator = demodulators.get();
+        Validate.validState(demodulator.getSampleRate() == file.getSampleRate(),
+                "demodulator expects %d Hz, the file is %d Hz", demodulator.getSampleRate(), file.getSampleRate());
+        return demodulator;
+    }
+}
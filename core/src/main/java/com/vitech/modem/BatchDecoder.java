@@ -0,0 +1,486 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.ASCII;
+import com.vitech.modem.io.PcmFile;
+import com.vitech.modem.metrics.DemodulatorMetrics;
+import com.vitech.modem.metrics.Histogram;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decodes many recordings at once, each into a text file of its own, and reports the throughput.
+ *
+ * Every file is a task of one work-stealing pool, and its {@link ArchiveDecoder} splits it into segments on the
+ * same pool: a file task waiting for its segments runs or steals others meanwhile, so a long recording spreads over
+ * the idle workers instead of holding one while the rest of the batch is done.
+ *
+ * Usage: <code>java com.vitech.modem.BatchDecoder [options] &lt;directory|glob|file&gt;...</code>, see {@link #main}.
+ */
+public class BatchDecoder {
+    private static final Logger log = Logger.getLogger(BatchDecoder.class.getName());
+
+    public static final String DEFAULT_OUTPUT_SUFFIX = ".txt";
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "usage: BatchDecoder [options] <directory|glob|file>...",
+            "  a directory stands for the .wav files in it, a glob such as 'captures/**/*.wav' for the files it matches",
+            "options:",
+            "  --baud <rate>          baud rate, default 300",
+            "  --mark <Hz>            mark frequency, default 1200 above 400 baud, 1270 below",
+            "  --space <Hz>           space frequency, default 2200 above 400 baud, 1070 below",
+            "  --bits <n>             ASCII data bits per frame, default 8",
+            "  --out <directory>      where to write the text, in the layout of the inputs below the directory they",
+            "                         have in common; default next to each input",
+            "  --suffix <suffix>      replaces the extension of the input, default " + DEFAULT_OUTPUT_SUFFIX,
+            "  --threads <n>          worker threads, default one per processor",
+            "  --segment <seconds>    parallel unit of a recording, default " + ArchiveDecoder.DEFAULT_SEGMENT_SECONDS,
+            "FSK analysis thresholds are read from the FSK_* system properties.");
+
+    private final IntFunction<FSKDemodulator> demodulators;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private float segmentSeconds = ArchiveDecoder.DEFAULT_SEGMENT_SECONDS;
+    private Path outputDirectory;
+    private String outputSuffix = DEFAULT_OUTPUT_SUFFIX;
+
+    /**
+     * @param demodulators   factory of identically configured demodulators for a sample rate, called once per
+     *                       segment with the rate of its recording
+     */
+    public BatchDecoder(IntFunction<FSKDemodulator> demodulators) {
+        Validate.notNull(demodulators);
+        this.demodulators = demodulators;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        Validate.notNull(pool);
+        this.pool = pool;
+    }
+
+    public float getSegmentSeconds() {
+        return segmentSeconds;
+    }
+
+    /**
+     * See {@link ArchiveDecoder#setSegmentSeconds(float)}.
+     */
+    public void setSegmentSeconds(float segmentSeconds) {
+        Validate.isTrue(segmentSeconds > 0.0f, "segment length must be positive: %f", segmentSeconds);
+        this.segmentSeconds = segmentSeconds;
+    }
+
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * Directory of the text files; null writes each next to its recording. See {@link #getOutput(Path, Path)}.
+     */
+    public void setOutputDirectory(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public String getOutputSuffix() {
+        return outputSuffix;
+    }
+
+    public void setOutputSuffix(String outputSuffix) {
+        Validate.notEmpty(outputSuffix);
+        this.outputSuffix = outputSuffix;
+    }
+
+    /**
+     * Where the text of <code>input</code> goes on its own: its name, with the output suffix instead of its
+     * extension, in the output directory or next to the input.
+     */
+    public Path getOutput(Path input) {
+        return getOutput(input, input.toAbsolutePath().normalize().getParent());
+    }
+
+    /**
+     * Where the text of <code>input</code> goes in a batch of files under <code>base</code>: as
+     * {@link #getOutput(Path)}, but in the output directory at the path of <code>input</code> relative to
+     * <code>base</code>, so that files of the same name in different directories do not share an output.
+     */
+    public Path getOutput(Path input, Path base) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        name = (dot > 0 ? name.substring(0, dot) : name) + outputSuffix;
+        if (outputDirectory != null) {
+            Path relative = base.relativize(input.toAbsolutePath().normalize().getParent());
+            return outputDirectory.resolve(relative).resolve(name);
+        }
+        return input.resolveSibling(name);
+    }
+
+    /**
+     * Decodes every input in parallel. An input listed twice is decoded once. A file that cannot be read or
+     * written fails alone, as does one whose output is already that of another input, e.g. <code>a.WAV</code>
+     * after <code>a.wav</code>.
+     *
+     * @return the results, in the order of the first occurrence of each input
+     */
+    public Report decode(List<Path> inputs) throws InterruptedException {
+        long start = System.nanoTime();
+        Map<Path, Path> unique = new LinkedHashMap<Path, Path>();
+        for (Path input : inputs) {
+            unique.putIfAbsent(input.toAbsolutePath().normalize(), input);
+        }
+        Path base = commonDirectory(unique.keySet());
+
+        Map<Path, Path> claimed = new HashMap<Path, Path>();
+        List<ForkJoinTask<FileResult>> tasks = new ArrayList<ForkJoinTask<FileResult>>();
+        for (final Path input : unique.values()) {
+            final Path output = getOutput(input, base);
+            Path other = claimed.putIfAbsent(output.toAbsolutePath().normalize(), input);
+            if (other != null) {
+                IOException collision = new IOException(output + " is already the output of " + other);
+                log.log(Level.WARNING, "skipped " + input, collision);
+                tasks.add(pool.submit(() -> new FileResult(input, output, 0.0, 0L, new DemodulatorMetrics(), collision)));
+            } else {
+                tasks.add(pool.submit(() -> decode(input, output)));
+            }
+        }
+
+        List<FileResult> results = new ArrayList<FileResult>();
+        try {
+            for (ForkJoinTask<FileResult> task : tasks) {
+                results.add(task.get());
+            }
+        } catch (ExecutionException e) {
+            // decode(Path) reports its failures in its result
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (ForkJoinTask<FileResult> task : tasks) {
+                task.cancel(false);
+            }
+        }
+        return new Report(results, System.nanoTime() - start);
+    }
+
+    /**
+     * Decodes one WAV file into {@link #getOutput(Path)}, streaming the text as its segments complete.
+     */
+    public FileResult decode(Path input) {
+        return decode(input, getOutput(input));
+    }
+
+    private FileResult decode(Path input, Path output) {
+        DemodulatorMetrics metrics = new DemodulatorMetrics();
+        long start = System.nanoTime();
+        double audioSeconds = 0.0;
+
+        try (PcmFile file = PcmFile.openWav(input);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(createParent(output)))) {
+            audioSeconds = (double) file.getNSamples() / file.getSampleRate();
+            int sampleRate = file.getSampleRate();
+            ArchiveDecoder decoder = new ArchiveDecoder(() -> demodulators.apply(sampleRate));
+            decoder.setPool(pool);
+            decoder.setSegmentSeconds(segmentSeconds);
+            decoder.decode(file, out, metrics);
+            return new FileResult(input, output, audioSeconds, System.nanoTime() - start, metrics, null);
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.WARNING, "failed to decode " + input, e);
+            return new FileResult(input, output, audioSeconds, System.nanoTime() - start, metrics, e);
+        }
+    }
+
+    private Path createParent(Path output) throws IOException {
+        if (outputDirectory != null && output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        return output;
+    }
+
+    // Deepest directory containing all the absolute paths
+    private static Path commonDirectory(Collection<Path> paths) {
+        Path base = null;
+        for (Path path : paths) {
+            if (base == null) {
+                base = path.getParent();
+            }
+            while (base != null && !path.startsWith(base)) {
+                base = base.getParent();
+            }
+        }
+        return base;
+    }
+
+    /**
+     * The recordings <code>spec</code> stands for, sorted: the <code>.wav</code> files of a directory, the files
+     * matching a glob, or a file.
+     */
+    public static List<Path> listInputs(String spec) throws IOException {
+        int wildcard = StringUtils.indexOfAny(spec, "*?[{");
+        if (wildcard < 0) {
+            Path path = Paths.get(spec);
+            if (Files.isDirectory(path)) {
+                PathMatcher wav = FileSystems.getDefault().getPathMatcher("glob:*.{wav,WAV}");
+                return walk(path, 1, p -> wav.matches(p.getFileName()));
+            }
+            return Collections.singletonList(path);
+        }
+
+        // walk from the directory before the first wildcard, matching paths in the form of the glob
+        int slash = spec.lastIndexOf('/', wildcard);
+        PathMatcher glob = FileSystems.getDefault().getPathMatcher("glob:" + spec);
+        if (slash < 0) {
+            Path base = Paths.get(".");
+            List<Path> inputs = new ArrayList<Path>();
+            for (Path p : walk(base, Integer.MAX_VALUE, p -> glob.matches(base.relativize(p)))) {
+                inputs.add(base.relativize(p));
+            }
+            return inputs;
+        }
+        return walk(Paths.get(spec.substring(0, slash + 1)), Integer.MAX_VALUE, glob::matches);
+    }
+
+    private static List<Path> walk(Path base, int depth, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(base, depth)) {
+            return paths.filter(p -> Files.isRegularFile(p) && filter.test(p)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Outcome of one file.
+     */
+    public static class FileResult {
+        private final Path input;
+        private final Path output;
+        private final double audioSeconds;
+        private final long nanos;
+        private final DemodulatorMetrics metrics;
+        private final Exception error;
+
+        FileResult(Path input, Path output, double audioSeconds, long nanos, DemodulatorMetrics metrics, Exception error) {
+            this.input = input;
+            this.output = output;
+            this.audioSeconds = audioSeconds;
+            this.nanos = nanos;
+            this.metrics = metrics;
+            this.error = error;
+        }
+
+        public Path getInput() {
+            return input;
+        }
+
+        public Path getOutput() {
+            return output;
+        }
+
+        public double getAudioSeconds() {
+            return audioSeconds;
+        }
+
+        /**
+         * Wall time from opening the file to closing the output, including waits for a worker.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Totals of the demodulators of all segments, including their overlaps.
+         */
+        public DemodulatorMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * Why the file failed, or null.
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+
+        @Override
+        public String toString() {
+            if (error != null) {
+                return String.format("%s: FAILED: %s", input, error);
+            }
+            Histogram confidence = metrics.getConfidence();
+            return String.format("%s: %.1f s of audio in %.2f s, %d frames, confidence mean %.2f, p10 <= %.1f, p50 <= %.1f",
+                    input, audioSeconds, nanos / 1e9, metrics.getFramesDecoded(), confidence.getMean(),
+                    confidence.getQuantileBound(0.1), confidence.getQuantileBound(0.5));
+        }
+    }
+
+    /**
+     * Results of a batch, and its throughput.
+     */
+    public static class Report {
+        private final List<FileResult> files;
+        private final long nanos;
+
+        Report(List<FileResult> files, long nanos) {
+            this.files = Collections.unmodifiableList(files);
+            this.nanos = nanos;
+        }
+
+        public List<FileResult> getFiles() {
+            return files;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public int getFailedCount() {
+            int failed = 0;
+            for (FileResult file : files) {
+                if (file.isFailed()) {
+                    failed++;
+                }
+            }
+            return failed;
+        }
+
+        public double getAudioSeconds() {
+            double seconds = 0.0;
+            for (FileResult file : files) {
+                seconds += file.getAudioSeconds();
+            }
+            return seconds;
+        }
+
+        public double getFilesPerSecond() {
+            return nanos > 0 ? files.size() * 1e9 / nanos : 0.0;
+        }
+
+        /**
+         * Seconds of audio decoded per second of wall time: how many times faster than real time.
+         */
+        public double getAudioSecondsPerSecond() {
+            return nanos > 0 ? getAudioSeconds() * 1e9 / nanos : 0.0;
+        }
+
+        public void print(PrintStream out) {
+            for (FileResult file : files) {
+                out.println(file);
+            }
+            out.println(String.format("%d files, %d failed, %.1f s of audio in %.2f s: %.2f files/s, %.1f audio s/s",
+                    files.size(), getFailedCount(), getAudioSeconds(), nanos / 1e9, getFilesPerSecond(),
+                    getAudioSecondsPerSecond()));
+        }
+    }
+
+    /**
+     * Decodes the recordings named on the command line and prints the report; exits with 1 if any failed, 2 on a
+     * usage error.
+     */
+    public static void main(String[] args) throws Exception {
+        float baudRate = 300.0f;
+        float markFreq = -1.0f;
+        float spaceFreq = -1.0f;
+        int nDataBits = 8;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path outputDirectory = null;
+        String outputSuffix = DEFAULT_OUTPUT_SUFFIX;
+        float segmentSeconds = ArchiveDecoder.DEFAULT_SEGMENT_SECONDS;
+        List<Path> inputs = new ArrayList<Path>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!arg.startsWith("--")) {
+                    inputs.addAll(listInputs(arg));
+                    continue;
+                }
+                Validate.isTrue(i + 1 < args.length, "%s expects a value", arg);
+                String value = args[++i];
+                switch (arg) {
+                    case "--baud":
+                        baudRate = Float.parseFloat(value);
+                        break;
+                    case "--mark":
+                        markFreq = Float.parseFloat(value);
+                        break;
+                    case "--space":
+                        spaceFreq = Float.parseFloat(value);
+                        break;
+                    case "--bits":
+                        nDataBits = Integer.parseInt(value);
+                        break;
+                    case "--out":
+                        outputDirectory = Paths.get(value);
+                        break;
+                    case "--suffix":
+                        outputSuffix = value;
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--segment":
+                        segmentSeconds = Float.parseFloat(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + arg);
+                }
+            }
+            Validate.isTrue(!inputs.isEmpty(), "no input files");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        // Bell 202 above 400 baud, Bell 103 below, as minimodem
+        final float baud = baudRate;
+        final float mark = markFreq > 0.0f ? markFreq : baudRate >= 400.0f ? 1200.0f : 1270.0f;
+        final float space = spaceFreq > 0.0f ? spaceFreq : baudRate >= 400.0f ? 2200.0f : 1070.0f;
+        final int bits = nDataBits;
+        final FskConfig config = FskConfig.fromSystemProperties();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            BatchDecoder decoder = new BatchDecoder(rate -> new FSKDemodulator(rate, baud, mark, space, bits, new ASCII(), config));
+            decoder.setPool(pool);
+            decoder.setSegmentSeconds(segmentSeconds);
+            decoder.setOutputDirectory(outputDirectory);
+            decoder.setOutputSuffix(outputSuffix);
+
+            Report report = decoder.decode(inputs);
+            report.print(System.out);
+            if (report.getFailedCount() > 0) {
+                System.exit(1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
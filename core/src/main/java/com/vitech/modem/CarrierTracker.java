@@ -0,0 +1,224 @@
+package com.vitech.modem;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+
+/**
+ * Streaming counterpart of {@link FSK#detectCarrier}: a sliding DFT over the last {@link FSK#getFftSize()} samples.
+ *
+ * Each sample updates the bands of the carrier autodetection range ({@link FskConfig#getFskMinFreq()} to
+ * {@link FskConfig#getFskMaxFreq()}) in O(1) per band, so the spectrum is current after every block without
+ * transforming the window again. Band magnitudes are exponentially averaged over
+ * {@link #getAveragingWindows()} windows to ride out noise and fades.
+ *
+ * Not thread safe: one tracker per sample stream.
+ */
+public class CarrierTracker {
+    public static final float DEFAULT_AVERAGING_WINDOWS = 1.0f;
+
+    // The recurrence accumulates rounding errors: recompute the window exactly every that many windows
+    private static final int RESYNC_WINDOWS = 4096;
+
+    private final FSK fsk;
+    private final int windowNSamples;
+    private final int firstBand;
+    private final int nTrackedBands;
+
+    // e^(2 pi j band / N) of the tracked bands, and cos/sin(2 pi m / N) for the exact transform
+    private final double[] rotationRe;
+    private final double[] rotationIm;
+    private final double[] cosTable;
+    private final double[] sinTable;
+
+    private final double[] re;
+    private final double[] im;
+    private final float[] average;
+
+    private final float[] history;
+    private final float[] delta;
+    private int historyPos;
+    private long nSamples;
+    private long resyncCountdown;
+
+    private float averagingWindows = DEFAULT_AVERAGING_WINDOWS;
+
+    public CarrierTracker(FSK fsk) {
+        Validate.notNull(fsk);
+        this.fsk = fsk;
+        this.windowNSamples = fsk.getFftSize();
+        this.firstBand = fsk.getAutodetectFirstBand();
+        this.nTrackedBands = Math.max(0, fsk.getAutodetectEndBand() - firstBand);
+
+        this.cosTable = new double[windowNSamples];
+        this.sinTable = new double[windowNSamples];
+        for (int m = 0; m < windowNSamples; m++) {
+            cosTable[m] = Math.cos(2.0 * Math.PI * m / windowNSamples);
+            sinTable[m] = Math.sin(2.0 * Math.PI * m / windowNSamples);
+        }
+
+        this.rotationRe = new double[nTrackedBands];
+        this.rotationIm = new double[nTrackedBands];
+        for (int b = 0; b < nTrackedBands; b++) {
+            int m = (firstBand + b) % windowNSamples;
+            rotationRe[b] = cosTable[m];
+            rotationIm[b] = sinTable[m];
+        }
+
+        this.re = new double[nTrackedBands];
+        this.im = new double[nTrackedBands];
+        this.average = new float[nTrackedBands];
+        this.history = new float[windowNSamples];
+        this.delta = new float[windowNSamples];
+        this.resyncCountdown = (long) RESYNC_WINDOWS * windowNSamples;
+    }
+
+    public FSK getFsk() {
+        return fsk;
+    }
+
+    public float getAveragingWindows() {
+        return averagingWindows;
+    }
+
+    /**
+     * Time constant of the magnitude averaging, in windows of {@link FSK#getFftSize()} samples; 0 disables averaging.
+     */
+    public void setAveragingWindows(float averagingWindows) {
+        Validate.isTrue(averagingWindows >= 0.0f, "averaging must not be negative: %f", averagingWindows);
+        this.averagingWindows = averagingWindows;
+    }
+
+    /**
+     * Number of samples seen since construction or {@link #reset()}.
+     */
+    public long getNSamples() {
+        return nSamples;
+    }
+
+    /**
+     * Forgets all samples seen so far.
+     */
+    public void reset() {
+        Arrays.fill(history, 0.0f);
+        Arrays.fill(re, 0.0);
+        Arrays.fill(im, 0.0);
+        Arrays.fill(average, 0.0f);
+        historyPos = 0;
+        nSamples = 0;
+        resyncCountdown = (long) RESYNC_WINDOWS * windowNSamples;
+    }
+
+    /**
+     * Slides the window over <code>samples[from, from + count)</code>.
+     */
+    public void update(float[] samples, int from, int count) {
+        while (count > 0) {
+            int n = Math.min(count, windowNSamples);
+            slide(samples, from, n);
+            from += n;
+            count -= n;
+        }
+    }
+
+    private void slide(float[] samples, int from, int n) {
+        // the difference between each entering sample and the one it pushes out of the window
+        int pos = historyPos;
+        for (int i = 0; i < n; i++) {
+            float sample = samples[from + i];
+            delta[i] = sample - history[pos];
+            history[pos] = sample;
+            if (++pos == windowNSamples) {
+                pos = 0;
+            }
+        }
+        historyPos = pos;
+        nSamples += n;
+
+        // X(t) = e^(2 pi j k / N) * (X(t - 1) + x(t) - x(t - N))
+        for (int b = 0; b < nTrackedBands; b++) {
+            double cr = rotationRe[b];
+            double ci = rotationIm[b];
+            double xr = re[b];
+            double xi = im[b];
+            for (int i = 0; i < n; i++) {
+                double ar = xr + delta[i];
+                xr = ar * cr - xi * ci;
+                xi = ar * ci + xi * cr;
+            }
+            re[b] = xr;
+            im[b] = xi;
+        }
+
+        resyncCountdown -= n;
+        if (resyncCountdown <= 0) {
+            resync();
+        }
+
+        float alpha = averagingWindows > 0.0f ? (float) -Math.expm1(-n / (averagingWindows * windowNSamples)) : 1.0f;
+        for (int b = 0; b < nTrackedBands; b++) {
+            average[b] += alpha * (magnitude(b) - average[b]);
+        }
+    }
+
+    // X = sum of x(t - m) * e^(2 pi j k (m + 1) / N), m = 0 (newest) .. N - 1 (oldest): what the recurrence yields
+    private void resync() {
+        for (int b = 0; b < nTrackedBands; b++) {
+            int k = (firstBand + b) % windowNSamples;
+            double xr = 0.0;
+            double xi = 0.0;
+            int pos = historyPos;
+            for (int m = 0; m < windowNSamples; m++) {
+                pos = pos == 0 ? windowNSamples - 1 : pos - 1;
+                int phase = (int) ((long) k * (m + 1) % windowNSamples);
+                xr += history[pos] * cosTable[phase];
+                xi += history[pos] * sinTable[phase];
+            }
+            re[b] = xr;
+            im[b] = xi;
+        }
+        resyncCountdown = (long) RESYNC_WINDOWS * windowNSamples;
+    }
+
+    // same scale as FSK.detectCarrier
+    private float magnitude(int b) {
+        return (float) (Math.sqrt(re[b] * re[b] + im[b] * im[b]) * 2.0 / windowNSamples);
+    }
+
+    /**
+     * Current magnitude of <code>band</code> over the last window, not averaged; 0 outside the tracked range.
+     */
+    public float getMagnitude(int band) {
+        int b = band - firstBand;
+        return b >= 0 && b < nTrackedBands ? magnitude(b) : 0.0f;
+    }
+
+    /**
+     * Averaged magnitude of <code>band</code>; 0 outside the tracked range.
+     */
+    public float getAverageMagnitude(int band) {
+        int b = band - firstBand;
+        return b >= 0 && b < nTrackedBands ? average[b] : 0.0f;
+    }
+
+    /**
+     * Band of the strongest averaged magnitude, as {@link FSK#detectCarrier} returns it; its frequency is
+     * <code>band * {@link FSK#getBandWidth()}</code>.
+     *
+     * @return -1 if no band reaches <code>minMagnitudeThreshold</code>
+     */
+    public int getCarrierBand(float minMagnitudeThreshold) {
+        float maxMag = 0.0f;
+        int maxMagBand = -1;
+
+        for (int b = 0; b < nTrackedBands; b++) {
+            float mag = average[b];
+            if (mag >= minMagnitudeThreshold && maxMag < mag) {
+                maxMag = mag;
+                maxMagBand = firstBand + b;
+            }
+        }
+
+        return maxMagBand;
+    }
+}
@@ -0,0 +1,220 @@
+package com.vitech.modem;
+
+import org.apache.commons.lang3.Validate;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs independent demodulation sessions side by side, one per audio feed.
+ *
+ * Every {@link Channel} owns its {@link FSKDemodulator}, hence its own {@link FSK}, state and databits
+ * codec, and runs as one task of a shared executor. Channels can be added and removed at any time.
+ */
+public class ChannelManager {
+    private static final Logger log = Logger.getLogger(ChannelManager.class.getName());
+
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<String, Channel>();
+
+    /**
+     * Runs channels on the given executor, which stays owned by the caller.
+     */
+    public ChannelManager(ExecutorService executor) {
+        this(executor, false);
+    }
+
+    private ChannelManager(ExecutorService executor, boolean ownExecutor) {
+        Validate.notNull(executor);
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * One virtual thread per channel where the runtime has them (Java 21+), so blocking reads of live feeds
+     * cost no platform thread; otherwise a pool of {@link Runtime#availableProcessors()} daemon threads.
+     */
+    public static ChannelManager create() {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            return new ChannelManager(virtual, true);
+        }
+        return withWorkers(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Channels share <code>nWorkers</code> daemon threads; channels beyond that wait for a free worker,
+     * so size the pool to the number of live feeds when their input blocks.
+     */
+    public static ChannelManager withWorkers(int nWorkers) {
+        Validate.isTrue(nWorkers > 0, "at least one worker expected: %d", nWorkers);
+        return new ChannelManager(Executors.newFixedThreadPool(nWorkers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "minimodem-channel-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }), true);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            log.log(Level.FINE, "virtual threads unavailable", e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts demodulating a feed. The demodulator must have its input stream set, and its output stream or frame
+     * publisher.
+     */
+    public Channel addChannel(String id, FSKDemodulator demodulator) {
+        Validate.notNull(id);
+        Validate.notNull(demodulator);
+        Validate.validState(demodulator.getInputStream() != null, "input stream is not set");
+        Validate.validState(demodulator.getOutputStream() != null || demodulator.getFramePublisher() != null,
+                "neither output stream nor frame publisher is set");
+
+        Channel channel = new Channel(id, demodulator);
+        Validate.isTrue(channels.putIfAbsent(id, channel) == null, "channel %s already exists", id);
+
+        channel.start();
+        return channel;
+    }
+
+    /**
+     * Stops a channel; it finishes the frame at hand and returns once its current read does.
+     *
+     * @return the removed channel, or null
+     */
+    public Channel removeChannel(String id) {
+        Channel channel = channels.remove(id);
+        if (channel != null) {
+            channel.stop();
+        }
+        return channel;
+    }
+
+    public Channel getChannel(String id) {
+        return channels.get(id);
+    }
+
+    public List<Channel> getChannels() {
+        return Collections.unmodifiableList(new ArrayList<Channel>(channels.values()));
+    }
+
+    /**
+     * Stops every channel and, if the executor was created by this manager, shuts it down.
+     */
+    public void shutdown() {
+        for (String id : new ArrayList<String>(channels.keySet())) {
+            removeChannel(id);
+        }
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * One demodulation session.
+     */
+    public class Channel {
+        private final String id;
+        private final FSKDemodulator demodulator;
+        private volatile long startNanos;
+        private volatile Future<?> future;
+
+        private Channel(String id, FSKDemodulator demodulator) {
+            this.id = id;
+            this.demodulator = demodulator;
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+            future = executor.submit(demodulator);
+        }
+
+        private void stop() {
+            demodulator.stop();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public FSKDemodulator getDemodulator() {
+            return demodulator;
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        /**
+         * Waits for the channel to end, rethrowing whatever stopped it abnormally.
+         */
+        public void await() throws InterruptedException, ExecutionException {
+            try {
+                future.get();
+            } catch (CancellationException e) {
+                // removed while queued
+            }
+        }
+
+        /**
+         * Seconds of audio analyzed so far.
+         */
+        public double getAudioSeconds() {
+            return (double) demodulator.getSamplePosition() / demodulator.getSampleRate();
+        }
+
+        /**
+         * Processing time per second of audio: 0.01 means the channel needs 1% of a core,
+         * i.e. one core sustains about <code>1 / getRealTimeFactor()</code> such channels.
+         */
+        public double getRealTimeFactor() {
+            double audioSeconds = getAudioSeconds();
+            return audioSeconds > 0.0d ? demodulator.getProcessingNanos() / 1e9d / audioSeconds : 0.0d;
+        }
+
+        /**
+         * Seconds since the channel was added.
+         */
+        public double getUptimeSeconds() {
+            return (System.nanoTime() - startNanos) / 1e9d;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.1f s audio, real-time factor %.4f%s", id, getAudioSeconds(), getRealTimeFactor(),
+                    isDone() ? " (done)" : "");
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.IDatabits;
+import com.vitech.modem.metrics.DemodulatorMetrics;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Receiver of several frequency-multiplexed FSK channels of the same baud rate in one audio band.
+ *
+ * A bank of sliding DFTs, one per distinct tone, keeps the magnitude of every channel tone over the last bit's worth
+ * of samples; every hop of 1/8 bit the magnitudes are stored as a column. Each channel searches and decodes its
+ * frames over these shared columns with its own {@link FSK} settings and {@link IDatabits} codec. Updating a tone
+ * costs a few multiplications per sample, and the frame search only looks up magnitudes, where a
+ * {@link FSKDemodulator} per channel would analyze every candidate bit of every candidate frame again.
+ *
+ * Frame timing is resolved to the hop, where {@link FSKDemodulator} searches every sample step of its own.
+ */
+public class Channelizer {
+    private static final Logger log = Logger.getLogger(Channelizer.class.getName());
+
+    // Frame search resolution, in hops per bit
+    private static final int HOPS_PER_BIT = 8;
+    // The recurrence accumulates rounding errors: recompute the window exactly every that many hops
+    private static final int RESYNC_HOPS = 4096;
+    // Frames more than 20 dB below the strongest tone are rejected: the leakage of a strong neighbor into
+    // the tones of an idle channel can otherwise pass for frames
+    private static final float CARRIER_DOMINANCE = 0.1f;
+
+    private final int sampleRate;
+    private final float baudRate;
+    private final FskConfig config;
+    private final int bandWidth;
+    private final int nBands;
+    private final float samplesPerBit;
+    private final int bitNSamples;
+    private final int hopNSamples;
+    private final float hopsPerBit;
+
+    private final double magScalar;
+
+    private float confidenceThreshold = FSKDemodulator.DEFAULT_CONFIDENCE_THRESHOLD;
+    private float confidenceSearchLimit = FSKDemodulator.DEFAULT_CONFIDENCE_SEARCH_LIMIT;
+
+    private final List<Channel> channels = new ArrayList<Channel>();
+    private final List<Float> tones = new ArrayList<Float>();
+
+    // Sliding DFT of each tone over the window ending at sample t: X = sum of x(t - m) * e^(j w (m + 1)), m < N
+    private double[] re;
+    private double[] im;
+    private double[] rotationRe;
+    private double[] rotationIm;
+    // e^(j w (N + 1)), the weight of the sample leaving the window
+    private double[] tailRe;
+    private double[] tailIm;
+    private int resyncCountdown;
+
+    // Tone magnitudes of the last columns: columns[hop % length][slot], the strongest one last
+    private float[][] columns;
+    private long nHops;
+
+    private SampleRingBuffer ring;
+    private boolean started;
+
+    /**
+     * @param sampleRate    input sample rate, Hz
+     * @param baudRate      data rate of every channel, bits per second; also the analysis band width
+     * @param config        FSK analysis settings of every channel
+     */
+    public Channelizer(int sampleRate, float baudRate, FskConfig config) {
+        Validate.isTrue(sampleRate > 0 && baudRate > 0, "sample rate and baud rate must be positive");
+        Validate.notNull(config);
+
+        this.sampleRate = sampleRate;
+        this.baudRate = baudRate;
+        this.config = config;
+        this.bandWidth = Math.max(1, Math.round(baudRate));
+        this.nBands = (sampleRate + bandWidth / 2) / bandWidth / 2 + 1;
+
+        this.samplesPerBit = sampleRate / baudRate;
+        this.bitNSamples = (int) (samplesPerBit + 0.5f);
+        this.hopNSamples = Math.max(1, bitNSamples / HOPS_PER_BIT);
+        this.hopsPerBit = samplesPerBit / hopNSamples;
+        this.magScalar = 2.0d / bitNSamples;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public float getBaudRate() {
+        return baudRate;
+    }
+
+    public float getConfidenceThreshold() {
+        return confidenceThreshold;
+    }
+
+    /**
+     * Frames at or below this confidence are rejected and drop the carrier of their channel.
+     */
+    public void setConfidenceThreshold(float confidenceThreshold) {
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    public float getConfidenceSearchLimit() {
+        return confidenceSearchLimit;
+    }
+
+    /**
+     * Frame search stops at the first candidate reaching this confidence, once a channel has carrier.
+     */
+    public void setConfidenceSearchLimit(float confidenceSearchLimit) {
+        this.confidenceSearchLimit = confidenceSearchLimit;
+    }
+
+    /**
+     * Number of input samples between magnitude columns, about 1/8 bit.
+     */
+    public int getHopNSamples() {
+        return hopNSamples;
+    }
+
+    public List<Channel> getChannels() {
+        return Collections.unmodifiableList(channels);
+    }
+
+    /**
+     * Adds a channel; only allowed before the first samples are written.
+     *
+     * @param markFreq      frequency of '1' bits, Hz
+     * @param spaceFreq     frequency of '0' bits, Hz
+     * @param nDataBits     data bits per frame, 1 to 8
+     * @param databits      decoder of the data bits of each frame
+     * @param out           where the decoded characters of the channel go
+     */
+    public Channel addChannel(float markFreq, float spaceFreq, int nDataBits, IDatabits databits, OutputStream out) {
+        Validate.validState(!started, "channels must be added before reception starts");
+        Validate.isTrue(nDataBits > 0 && nDataBits <= 8, "1 to 8 data bits expected: %d", nDataBits);
+        Validate.notNull(databits);
+        Validate.notNull(out);
+        Validate.isTrue(markFreq > 0 && spaceFreq > 0 && markFreq * 2 < sampleRate && spaceFreq * 2 < sampleRate,
+                "tones must be within the band: %f, %f", markFreq, spaceFreq);
+
+        Channel channel = new Channel(markFreq, spaceFreq, nDataBits, databits, out);
+        channels.add(channel);
+        return channel;
+    }
+
+    // Column slot of the tone freq, shared by the channels using that tone
+    private int slot(float freq) {
+        int slot = tones.indexOf(freq);
+        if (slot < 0) {
+            slot = tones.size();
+            tones.add(freq);
+        }
+        return slot;
+    }
+
+    /**
+     * Feeds samples and decodes every frame they complete, in the calling thread.
+     */
+    public void write(float[] samples, int from, int count) throws IOException {
+        start();
+        while (count > 0) {
+            int n = ring.write(samples, from, count);
+            from += n;
+            count -= n;
+            process();
+        }
+    }
+
+    /**
+     * Signals the end of input: pads it with silence so that frames ending right at the end are still found,
+     * and flushes the channel outputs.
+     */
+    public void flush() throws IOException {
+        start();
+        int padding = bitNSamples;
+        for (Channel channel : channels) {
+            padding = Math.max(padding, bitNSamples + channel.lookaheadHops * hopNSamples);
+        }
+
+        while (padding > 0) {
+            padding -= ring.writeSilence(padding);
+            process();
+        }
+
+        for (Channel channel : channels) {
+            channel.carrier = false;
+            channel.out.flush();
+        }
+    }
+
+    private void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        int nColumns = 1;
+        for (Channel channel : channels) {
+            nColumns = Math.max(nColumns, channel.lookaheadHops);
+        }
+
+        int nTones = tones.size();
+        this.re = new double[nTones];
+        this.im = new double[nTones];
+        this.rotationRe = new double[nTones];
+        this.rotationIm = new double[nTones];
+        this.tailRe = new double[nTones];
+        this.tailIm = new double[nTones];
+        for (int k = 0; k < nTones; k++) {
+            double w = 2.0 * Math.PI * tones.get(k) / sampleRate;
+            rotationRe[k] = Math.cos(w);
+            rotationIm[k] = Math.sin(w);
+            tailRe[k] = Math.cos(w * (bitNSamples + 1));
+            tailIm[k] = Math.sin(w * (bitNSamples + 1));
+        }
+
+        this.columns = new float[nColumns][nTones + 1];
+        this.ring = new SampleRingBuffer(bitNSamples + Math.max(hopNSamples, 4096));
+    }
+
+    private void process() throws IOException {
+        while (true) {
+            if (nHops == 0) {
+                if (ring.available() < bitNSamples) {
+                    return;
+                }
+                resync();
+            } else {
+                if (ring.available() < bitNSamples + hopNSamples) {
+                    return;
+                }
+                slide();
+                ring.advance(hopNSamples);
+                if (--resyncCountdown == 0) {
+                    resync();
+                }
+            }
+
+            float[] column = columns[(int) (nHops % columns.length)];
+            float max = 0.0f;
+            for (int k = 0; k < re.length; k++) {
+                column[k] = (float) (Math.sqrt(re[k] * re[k] + im[k] * im[k]) * magScalar);
+                max = Math.max(max, column[k]);
+            }
+            column[re.length] = max;
+            nHops++;
+
+            for (Channel channel : channels) {
+                channel.analyze();
+            }
+        }
+    }
+
+    // Slides every tone's window by one hop
+    private void slide() {
+        float[] samples = ring.array();
+        int entering = ring.readOffset() + bitNSamples;
+        int leaving = ring.readOffset();
+        int nTones = re.length;
+
+        for (int i = 0; i < hopNSamples; i++) {
+            double x = samples[entering + i];
+            double old = samples[leaving + i];
+            // X(t) = e^(j w) (X(t - 1) + x(t)) - x(t - N) e^(j w (N + 1))
+            for (int k = 0; k < nTones; k++) {
+                double ar = re[k] + x;
+                double ai = im[k];
+                re[k] = ar * rotationRe[k] - ai * rotationIm[k] - old * tailRe[k];
+                im[k] = ar * rotationIm[k] + ai * rotationRe[k] - old * tailIm[k];
+            }
+        }
+    }
+
+    // Computes every tone over the current window directly
+    private void resync() {
+        float[] samples = ring.array();
+        int last = ring.readOffset() + bitNSamples - 1;
+
+        for (int k = 0; k < re.length; k++) {
+            double w = 2.0 * Math.PI * tones.get(k) / sampleRate;
+            double xr = 0.0;
+            double xi = 0.0;
+            for (int m = 0; m < bitNSamples; m++) {
+                xr += samples[last - m] * Math.cos(w * (m + 1));
+                xi += samples[last - m] * Math.sin(w * (m + 1));
+            }
+            re[k] = xr;
+            im[k] = xi;
+        }
+        resyncCountdown = RESYNC_HOPS;
+    }
+
+    /**
+     * One FSK channel of the band.
+     */
+    public class Channel {
+        private final float markFreq;
+        private final float spaceFreq;
+        private final int markSlot;
+        private final int spaceSlot;
+        private final int nDataBits;
+        private final IDatabits databits;
+        private final OutputStream out;
+        private final FSK fsk;
+        private final DemodulatorMetrics metrics = new DemodulatorMetrics();
+
+        private final String expectBitsString;
+        private final int[] bitHops;
+        private final int tryMaxHops;
+        private final int overscanHops;
+        private final int lookaheadHops;
+        private float nStopBits = FSKDemodulator.DEFAULT_STOP_BITS;
+
+        private final FSK.BitAnalysisInfo[] bits;
+        private final FSK.FrameAnalysisInfo candidate;
+        private final FSK.FrameAnalysisInfo best;
+        private final ByteBuffer frameData = ByteBuffer.allocate(1);
+        private final ByteBuffer decoded = ByteBuffer.allocate(64);
+
+        // Hop where the next frame search starts
+        private long position;
+        private boolean carrier;
+
+        private Channel(float markFreq, float spaceFreq, int nDataBits, IDatabits databits, OutputStream out) {
+            this.markFreq = markFreq;
+            this.spaceFreq = spaceFreq;
+            this.markSlot = slot(markFreq);
+            this.spaceSlot = slot(spaceFreq);
+            this.nDataBits = nDataBits;
+            this.databits = databits;
+            this.out = out;
+            this.fsk = new FSK(bandWidth, nBands, config);
+            int markBand = Math.round(markFreq / bandWidth);
+            this.fsk.setTonesByBandshift(markBand, Math.round(spaceFreq / bandWidth) - markBand);
+
+            StringBuilder expect = new StringBuilder("10");
+            for (int i = 0; i < nDataBits; i++) {
+                expect.append('d');
+            }
+            this.expectBitsString = expect.append('1').toString();
+
+            int nBits = expectBitsString.length();
+            this.bitHops = new int[nBits];
+            this.bits = new FSK.BitAnalysisInfo[nBits];
+            for (int b = 0; b < nBits; b++) {
+                bitHops[b] = Math.round(b * hopsPerBit);
+                bits[b] = fsk.new BitAnalysisInfo();
+            }
+
+            this.tryMaxHops = Math.max(1, Math.round(hopsPerBit));
+            this.overscanHops = tryMaxHops / 4;
+            this.lookaheadHops = tryMaxHops + bitHops[nBits - 1] + 1;
+            this.candidate = fsk.new FrameAnalysisInfo();
+            this.best = fsk.new FrameAnalysisInfo();
+        }
+
+        public float getMarkFreq() {
+            return markFreq;
+        }
+
+        public float getSpaceFreq() {
+            return spaceFreq;
+        }
+
+        public float getStopBits() {
+            return nStopBits;
+        }
+
+        /**
+         * Stop bits sent per frame, e.g. 1.5 for Baudot; only the first is checked, the rest is skipped.
+         */
+        public void setStopBits(float nStopBits) {
+            Validate.isTrue(nStopBits >= 1.0f, "at least one stop bit expected: %f", nStopBits);
+            this.nStopBits = nStopBits;
+        }
+
+        public boolean isCarrier() {
+            return carrier;
+        }
+
+        /**
+         * Counters of this channel's frame search.
+         */
+        public DemodulatorMetrics getMetrics() {
+            return metrics;
+        }
+
+        private void analyze() throws IOException {
+            while (nHops - position >= lookaheadHops) {
+                best.setConfidence(0.0f);
+                best.setAmpl(0.0f);
+                best.setBits(0L);
+                best.setStartPos(0);
+
+                double confidence = findFrame(carrier ? overscanHops : 0, carrier ? confidenceSearchLimit : Float.POSITIVE_INFINITY);
+
+                if (confidence <= confidenceThreshold || !isDominant()) {
+                    if (best.getRejection() != null) {
+                        getMetrics().recordRejected(best.getRejection());
+                    }
+                    if (carrier) {
+                        log.fine("### NOCARRIER");
+                        carrier = false;
+                        getMetrics().recordCarrierLost();
+                    }
+                    position += tryMaxHops;
+                    continue;
+                }
+
+                if (!carrier) {
+                    log.fine("### CARRIER");
+                    carrier = true;
+                    getMetrics().recordCarrierFound();
+                }
+
+                getMetrics().recordFrame(confidence, best.getAmpl());
+                emit(best.getBits());
+
+                // the last stop bit of this frame is the previous stop bit of the next one
+                position += best.getStartPos() + Math.round(hopsPerBit * (nDataBits + 1 + nStopBits)) - overscanHops;
+            }
+        }
+
+        // Whether the best frame stands out of the leakage of the other channels at its start
+        private boolean isDominant() {
+            float[] column = columns[(int) ((position + best.getStartPos()) % columns.length)];
+            return best.getAmpl() >= CARRIER_DOMINANCE * column[column.length - 1];
+        }
+
+        // The candidate order of FSK.findFrame, one hop apart
+        private double findFrame(int tryFirstHop, float searchLimit) {
+            best.setRejection(null, 0);
+            for (int j = 0; ; j++) {
+                int up = (j % 2) != 0 ? 1 : -1;
+                int t = tryFirstHop + up * ((j + 1) / 2);
+
+                if (t >= tryMaxHops) {
+                    break;
+                }
+                if (t < 0) {
+                    continue;
+                }
+
+                for (int b = 0; b < bits.length; b++) {
+                    float[] column = columns[(int) ((position + t + bitHops[b]) % columns.length)];
+                    float magMark = column[markSlot];
+                    float magSpace = column[spaceSlot];
+                    // mark==1, space==0
+                    if (magMark > magSpace) {
+                        bits[b].set((byte) 1, magMark, magSpace);
+                    } else {
+                        bits[b].set((byte) 0, magSpace, magMark);
+                    }
+                }
+
+                candidate.setAmpl(0.0f);
+                candidate.setBits(0L);
+                fsk.frameAnalyze(bits, expectBitsString, candidate);
+                best.offerRejection(candidate);
+
+                if (best.getConfidence() < candidate.getConfidence()) {
+                    best.setStartPos(t);
+                    best.setConfidence(candidate.getConfidence());
+                    best.setAmpl(candidate.getAmpl());
+                    best.setBits(candidate.getBits());
+
+                    if (best.getConfidence() >= searchLimit) {
+                        break;
+                    }
+                }
+            }
+
+            if (best.getConfidence() > 0.0) {
+                best.setRejection(null, 0);
+            }
+            return best.getConfidence();
+        }
+
+        private void emit(long frameBits) throws IOException {
+            long dataBits = (frameBits >>> 2) & ((1L << nDataBits) - 1);
+            frameData.clear();
+            frameData.put(0, (byte) dataBits);
+            decoded.clear();
+
+            databits.decode(frameData, decoded);
+            if (decoded.position() > 0) {
+                out.write(decoded.array(), 0, decoded.position());
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.vitech.modem;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One frame decoded by a {@link FSKDemodulator}, as published by a {@link FramePublisher}.
+ */
+public final class DecodedFrame {
+    private final long bits;
+    private final byte[] data;
+    private final float confidence;
+    private final float amplitude;
+    private final long sampleOffset;
+
+    /**
+     * @param bits          frame bits, first bit in the least significant one, see {@link FSK.FrameAnalysisInfo#getBits()}
+     * @param data          what the databits codec made of the frame, possibly nothing (e.g. a Baudot shift)
+     * @param confidence    frame confidence
+     * @param amplitude     average bit signal magnitude
+     * @param sampleOffset  input sample of the start of the frame
+     */
+    public DecodedFrame(long bits, byte[] data, float confidence, float amplitude, long sampleOffset) {
+        this.bits = bits;
+        this.data = data.clone();
+        this.confidence = confidence;
+        this.amplitude = amplitude;
+        this.sampleOffset = sampleOffset;
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    public byte[] getData() {
+        return data.clone();
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public float getAmplitude() {
+        return amplitude;
+    }
+
+    public long getSampleOffset() {
+        return sampleOffset;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("frame @%d bits=0x%x confidence=%f ampl=%f '%s'", sampleOffset, bits, confidence, amplitude,
+                new String(data, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,997 @@
+package com.vitech.modem;
+
+import com.vitech.modem.dsp.Kernels;
+import com.vitech.modem.dsp.RealFFT;
+import com.vitech.modem.dsp.Tone;
+import com.vitech.modem.metrics.DemodulatorMetrics;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.math3.util.ArithmeticUtils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @see <a href="https://github.com/kamalmostafa/minimodem/blob/master/src/fsk.c">source code</a>
+ */
+public class FSK {
+    /**
+     * Engine used by bit analysis to measure mark and space tone magnitudes.
+     */
+    public enum AnalysisMode {
+        /** Full real FFT over the zero-padded bit window; only two of its bins are used. */
+        FFT,
+        /** Goertzel filter per tone: O(n) multiply-adds on two frequencies, no transform buffers. */
+        GOERTZEL
+    }
+
+    /**
+     * Strategy of {@link #findFrame} for scanning candidate frame start positions.
+     */
+    public enum SearchMode {
+        /** Candidates are analyzed one at a time, in the alternating order around the first try. */
+        SERIAL,
+        /** Candidates are split across a {@link ForkJoinPool}; the result is the same as {@link #SERIAL}. */
+        PARALLEL
+    }
+
+    /**
+     * Resolution of {@link #setToneOffset(float)}: tones are shifted by multiples of that fraction of a band,
+     * so that the tables of each shifted tone are built only once.
+     */
+    public static final int TONE_OFFSET_STEPS = 16;
+    public static final float MAX_TONE_OFFSET = 0.5f;
+
+    // Early/late frequency discriminator: magnitudes a quarter band either side of the tone, and the offset per
+    // unit of their normalized difference for a window of one band
+    private static final int DISCRIMINATOR_STEPS = TONE_OFFSET_STEPS / 4;
+    private static final float DISCRIMINATOR_GAIN = 1.17f;
+    private static final int MAX_OFFSET_STEPS = (int) (MAX_TONE_OFFSET * TONE_OFFSET_STEPS) + DISCRIMINATOR_STEPS;
+
+    private int markBand;
+    private int spaceBand;
+    private int toneOffsetSteps;
+    // mark and space tones by offset, from -MAX_OFFSET_STEPS
+    private Tone[][] offsetTones = new Tone[2][2 * MAX_OFFSET_STEPS + 1];
+
+    private Tone markTone;
+    private Tone spaceTone;
+    // the frequencies of the FFT bins of the tones, which FFT analysis measures
+    private Tone markBinTone;
+    private Tone spaceBinTone;
+
+    public int getMarkBand() {
+        return markBand;
+    }
+
+    public int getSpaceBand() {
+        return spaceBand;
+    }
+
+    private void setMarkBand(int markBand) {
+        this.markBand = markBand;
+        this.offsetTones[0] = new Tone[2 * MAX_OFFSET_STEPS + 1];
+        this.markTone = getOffsetTone(true, toneOffsetSteps);
+        this.markBinTone = new Tone((double) bandToBin(markBand) / fft.getLength());
+    }
+
+    private void setSpaceBand(int spaceBand) {
+        this.spaceBand = spaceBand;
+        this.offsetTones[1] = new Tone[2 * MAX_OFFSET_STEPS + 1];
+        this.spaceTone = getOffsetTone(false, toneOffsetSteps);
+        this.spaceBinTone = new Tone((double) bandToBin(spaceBand) / fft.getLength());
+    }
+
+    class FrameAnalysisInfo {
+        private double   confidence;
+        private long    bits;
+        private float   ampl;
+        private int     startPos;
+        private DemodulatorMetrics.Rejection rejection;
+        private int     checksPassed;
+
+        FrameAnalysisInfo() {
+            this(0.0f, 0L, 0.0f, 0);
+        }
+
+        FrameAnalysisInfo(float confidence, long bits, float ampl, int startPos) {
+            this.confidence = confidence;
+            this.bits       = bits;
+            this.ampl       = ampl;
+            this.startPos   = startPos;
+        }
+
+        public void setConfidence(double confidence) {
+            this.confidence = confidence;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        public void setConfidence(float confidence) {
+            this.confidence = confidence;
+        }
+
+        public float getAmpl() {
+            return ampl;
+        }
+
+        public void setAmpl(float ampl) {
+            this.ampl = ampl;
+        }
+
+        public void setBits(long bits) {
+            this.bits = bits;
+        }
+
+        public long getBits() {
+            return bits;
+        }
+
+        public void setStartPos(int startPos) {
+            this.startPos = startPos;
+        }
+
+        public int getStartPos() {
+            return startPos;
+        }
+
+        /**
+         * Why the analyzed candidate was rejected, or for the result of a search that found no frame, why the
+         * candidate closest to one was; null if a frame was found.
+         */
+        public DemodulatorMetrics.Rejection getRejection() {
+            return rejection;
+        }
+
+        void setRejection(DemodulatorMetrics.Rejection rejection, int checksPassed) {
+            this.rejection = rejection;
+            this.checksPassed = checksPassed;
+        }
+
+        void offerRejection(FrameAnalysisInfo candidate) {
+            offerRejection(candidate.rejection, candidate.checksPassed);
+        }
+
+        // Keeps the rejection of the candidate that passed the most checks, the first one on a tie
+        void offerRejection(DemodulatorMetrics.Rejection rejection, int checksPassed) {
+            if (rejection != null && (this.rejection == null || checksPassed > this.checksPassed)) {
+                setRejection(rejection, checksPassed);
+            }
+        }
+    }
+
+    class BitAnalysisInfo {
+        private byte     bit;
+        private double   signalMag;
+        private double   noiseMag;
+
+        public BitAnalysisInfo() {
+            this((byte) 0, 0, 0);
+        }
+
+        public BitAnalysisInfo(byte bit, double signalMag, double noiseMag) {
+            this.bit        = bit;
+            this.signalMag  = signalMag;
+            this.noiseMag   = noiseMag;
+        }
+
+        public void set(byte b, double signalMag, double noiseMag) {
+            this.bit        = b;
+            this.signalMag  = signalMag;
+            this.noiseMag   = noiseMag;
+        }
+
+        public void setBit(byte bit) {
+            this.bit = bit;
+        }
+
+        public int getBit() {
+            return bit;
+        }
+
+        public double getSignalMag() {
+            return signalMag;
+        }
+
+        public void setSignalMag(float signalMag) {
+            this.signalMag = signalMag;
+        }
+
+        public double getNoiseMag() {
+            return noiseMag;
+        }
+
+        public void setNoiseMag(float noiseMag) {
+            this.noiseMag = noiseMag;
+        }
+    }
+
+    public static final String PROPERTY_NAME_FSK_AUTODETECT_MIN_FREQ    = "FSK_AUTODETECT_MIN_FREQ";
+    public static final String PROPERTY_NAME_FSK_AUTODETECT_MAX_FREQ    = "FSK_AUTODETECT_MAX_FREQ";
+    public static final String PROPERTY_NAME_FSK_MIN_MAGNITUDE          = "FSK_MIN_MAGNITUDE";
+    public static final String PROPERTY_NAME_FSK_MIN_BIT_SNR            = "FSK_MIN_BIT_SNR";
+    public static final String PROPERTY_NAME_FSK_AVOID_TRANSIENTS       = "FSK_AVOID_TRANSIENTS";
+    public static final String PROPERTY_NAME_CONFIDENCE_ALGO            = "CONFIDENCE_ALGO";
+
+    private static final Logger log = Logger.getLogger(FSK.class.getName());
+
+    private int bandWidth;
+    private int NBands;
+    private int fftSize;
+    private final FskConfig config;
+
+    private AnalysisMode analysisMode = AnalysisMode.FFT;
+
+    private SearchMode searchMode = SearchMode.SERIAL;
+    private ForkJoinPool searchPool = ForkJoinPool.commonPool();
+    private Kernels kernels = Kernels.getDefault();
+
+    private RealFFT fft;
+    private AnalysisContext context;
+    private ThreadLocal<AnalysisContext> workerContexts = new ThreadLocal<AnalysisContext>() {
+        @Override
+        protected AnalysisContext initialValue() {
+            return new AnalysisContext();
+        }
+    };
+
+    /**
+     * Scratch buffers of one analyzing thread.
+     */
+    private class AnalysisContext {
+        private final double[] fftWork = new double[fft.getLength()];
+        // value, signal and noise magnitudes of the bits of the frame being analyzed
+        private final byte[] bitValue = new byte[Long.SIZE];
+        private final double[] bitSignal = new double[Long.SIZE];
+        private final double[] bitNoise = new double[Long.SIZE];
+        private final ToneSums toneSums = new ToneSums();
+        private final FrameAnalysisInfo candidate = new FrameAnalysisInfo();
+    }
+
+    /**
+     * Running sums of <code>x[n] e^(-2&pi;jfn)</code> over a frame search window, for both tones. The magnitude of
+     * a tone over any bit window inside is the magnitude of the difference of two sums, the same as
+     * {@link #bitAnalyze} computes, so each candidate bit costs O(1) instead of a pass over its samples.
+     */
+    private static class ToneSums {
+        private float[] samples;
+        private int from;
+        private int count;
+        private double[] markRe = new double[1];
+        private double[] markIm = new double[1];
+        private double[] spaceRe = new double[1];
+        private double[] spaceIm = new double[1];
+
+        void compute(float[] samples, int from, int count, Tone mark, Tone space) {
+            if (markRe.length <= count) {
+                int length = Math.max(count + 1, 2 * markRe.length);
+                markRe = new double[length];
+                markIm = new double[length];
+                spaceRe = new double[length];
+                spaceIm = new double[length];
+            }
+
+            double[][] markTables = mark.getTables(count);
+            double[][] spaceTables = space.getTables(count);
+            double[] markCos = markTables[0];
+            double[] markSin = markTables[1];
+            double[] spaceCos = spaceTables[0];
+            double[] spaceSin = spaceTables[1];
+
+            double mr = 0.0d;
+            double mi = 0.0d;
+            double sr = 0.0d;
+            double si = 0.0d;
+            for (int n = 0; n < count; n++) {
+                double x = samples[from + n];
+                mr += x * markCos[n];
+                mi -= x * markSin[n];
+                sr += x * spaceCos[n];
+                si -= x * spaceSin[n];
+                markRe[n + 1] = mr;
+                markIm[n + 1] = mi;
+                spaceRe[n + 1] = sr;
+                spaceIm[n + 1] = si;
+            }
+
+            this.samples = samples;
+            this.from = from;
+            this.count = count;
+        }
+
+        void clear() {
+            samples = null;
+        }
+
+        boolean covers(float[] samples, int from, int count) {
+            return samples == this.samples && from >= this.from && from + count <= this.from + this.count;
+        }
+
+        double markMagnitude(int from, int count) {
+            return magnitude(markRe, markIm, from - this.from, count);
+        }
+
+        double spaceMagnitude(int from, int count) {
+            return magnitude(spaceRe, spaceIm, from - this.from, count);
+        }
+
+        private static double magnitude(double[] re, double[] im, int start, int count) {
+            double dr = re[start + count] - re[start];
+            double di = im[start + count] - im[start];
+            return Math.sqrt(dr * dr + di * di);
+        }
+    }
+
+    public int getBandWidth() {
+        return bandWidth;
+    }
+
+    public int getNBands() {
+        return NBands;
+    }
+
+    /**
+     * Analysis transform size; band <code>i</code> is centered at <code>i * bandWidth</code> Hz,
+     * i.e. the sample rate is <code>fftSize * bandWidth</code>.
+     */
+    public int getFftSize() {
+        return fftSize;
+    }
+
+    /**
+     * Length of the transform actually run: {@link #getFftSize()} rounded up to a power of 2.
+     */
+    public int getFftLength() {
+        return fft.getLength();
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        Validate.notNull(searchMode);
+        this.searchMode = searchMode;
+    }
+
+    public ForkJoinPool getSearchPool() {
+        return searchPool;
+    }
+
+    /**
+     * Pool used by {@link SearchMode#PARALLEL}, the common pool by default.
+     */
+    public void setSearchPool(ForkJoinPool searchPool) {
+        Validate.notNull(searchPool);
+        this.searchPool = searchPool;
+    }
+
+    public Kernels getKernels() {
+        return kernels;
+    }
+
+    /**
+     * Implementation of the sample loops, {@link Kernels#getDefault()} unless set.
+     */
+    public void setKernels(Kernels kernels) {
+        Validate.notNull(kernels);
+        this.kernels = kernels;
+    }
+
+    public FskConfig getConfig() {
+        return config;
+    }
+
+    public AnalysisMode getAnalysisMode() {
+        return analysisMode;
+    }
+
+    public void setAnalysisMode(AnalysisMode analysisMode) {
+        Validate.notNull(analysisMode);
+        this.analysisMode = analysisMode;
+    }
+
+    /**
+     * Uses the settings of the <code>FSK_*</code> / <code>CONFIDENCE_ALGO</code> system properties at construction time.
+     */
+    public FSK(int bandWidth, int NBands) {
+        this(bandWidth, NBands, FskConfig.fromSystemProperties());
+    }
+
+    public FSK(int bandWidth, int NBands, FskConfig config) {
+        Validate.notNull(config);
+        this.config     = config;
+        this.bandWidth  = bandWidth;
+        this.NBands     = NBands;
+        this.fftSize    = (NBands - 1) * 2;
+        this.fft        = RealFFT.forLength(getCeilPow2(fftSize));
+        this.context    = new AnalysisContext();
+    }
+
+    public double findFrame(float[] samples, int tryFirstSample, int tryMaxNSamples, int tryStepNSamples, float confidenceSearchLimit, String expectBitsString, FrameAnalysisInfo bestFrameInfo) {
+        return findFrame(samples, 0, samples.length, tryFirstSample, tryMaxNSamples, tryStepNSamples, confidenceSearchLimit, expectBitsString, bestFrameInfo);
+    }
+
+    /**
+     * Looks for the best frame of <code>frameNSamples</code> samples starting in <code>[0, tryMaxNSamples)</code>
+     * samples after <code>from</code>; the start position reported in <code>bestFrameInfo</code> is relative to <code>from</code>.
+     * <code>samples</code> must hold at least <code>tryMaxNSamples + frameNSamples + 1</code> samples past <code>from</code>.
+     */
+    public double findFrame(float[] samples, int from, int frameNSamples, int tryFirstSample, int tryMaxNSamples, int tryStepNSamples, float confidenceSearchLimit, String expectBitsString, FrameAnalysisInfo bestFrameInfo) {
+        if (getSearchMode() == SearchMode.PARALLEL) {
+            return findFrameParallel(samples, from, frameNSamples, tryFirstSample, tryMaxNSamples, tryStepNSamples, confidenceSearchLimit, expectBitsString, bestFrameInfo);
+        }
+
+        int expect_n_bits = expectBitsString.length();
+        float samples_per_bit = (float) frameNSamples / expect_n_bits;
+
+        // Scan the frame positions starting with the one try_first_sample,
+        // alternating between a step above that, a step below that, above, below,
+        // and so on, until we've scanned the whole try_max_nsamples range.
+        FrameAnalysisInfo currentFrameInfo = context.candidate;
+        ToneSums sums = searchSums(context, samples, from, tryMaxNSamples, expect_n_bits, samples_per_bit);
+        bestFrameInfo.setRejection(null, 0);
+
+        for (int j = 0; ; j++) {
+            int up = (j % 2) != 0 ? 1 : -1;
+            int t = tryFirstSample + up * ((j + 1) / 2) * tryStepNSamples;
+
+            if (t >= tryMaxNSamples) {
+                break;
+            }
+
+            if (t < 0) {
+                continue;
+            }
+
+            currentFrameInfo.setConfidence(0.0f);
+            currentFrameInfo.setAmpl(0.0f);
+            currentFrameInfo.setBits(0L);
+            currentFrameInfo.setStartPos(t);
+
+            //debug_log("try fsk_frame_analyze at t=%d\n", t);
+            frameAnalyze(context, sums, samples, from + t, expect_n_bits, samples_per_bit, expectBitsString, currentFrameInfo);
+            bestFrameInfo.offerRejection(currentFrameInfo);
+
+            if (bestFrameInfo.getConfidence() < currentFrameInfo.getConfidence()) {
+                bestFrameInfo.setStartPos(t);
+                bestFrameInfo.setConfidence(currentFrameInfo.getConfidence());
+                bestFrameInfo.setAmpl(currentFrameInfo.getAmpl());
+                bestFrameInfo.setBits(currentFrameInfo.getBits());
+
+                // If we find a frame with confidence > try_confidence_search_limit
+                // quit searching.
+                if (bestFrameInfo.getConfidence() >= confidenceSearchLimit) {
+                    break;
+                }
+            }
+        }
+        sums.clear();
+
+        return searchResult(bestFrameInfo);
+    }
+
+    // A search that found a frame rejected none
+    private double searchResult(FrameAnalysisInfo bestFrameInfo) {
+        if (bestFrameInfo.getConfidence() > 0.0) {
+            bestFrameInfo.setRejection(null, 0);
+        }
+        return bestFrameInfo.getConfidence();
+    }
+
+    /**
+     * Running sums over every sample the candidates of a search may read.
+     */
+    private ToneSums searchSums(AnalysisContext context, float[] samples, int from, int tryMaxNSamples, int n_bits, float samples_per_bit) {
+        int bit_nsamples = (int) (samples_per_bit + 0.5f);
+        int count = tryMaxNSamples - 1 + (int) (samples_per_bit * (n_bits - 1) + 0.5f) + bit_nsamples;
+        boolean fftMode = getAnalysisMode() == AnalysisMode.FFT;
+
+        ToneSums sums = context.toneSums;
+        sums.compute(samples, from, Math.min(count, samples.length - from),
+                fftMode ? markBinTone : markTone, fftMode ? spaceBinTone : spaceTone);
+        return sums;
+    }
+
+    private double findFrameParallel(float[] samples, int from, int frameNSamples, int tryFirstSample, int tryMaxNSamples, int tryStepNSamples, float confidenceSearchLimit, String expectBitsString, FrameAnalysisInfo bestFrameInfo) {
+        // Same candidate order as the serial scan
+        int[] candidates = new int[2 * (tryMaxNSamples / Math.max(1, tryStepNSamples) + 1) + 2];
+        int nCandidates = 0;
+
+        for (int j = 0; ; j++) {
+            int up = (j % 2) != 0 ? 1 : -1;
+            int t = tryFirstSample + up * ((j + 1) / 2) * tryStepNSamples;
+
+            if (t >= tryMaxNSamples) {
+                break;
+            }
+
+            if (t < 0) {
+                continue;
+            }
+
+            candidates[nCandidates++] = t;
+        }
+
+        // the workers only read the sums
+        ToneSums sums = searchSums(context, samples, from, tryMaxNSamples, expectBitsString.length(), (float) frameNSamples / expectBitsString.length());
+        FrameSearch search = new FrameSearch(samples, from, frameNSamples, expectBitsString, candidates, nCandidates,
+                confidenceSearchLimit, bestFrameInfo.getConfidence(), sums);
+        try {
+            searchPool.invoke(search.new Task(0, nCandidates));
+        } finally {
+            sums.clear();
+        }
+
+        // Replay the serial decision over the analyzed candidates. Candidates skipped by the workers all
+        // come after the first one passing the search limit, where the serial scan stops as well.
+        bestFrameInfo.setRejection(null, 0);
+        for (int i = 0; i < nCandidates; i++) {
+            bestFrameInfo.offerRejection(search.rejection[i], search.checksPassed[i]);
+            if (bestFrameInfo.getConfidence() < search.confidence[i]) {
+                bestFrameInfo.setStartPos(candidates[i]);
+                bestFrameInfo.setConfidence(search.confidence[i]);
+                bestFrameInfo.setAmpl(search.ampl[i]);
+                bestFrameInfo.setBits(search.bits[i]);
+
+                if (bestFrameInfo.getConfidence() >= confidenceSearchLimit) {
+                    break;
+                }
+            }
+        }
+
+        return searchResult(bestFrameInfo);
+    }
+
+    /**
+     * State shared by the fork/join workers of one parallel frame search.
+     */
+    private class FrameSearch {
+        private static final int LEAF_CANDIDATES = 4;
+
+        private final float[] samples;
+        private final int from;
+        private final String expectBitsString;
+        private final int expectNBits;
+        private final float samplesPerBit;
+        private final int[] candidates;
+        private final float confidenceSearchLimit;
+        private final double initialConfidence;
+        private final ToneSums sums;
+
+        private final double[] confidence;
+        private final float[] ampl;
+        private final long[] bits;
+        private final DemodulatorMetrics.Rejection[] rejection;
+        private final int[] checksPassed;
+
+        // Lowest candidate index known to stop the serial scan; workers skip everything past it
+        private final AtomicInteger cutoff = new AtomicInteger(Integer.MAX_VALUE);
+
+        FrameSearch(float[] samples, int from, int frameNSamples, String expectBitsString, int[] candidates, int nCandidates,
+                    float confidenceSearchLimit, double initialConfidence, ToneSums sums) {
+            this.samples                = samples;
+            this.from                   = from;
+            this.expectBitsString       = expectBitsString;
+            this.expectNBits            = expectBitsString.length();
+            this.samplesPerBit          = (float) frameNSamples / expectNBits;
+            this.candidates             = candidates;
+            this.confidenceSearchLimit  = confidenceSearchLimit;
+            this.initialConfidence      = initialConfidence;
+            this.sums                   = sums;
+            this.confidence             = new double[nCandidates];
+            this.ampl                   = new float[nCandidates];
+            this.bits                   = new long[nCandidates];
+            this.rejection              = new DemodulatorMetrics.Rejection[nCandidates];
+            this.checksPassed           = new int[nCandidates];
+        }
+
+        private class Task extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final int from;
+            private final int to;
+
+            Task(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > LEAF_CANDIDATES) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new Task(from, middle), new Task(middle, to));
+                    return;
+                }
+
+                AnalysisContext workerContext = workerContexts.get();
+                FrameAnalysisInfo frameInfo = workerContext.candidate;
+
+                for (int i = from; i < to; i++) {
+                    if (i > cutoff.get()) {
+                        return;
+                    }
+
+                    frameInfo.setConfidence(0.0f);
+                    frameInfo.setAmpl(0.0f);
+                    frameInfo.setBits(0L);
+                    frameInfo.setStartPos(candidates[i]);
+
+                    frameAnalyze(workerContext, sums, samples, FrameSearch.this.from + candidates[i], expectNBits, samplesPerBit, expectBitsString, frameInfo);
+
+                    confidence[i] = frameInfo.getConfidence();
+                    ampl[i] = frameInfo.getAmpl();
+                    bits[i] = frameInfo.getBits();
+                    rejection[i] = frameInfo.getRejection();
+                    checksPassed[i] = frameInfo.checksPassed;
+
+                    if (confidence[i] > initialConfidence && confidence[i] >= confidenceSearchLimit) {
+                        int current;
+                        while (i < (current = cutoff.get()) && !cutoff.compareAndSet(current, i)) {
+                            // retry
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the strongest band above <code>minMagnitudeThreshold</code>, or -1.
+     * <code>samples</code> must hold 1 to {@link #getFftLength()} samples; fewer are zero-padded.
+     */
+    public int detectCarrier(float[] samples, float minMagnitudeThreshold) {
+        return detectCarrier(samples, 0, samples.length, minMagnitudeThreshold);
+    }
+
+    /**
+     * Same as {@link #detectCarrier(float[], float)} over <code>samples[from, from + count)</code>.
+     */
+    public int detectCarrier(float[] samples, int from, int count, float minMagnitudeThreshold) {
+        int fftLength = fft.getLength();
+        Validate.isTrue(count > 0 && count <= fftLength, "carrier detection takes 1 to %d samples: %d", fftLength, count);
+        double[] fftWork = context.fftWork;
+        fft.load(samples, from, count, fftWork, kernels);
+        fft.transform(fftWork);
+
+        //Now looking for band of max magnitude within configured boundaries
+        double magScalar = 1.0d / (count / 2.0d);
+        double maxMag = 0.0;
+        int maxMagBand = -1;
+        int i = 1;	/* start detection at the first non-DC band */
+        int nbands = fftLength / 2 + 1;
+
+        if (config.isFskAutodetectMinFreq()) {
+            i = Math.max(1, bandToBin(getAutodetectFirstBand()));
+        }
+
+        if (config.isFskAutodetectMaxFreq()) {
+            nbands = Math.min(nbands, bandToBin(getAutodetectEndBand()));
+        }
+
+        for (; i < nbands; i++) {
+            double mag = fft.magnitude(fftWork, i) * magScalar;
+
+            if (mag < minMagnitudeThreshold) {
+                continue;
+            }
+
+            if (maxMag < mag) {
+                maxMag = mag;
+                maxMagBand = i;
+            }
+        }
+
+        if (maxMagBand < 0) {
+            return -1;
+        }
+
+        return binToBand(maxMagBand);
+    }
+
+    /**
+     * First band of carrier detection: the one of {@link FskConfig#getFskMinFreq()} if set, else the first non-DC band.
+     */
+    int getAutodetectFirstBand() {
+        if (!config.isFskAutodetectMinFreq()) {
+            return 1;
+        }
+        return Math.max(1, Math.round((config.getFskMinFreq() + getBandWidth() / 2) / getBandWidth()));
+    }
+
+    /**
+     * Band after the last one of carrier detection: the one of {@link FskConfig#getFskMaxFreq()} if set, else {@link #getNBands()}.
+     */
+    int getAutodetectEndBand() {
+        if (!config.isFskAutodetectMaxFreq()) {
+            return getNBands();
+        }
+        return Math.min(getNBands(), Math.round((config.getFskMaxFreq() + getBandWidth() / 2) / getBandWidth()));
+    }
+
+    // The transform is padded to a power of 2, so its bins are only the FSK bands when fftSize is one already
+    private int bandToBin(int band) {
+        return (int) Math.round((double) band * fft.getLength() / getFftSize());
+    }
+
+    private int binToBand(int bin) {
+        return Math.round((float) bin * getFftSize() / fft.getLength());
+    }
+
+    private int getCeilPow2(int value) {
+        int fftLength = value;
+
+        //Aligning to power of 2, as RealFFT requires
+        while (!ArithmeticUtils.isPowerOfTwo(fftLength)) {
+            fftLength++;
+        }
+
+        return fftLength;
+    }
+
+    private Tone getOffsetTone(boolean mark, int steps) {
+        Tone[] tones = offsetTones[mark ? 0 : 1];
+        Tone tone = tones[steps + MAX_OFFSET_STEPS];
+        if (tone == null) {
+            int band = mark ? markBand : spaceBand;
+            tone = new Tone((band + (double) steps / TONE_OFFSET_STEPS) / getFftSize());
+            tones[steps + MAX_OFFSET_STEPS] = tone;
+        }
+        return tone;
+    }
+
+    public float getToneOffset() {
+        return (float) toneOffsetSteps / TONE_OFFSET_STEPS;
+    }
+
+    /**
+     * Shifts the analyzed mark and space frequencies by a fraction of a band, rounded to
+     * <code>1/{@link #TONE_OFFSET_STEPS}</code>, to follow a drifting transmitter. {@link AnalysisMode#GOERTZEL} only:
+     * the FFT measures whole bins.
+     */
+    public void setToneOffset(float bands) {
+        Validate.isTrue(Math.abs(bands) <= MAX_TONE_OFFSET, "tone offset beyond %f bands: %f", MAX_TONE_OFFSET, bands);
+        this.toneOffsetSteps = Math.round(bands * TONE_OFFSET_STEPS);
+        this.markTone = getOffsetTone(true, toneOffsetSteps);
+        this.spaceTone = getOffsetTone(false, toneOffsetSteps);
+    }
+
+    /**
+     * Estimated offset, in bands, of the mark (or space) tone of <code>samples[from, from + count)</code> from the
+     * analyzed frequency, from the magnitudes a quarter band above and below it. Meant for a window of one bit;
+     * roughly linear within a quarter band, saturating beyond.
+     */
+    float toneOffsetError(float[] samples, int from, int count, boolean mark) {
+        double magUp = kernels.toneMagnitude(samples, from, count, getOffsetTone(mark, toneOffsetSteps + DISCRIMINATOR_STEPS));
+        double magDown = kernels.toneMagnitude(samples, from, count, getOffsetTone(mark, toneOffsetSteps - DISCRIMINATOR_STEPS));
+        double sum = magUp + magDown;
+        return sum > 0.0d ? (float) ((magUp - magDown) / sum * DISCRIMINATOR_GAIN) : 0.0f;
+    }
+
+    public void setTonesByBandshift(int mark, int bandShift) {
+        Validate.isTrue(bandShift != 0);
+        Validate.isTrue(mark < getNBands());
+        int space = mark + bandShift;
+        Validate.isTrue(space >= 0);
+        Validate.isTrue(space < getNBands());
+        setMarkBand(mark);
+        setSpaceBand(space);
+    }
+
+    void bitAnalyze(float[] samples, int startFrom, int bitCount, BitAnalysisInfo info) {
+        bitAnalyze(context, null, samples, startFrom, bitCount, 0);
+        info.set(context.bitValue[0], context.bitSignal[0], context.bitNoise[0]);
+    }
+
+    /**
+     * Analyzes one bit into entry <code>bitnum</code> of the bit arrays of <code>context</code>.
+     *
+     * @param sums  running sums of a search window, used when they cover the bit; may be null
+     */
+    private void bitAnalyze(AnalysisContext context, ToneSums sums, float[] samples, int startFrom, int bitCount, int bitnum) {
+        double magScalar = 2.0d / bitCount;
+        double magMark;
+        double magSpace;
+
+        if (sums != null && sums.covers(samples, startFrom, bitCount)) {
+            magMark = sums.markMagnitude(startFrom, bitCount) * magScalar;
+            magSpace = sums.spaceMagnitude(startFrom, bitCount) * magScalar;
+        } else if (getAnalysisMode() == AnalysisMode.GOERTZEL) {
+            magMark = kernels.toneMagnitude(samples, startFrom, bitCount, markTone) * magScalar;
+            magSpace = kernels.toneMagnitude(samples, startFrom, bitCount, spaceTone) * magScalar;
+        } else {
+            double[] fftWork = context.fftWork;
+            fft.load(samples, startFrom, bitCount, fftWork, kernels);
+            fft.transform(fftWork);
+
+            magMark = fft.magnitude(fftWork, bandToBin(getMarkBand())) * magScalar;
+            magSpace = fft.magnitude(fftWork, bandToBin(getSpaceBand())) * magScalar;
+        }
+
+        // mark==1, space==0
+        boolean mark = magMark > magSpace;
+        context.bitValue[bitnum] = (byte) (mark ? 1 : 0);
+        context.bitSignal[bitnum] = mark ? magMark : magSpace;
+        context.bitNoise[bitnum] = mark ? magSpace : magMark;
+    }
+
+    private double frameAnalyze(AnalysisContext context, ToneSums sums, float[] samples, int startPos, int n_bits, float samples_per_bit, String expectBitsString, FrameAnalysisInfo resultFrameInfo) {
+        int bit_nsamples = (int) (samples_per_bit + 0.5f);
+        int checksPassed = 0;
+        resultFrameInfo.setRejection(null, 0);
+
+        /* pass #1 - process and check only the "required" (1/0) expect_bits */
+        for (int bitnum = 0; bitnum < n_bits; ++bitnum) {
+            char expectBit = expectBitsString.charAt(bitnum);
+            if (expectBit == 'd') {
+                continue;
+            }
+
+            int bit_begin_sample = startPos + (int) (samples_per_bit * bitnum + 0.5f);
+            bitAnalyze(context, sums, samples, bit_begin_sample, bit_nsamples, bitnum);
+            if (rejectBit(context, bitnum, expectBit, checksPassed++, resultFrameInfo)) {
+                return 0.0f;
+            }
+        }
+
+         /* pass #2 - process only the dontcare ('d') expect_bits */
+        for (int bitnum = 0; bitnum < n_bits; ++bitnum) {
+            if (expectBitsString.charAt(bitnum) != 'd') {
+                continue;
+            }
+
+            int bit_begin_sample = startPos + (int) (samples_per_bit * bitnum + 0.5f);
+            bitAnalyze(context, sums, samples, bit_begin_sample, bit_nsamples, bitnum);
+            if (rejectBit(context, bitnum, 'd', checksPassed++, resultFrameInfo)) {
+                return 0.0f;
+            }
+        }
+
+        return frameConfidence(context, n_bits, resultFrameInfo);
+    }
+
+    /**
+     * Frame analysis of bits already analyzed elsewhere, e.g. from the shared spectrum of a {@link Channelizer}:
+     * the same checks and confidence as the analysis of samples, which stops at the first failing bit instead.
+     */
+    double frameAnalyze(BitAnalysisInfo[] bits, String expectBitsString, FrameAnalysisInfo resultFrameInfo) {
+        int n_bits = expectBitsString.length();
+        for (int bitnum = 0; bitnum < n_bits; ++bitnum) {
+            context.bitValue[bitnum] = (byte) bits[bitnum].getBit();
+            context.bitSignal[bitnum] = bits[bitnum].getSignalMag();
+            context.bitNoise[bitnum] = bits[bitnum].getNoiseMag();
+        }
+
+        int checksPassed = 0;
+        resultFrameInfo.setRejection(null, 0);
+
+        /* pass #1 - check only the "required" (1/0) expect_bits */
+        for (int bitnum = 0; bitnum < n_bits; ++bitnum) {
+            char expectBit = expectBitsString.charAt(bitnum);
+            if (expectBit != 'd' && rejectBit(context, bitnum, expectBit, checksPassed++, resultFrameInfo)) {
+                return 0.0f;
+            }
+        }
+
+        /* pass #2 - check only the dontcare ('d') expect_bits */
+        for (int bitnum = 0; bitnum < n_bits; ++bitnum) {
+            if (expectBitsString.charAt(bitnum) == 'd' && rejectBit(context, bitnum, 'd', checksPassed++, resultFrameInfo)) {
+                return 0.0f;
+            }
+        }
+
+        return frameConfidence(context, n_bits, resultFrameInfo);
+    }
+
+    /**
+     * Checks analyzed bit <code>bitnum</code> against its expected value, '1', '0' or 'd', and the bit thresholds.
+     *
+     * @param checksPassed  bits of the frame checked before this one
+     * @return whether the frame is rejected; its confidence is then 0 and its rejection set
+     */
+    private boolean rejectBit(AnalysisContext context, int bitnum, char expectBit, int checksPassed, FrameAnalysisInfo resultFrameInfo) {
+        DemodulatorMetrics.Rejection rejection = null;
+        double signalMag = context.bitSignal[bitnum];
+
+        if (expectBit != 'd') {
+            Validate.isTrue(expectBit == '1' || expectBit == '0');
+            if (expectBit - '0' != context.bitValue[bitnum]) {
+                rejection = DemodulatorMetrics.Rejection.BIT_MISMATCH;   /* does not match expected */
+            }
+        }
+
+        if (rejection == null && config.isFskMinBitSnr() && signalMag / context.bitNoise[bitnum] < config.getFskMinBitSnr()) {
+            rejection = DemodulatorMetrics.Rejection.BIT_SNR;
+        }
+
+        // Performance hack: reject frame early if sig mag isn't even half of FSK_MIN_MAGNITUDE
+        if (rejection == null && expectBit != 'd' && config.isFskMinMagnitude() && signalMag < config.getFskMinMagnitude() / 2.0f) {
+            rejection = DemodulatorMetrics.Rejection.MAGNITUDE;
+        }
+
+        if (rejection == null) {
+            return false;
+        }
+        resultFrameInfo.setConfidence(0.0f);
+        resultFrameInfo.setRejection(rejection, checksPassed);
+        return true;
+    }
+
+    private double frameConfidence(AnalysisContext context, int n_bits, FrameAnalysisInfo resultFrameInfo) {
+        int bitnum;
+        double confidence = 0.0f;
+        if (config.isConfidenceAlgo()) {
+            int confidenceAlgo = config.getConfidenceAlgo();
+
+            if (confidenceAlgo == 5 || confidenceAlgo == 6) {
+                double[] bitSignal = context.bitSignal;
+                double[] bitNoise = context.bitNoise;
+                for (bitnum = 0; bitnum < n_bits; ++bitnum) {
+                    // Deal with floating point data type quantization noise...
+                    // If total_bit_noise <= FLT_EPSILON, then assume it to be 0.0,
+                    // so that we end up with snr==inf.
+                    if (bitNoise[bitnum] <= Float.MIN_VALUE) {
+                        bitNoise[bitnum] = 0.0d;
+                    }
+                }
+                float total_bit_sig = kernels.sum(bitSignal, n_bits);
+                float total_bit_noise = kernels.sum(bitNoise, n_bits);
+
+                // Compute the "frame SNR"
+                float snr = total_bit_sig / total_bit_noise;
+
+                // Compute avg bit sig and noise magnitudes
+                float avg_bit_sig = total_bit_sig / n_bits;
+
+                float divergence = 0.0f;
+                if (confidenceAlgo == 6) {
+                    // Compute average "divergence": bit_mag_divergence / other_bits_mag
+                    divergence = kernels.divergence(bitSignal, n_bits, total_bit_sig);
+                    divergence *= 2;
+                    divergence /= n_bits;
+                } // if (confidenceAlgo == 6)
+
+                if (config.isFskMinMagnitude() && avg_bit_sig < config.getFskMinMagnitude()) {
+                    resultFrameInfo.setConfidence(0.0f);
+                    // every bit passed
+                    resultFrameInfo.setRejection(DemodulatorMetrics.Rejection.MAGNITUDE, n_bits);
+                    return 0.0f; // too weak; reject frame
+                }
+
+                if (confidenceAlgo == 6) {
+                    // Frame confidence is the frame ( SNR * consistency )
+                    confidence = snr * (1.0f - divergence);
+                } else {
+                    // Frame confidence is the frame SNR
+                    confidence = snr;
+                } // if (confidenceAlgo == 6)
+
+                resultFrameInfo.setAmpl(avg_bit_sig);
+            }
+        }
+
+        resultFrameInfo.setConfidence(confidence);
+
+        // least significant bit first ... reverse the bits as we place them
+        // into the bits_outp word.
+        long bits_outp = 0L;
+
+        for (bitnum = 0; bitnum < n_bits; bitnum++) {
+            bits_outp |= (long) context.bitValue[bitnum] << bitnum;
+        }
+
+        resultFrameInfo.setBits(bits_outp);
+
+        if (log.isLoggable(Level.FINEST)) {
+            log.finest(String.format(" frame algo=%d confidence=%f ampl=%f", config.getConfidenceAlgo(), resultFrameInfo.getConfidence(), resultFrameInfo.getAmpl()));
+        }
+
+        return confidence;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,815 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.IDatabits;
+import com.vitech.modem.dsp.Decimator;
+import com.vitech.modem.metrics.DemodulatorMetrics;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streaming FSK receiver: reads 16-bit signed little-endian mono PCM from the input stream and writes
+ * the decoded characters to the output stream as soon as each frame is confirmed.
+ *
+ * Samples are kept in a fixed window of a few frames, so memory use does not depend on the input length.
+ * Input at a rate well above the tones is first decimated, see {@link #getDecimation()}: the analysis runs at the
+ * lowest rate that holds them. Sample positions and counts of the public methods are still those of the input.
+ * Frames are <code>[previous stop bit][start bit][data bits][stop bit]</code>, as in minimodem.
+ *
+ * @see <a href="https://github.com/kamalmostafa/minimodem/blob/master/src/minimodem.c">source code</a>
+ */
+public class FSKDemodulator implements ITranscoder, Runnable {
+    private static final Logger log = Logger.getLogger(FSKDemodulator.class.getName());
+
+    public static final float DEFAULT_CONFIDENCE_THRESHOLD      = 2.0f;
+    public static final float DEFAULT_CONFIDENCE_SEARCH_LIMIT   = 2.3f;
+    public static final float DEFAULT_STOP_BITS                 = 1.0f;
+
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    // Share of the timing error (samples) and of the tone offset error (bands) of each locked frame corrected
+    private static final float TIMING_GAIN = 0.5f;
+    private static final float FREQUENCY_GAIN = 0.5f;
+    // Locked frames per tone offset measurement; transmitters drift slowly
+    private static final int FREQUENCY_TRACK_FRAMES = 4;
+
+    public enum CarrierDetection {
+        /** {@link FSK#detectCarrier} of a window every half window */
+        BLOCK,
+        /** {@link CarrierTracker} fed with every sample, queried once per input block */
+        SLIDING
+    }
+
+    /**
+     * Frame synchronization, see {@link #setTracking(boolean)}.
+     */
+    public enum SyncState {
+        /** no carrier: carrier detection, then an exhaustive frame search */
+        ACQUIRING,
+        /** frames found where predicted: only the prediction and one step either side of it are tried */
+        LOCKED,
+        /** carrier, but no lock yet or any more: the whole range after the overscan is searched */
+        LOST
+    }
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private FramePublisher framePublisher;
+
+    private final FSK fsk;
+    private final IDatabits databits;
+    private final DemodulatorMetrics metrics = new DemodulatorMetrics();
+    private final int sampleRate;
+    private final int decimation;
+    private final Decimator decimator;
+    private final Decimator blockDecimator;
+    private final int nDataBits;
+    private final String expectBitsString;
+    private final float samplesPerBit;
+    private final int frameNSamples;
+    private final int tryMaxNSamples;
+    private final int tryStepNSamples;
+    private final int overscanNSamples;
+    private final int lockWindowNSamples;
+
+    private float confidenceThreshold = DEFAULT_CONFIDENCE_THRESHOLD;
+    private float confidenceSearchLimit = DEFAULT_CONFIDENCE_SEARCH_LIMIT;
+    private float nStopBits = DEFAULT_STOP_BITS;
+    private CarrierDetection carrierDetection = CarrierDetection.BLOCK;
+    private long outputFrom = 0L;
+    private long outputTo = Long.MAX_VALUE;
+    private boolean tracking = true;
+
+    // SLIDING carrier detection: the tracker has seen the samples up to trackedPosition
+    private CarrierTracker carrierTracker;
+    private final SquelchGate squelch;
+    private long trackedPosition;
+
+    // Samples pending analysis; windows are analyzed in place
+    private SampleRingBuffer ring;
+    private final int windowNSamples;
+
+    private boolean carrier;
+    private SyncState syncState = SyncState.ACQUIRING;
+    // LOCKED: the frame length drift learned so far, and the fraction of a sample the advances have not consumed
+    private float timingDrift;
+    private float timingResidue;
+    private int lockedFrames;
+    private final FSK.FrameAnalysisInfo frameInfo;
+    private final ByteBuffer frameData = ByteBuffer.allocate(1);
+    private final ByteBuffer decoded = ByteBuffer.allocate(64);
+    private final byte[] pcm;
+    private final float[] pcmSamples;
+    private final float[] decimated;
+    private int pendingSamples;
+
+    private volatile boolean rxStop = false;
+    private volatile long processingNanos;
+
+    /**
+     * @param sampleRate    input sample rate, Hz
+     * @param baudRate      data rate, bits per second; also the analysis band width
+     * @param markFreq      frequency of '1' bits, Hz
+     * @param spaceFreq     frequency of '0' bits, Hz
+     * @param nDataBits     data bits per frame, 1 to 8
+     * @param databits      decoder of the data bits of each frame
+     * @param config        FSK analysis settings
+     */
+    public FSKDemodulator(int sampleRate, float baudRate, float markFreq, float spaceFreq, int nDataBits, IDatabits databits, FskConfig config) {
+        this(sampleRate, baudRate, markFreq, spaceFreq, nDataBits, databits, config, 0);
+    }
+
+    /**
+     * @param decimation    ratio of the input rate to the analysis rate, a divisor of <code>sampleRate</code>;
+     *                      0 picks the largest that keeps the tones, the baud rate above them and the carrier
+     *                      autodetection range, 1 analyzes the input as is
+     */
+    public FSKDemodulator(int sampleRate, float baudRate, float markFreq, float spaceFreq, int nDataBits, IDatabits databits, FskConfig config,
+                          int decimation) {
+        Validate.isTrue(sampleRate > 0 && baudRate > 0, "sample rate and baud rate must be positive");
+        Validate.isTrue(nDataBits > 0 && nDataBits <= 8, "1 to 8 data bits expected: %d", nDataBits);
+        Validate.isTrue(decimation >= 0 && (decimation == 0 || sampleRate % decimation == 0),
+                "decimation %d does not divide the sample rate %d", decimation, sampleRate);
+        Validate.notNull(databits);
+
+        this.sampleRate = sampleRate;
+        this.nDataBits  = nDataBits;
+        this.databits   = databits;
+
+        float maxFreq = Math.max(markFreq, spaceFreq) + baudRate;
+        if (config.isFskAutodetectMaxFreq()) {
+            maxFreq = Math.max(maxFreq, config.getFskMaxFreq());
+        }
+        this.decimation = decimation > 0 ? decimation : Decimator.chooseFactor(sampleRate, maxFreq);
+        if (this.decimation > 1) {
+            this.decimator = new Decimator(this.decimation, maxFreq / sampleRate);
+            this.blockDecimator = new Decimator(this.decimation, maxFreq / sampleRate);
+        } else {
+            this.decimator = null;
+            this.blockDecimator = null;
+        }
+        int analysisRate = sampleRate / this.decimation;
+
+        int bandWidth = Math.max(1, Math.round(baudRate));
+        int fftSize = (analysisRate + bandWidth / 2) / bandWidth;
+        this.fsk = new FSK(bandWidth, fftSize / 2 + 1, config);
+        this.fsk.setAnalysisMode(FSK.AnalysisMode.GOERTZEL);
+
+        int markBand = Math.round(markFreq / bandWidth);
+        int spaceBand = Math.round(spaceFreq / bandWidth);
+        this.fsk.setTonesByBandshift(markBand, spaceBand - markBand);
+
+        StringBuilder expect = new StringBuilder("10");
+        for (int i = 0; i < nDataBits; i++) {
+            expect.append('d');
+        }
+        this.expectBitsString = expect.append('1').toString();
+
+        this.samplesPerBit      = analysisRate / baudRate;
+        this.frameNSamples      = (int) (samplesPerBit * expectBitsString.length() + 0.5f);
+        this.tryMaxNSamples     = Math.max(1, (int) (samplesPerBit + 0.5f));
+        this.tryStepNSamples    = Math.max(1, tryMaxNSamples / 8);
+        this.overscanNSamples   = tryMaxNSamples / 4;
+        this.lockWindowNSamples = tryStepNSamples;
+
+        // a full frame search window, or a carrier detection block
+        this.windowNSamples = Math.max(tryMaxNSamples + frameNSamples + 2, fsk.getFftSize());
+        this.ring = new SampleRingBuffer(2 * windowNSamples);
+        this.pcmSamples = new float[windowNSamples * this.decimation];
+        this.decimated = new float[windowNSamples];
+        this.pcm = new byte[pcmSamples.length * BYTES_PER_SAMPLE];
+        this.frameInfo = fsk.new FrameAnalysisInfo();
+        this.squelch = new SquelchGate(getCarrierThreshold());
+    }
+
+    public FSK getFsk() {
+        return fsk;
+    }
+
+    /**
+     * Counters of this demodulator only; see {@link DemodulatorMetrics#register(String)}.
+     */
+    public DemodulatorMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Ratio of the input rate to the rate the samples are analyzed at, 1 when the input is not decimated.
+     */
+    public int getDecimation() {
+        return decimation;
+    }
+
+    public float getConfidenceThreshold() {
+        return confidenceThreshold;
+    }
+
+    /**
+     * Frames at or below this confidence are rejected and drop the carrier.
+     */
+    public void setConfidenceThreshold(float confidenceThreshold) {
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    public float getConfidenceSearchLimit() {
+        return confidenceSearchLimit;
+    }
+
+    /**
+     * Frame search stops at the first candidate reaching this confidence. Applies once the carrier is
+     * established; the frame that establishes it is always searched exhaustively, as in minimodem.
+     */
+    public void setConfidenceSearchLimit(float confidenceSearchLimit) {
+        this.confidenceSearchLimit = confidenceSearchLimit;
+    }
+
+    public float getStopBits() {
+        return nStopBits;
+    }
+
+    /**
+     * Stop bits sent per frame, e.g. 1.5 for Baudot; only the first is checked, the rest is skipped.
+     */
+    public void setStopBits(float nStopBits) {
+        Validate.isTrue(nStopBits >= 1.0f, "at least one stop bit expected: %f", nStopBits);
+        this.nStopBits = nStopBits;
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * Once frames are found where the previous one predicts, try only the prediction and {@link #getLockWindowNSamples()}
+     * either side of it, and follow the drift of the frame timing and, with {@link FSK.AnalysisMode#GOERTZEL}, of the tones.
+     * A frame below the confidence search limit falls back to the full search. On by default.
+     */
+    public void setTracking(boolean tracking) {
+        this.tracking = tracking;
+        if (!tracking && syncState == SyncState.LOCKED) {
+            setSyncState(SyncState.LOST);
+        }
+    }
+
+    public SyncState getSyncState() {
+        return syncState;
+    }
+
+    /**
+     * Offset from the predicted frame start of the early and late candidates tried while {@link SyncState#LOCKED},
+     * in input samples.
+     */
+    public int getLockWindowNSamples() {
+        return lockWindowNSamples * decimation;
+    }
+
+    public CarrierDetection getCarrierDetection() {
+        return carrierDetection;
+    }
+
+    /**
+     * How the start of a transmission is detected; {@link CarrierDetection#SLIDING} does not re-analyze overlapping
+     * windows, and pays off most when the autodetection range (<code>FSK_AUTODETECT_MIN_FREQ</code>,
+     * <code>FSK_AUTODETECT_MAX_FREQ</code>) is narrow. Only allowed before reception starts.
+     */
+    public void setCarrierDetection(CarrierDetection carrierDetection) {
+        Validate.notNull(carrierDetection);
+        this.carrierDetection = carrierDetection;
+        if (carrierDetection == CarrierDetection.SLIDING && carrierTracker == null) {
+            carrierTracker = new CarrierTracker(fsk);
+        }
+    }
+
+    /**
+     * Level gate in front of {@link CarrierDetection#BLOCK} detection; by default it skips only blocks too weak to
+     * reach <code>FSK_MIN_MAGNITUDE</code>, see {@link SquelchGate#setOpenRatio(float)} for more.
+     */
+    public SquelchGate getSquelch() {
+        return squelch;
+    }
+
+    /**
+     * Tracker of {@link CarrierDetection#SLIDING} detection, or null.
+     */
+    public CarrierTracker getCarrierTracker() {
+        return carrierTracker;
+    }
+
+    /**
+     * Only frames starting at sample <code>[from, to)</code> of the input are written out; the others are still
+     * demodulated, to keep carrier and timing. Lets overlapping pieces of a recording be decoded separately.
+     */
+    public void setOutputRange(long from, long to) {
+        Validate.isTrue(0 <= from && from <= to, "invalid output range [%d, %d)", from, to);
+        this.outputFrom = from;
+        this.outputTo = to;
+    }
+
+    public long getOutputFrom() {
+        return outputFrom;
+    }
+
+    public long getOutputTo() {
+        return outputTo;
+    }
+
+    public FramePublisher getFramePublisher() {
+        return framePublisher;
+    }
+
+    /**
+     * Also publishes every frame written out, with its bits, confidence and position. Either this or the output
+     * stream may be left unset.
+     */
+    public void setFramePublisher(FramePublisher framePublisher) {
+        this.framePublisher = framePublisher;
+    }
+
+    public boolean isCarrier() {
+        return carrier;
+    }
+
+    /**
+     * Input samples of a complete analysis window; the smallest sample buffer capacity that holds one.
+     */
+    public int getWindowNSamples() {
+        return windowNSamples * decimation;
+    }
+
+    /**
+     * Buffer of the samples pending analysis, at the rate of {@link #getDecimation()}.
+     */
+    public SampleRingBuffer getSampleBuffer() {
+        return ring;
+    }
+
+    /**
+     * Replaces the sample buffer, e.g. with a larger one to absorb input bursts. Only allowed before reception starts.
+     */
+    public void setSampleBuffer(SampleRingBuffer ring) {
+        Validate.isTrue(ring.getCapacity() >= windowNSamples, "capacity %d is below the analysis window of %d samples",
+                ring.getCapacity(), windowNSamples);
+        this.ring = ring;
+    }
+
+    /**
+     * Number of the next sample to be analyzed, counted from the start of the input.
+     */
+    public long getSamplePosition() {
+        return ring.readPosition() * decimation;
+    }
+
+    /**
+     * Wall time spent analyzing samples so far, excluding waits for input.
+     */
+    public long getProcessingNanos() {
+        return processingNanos;
+    }
+
+    /**
+     * Stops reception; a thread blocked in {@link #receive()} or {@link #demodulate()} returns.
+     */
+    public void stop() {
+        rxStop = true;
+        ring.close();
+    }
+
+    /**
+     * Reads the input stream and demodulates it in the calling thread, until it ends or {@link #stop()} is called.
+     */
+    @Override
+    public void run() {
+        Validate.validState(inputStream != null, "input stream is not set");
+        Validate.validState(outputStream != null || framePublisher != null, "neither output stream nor frame publisher is set");
+
+        int pending = 0;
+        try {
+            while (!rxStop) {
+                // ask only for what completes the next analysis window, to keep latency low
+                int wanted = Math.min(pcm.length, requiredSamples() * decimation * BYTES_PER_SAMPLE);
+                int n = inputStream.read(pcm, pending, Math.max(wanted - pending, 1));
+                if (n < 0) {
+                    break;
+                }
+
+                pending = convert(pending + n);
+                ring.write(pcmSamples, 0, pendingSamples);
+                process();
+            }
+
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Producer half of a two-thread receiver: reads the input stream into the sample buffer until it ends,
+     * then closes the buffer. Pair with {@link #demodulate()} in another thread.
+     */
+    public void receive() {
+        Validate.validState(inputStream != null, "input stream is not set");
+
+        int pending = 0;
+        try {
+            while (!rxStop) {
+                int n = inputStream.read(pcm, pending, pcm.length - pending);
+                if (n < 0) {
+                    break;
+                }
+
+                pending = convert(pending + n);
+                for (int from = 0; from < pendingSamples; ) {
+                    if (!ring.awaitFree(1)) {
+                        return;
+                    }
+                    from += ring.write(pcmSamples, from, pendingSamples - from);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            ring.close();
+        }
+    }
+
+    /**
+     * Consumer half of a two-thread receiver: demodulates the sample buffer as it fills, until it is closed
+     * and drained or {@link #stop()} is called.
+     */
+    public void demodulate() {
+        Validate.validState(outputStream != null || framePublisher != null, "neither output stream nor frame publisher is set");
+
+        try {
+            while (!rxStop) {
+                // the producer may fill the buffer between the two reads
+                if (!ring.awaitAvailable(Math.min(ring.getCapacity(), ring.available() + requiredSamples()))) {
+                    break;
+                }
+                process();
+            }
+
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Feeds samples directly, bypassing the input stream, and decodes every frame they complete.
+     * Must be called from the demodulating thread.
+     */
+    public void write(float[] samples, int from, int count) throws IOException {
+        if (decimator == null) {
+            analyze(samples, from, count);
+            return;
+        }
+
+        while (count > 0 && !rxStop) {
+            int n = Math.min(count, decimated.length * decimation);
+            analyze(decimated, 0, decimator.process(samples, from, n, decimated, 0));
+            from += n;
+            count -= n;
+        }
+    }
+
+    private void analyze(float[] samples, int from, int count) throws IOException {
+        while (count > 0 && !rxStop) {
+            int n = ring.write(samples, from, count);
+            from += n;
+            count -= n;
+            process();
+        }
+    }
+
+    /**
+     * Signals the end of input: pads it with silence so that a frame ending right at the end is still found,
+     * and flushes the output stream. Must be called from the demodulating thread, once the producer is done.
+     */
+    public void flush() throws IOException {
+        if (decimator != null) {
+            // what is still in the filter
+            write(new float[decimator.getNTaps()], 0, decimator.getNTaps());
+        }
+
+        int padding = tryMaxNSamples + frameNSamples + 2;
+        while (padding > 0 && !rxStop) {
+            padding -= ring.writeSilence(padding);
+            process();
+        }
+
+        if (carrier) {
+            carrier = false;
+            metrics.recordCarrierLost();
+        }
+        setSyncState(SyncState.ACQUIRING);
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * Converts the complete samples of <code>pcm[0, nbytes)</code>, keeping an odd trailing byte for the next read.
+     *
+     * @return number of bytes left in <code>pcm</code>
+     */
+    private int convert(int nbytes) {
+        pendingSamples = nbytes / BYTES_PER_SAMPLE;
+        for (int i = 0; i < pendingSamples; i++) {
+            int lo = pcm[2 * i] & 0xFF;
+            int hi = pcm[2 * i + 1];
+            pcmSamples[i] = ((hi << 8) | lo) / 32768.0f;
+        }
+
+        if (decimator != null) {
+            // in place: each output sample is written behind the input already read
+            pendingSamples = decimator.process(pcmSamples, 0, pendingSamples, pcmSamples, 0);
+        }
+
+        if ((nbytes & 1) != 0) {
+            pcm[0] = pcm[nbytes - 1];
+        }
+        return nbytes & 1;
+    }
+
+    private int requiredSamples() {
+        int required = (carrier ? tryMaxNSamples + frameNSamples + 2 : windowNSamples) - ring.available();
+        return Math.max(1, Math.min(required, ring.free()));
+    }
+
+    private void process() throws IOException {
+        long start = System.nanoTime();
+        long position = ring.readPosition();
+        try {
+            analyze();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            processingNanos += nanos;
+            metrics.recordProcessing((ring.readPosition() - position) * decimation, nanos);
+        }
+    }
+
+    private void analyze() throws IOException {
+        while (!rxStop) {
+            int available = ring.available();
+            float[] buffer = ring.array();
+            int position = ring.readOffset();
+
+            if (!carrier) {
+                // cheap gate: skip blocks where neither of our tones is the dominant one
+                if (carrierDetection == CarrierDetection.SLIDING) {
+                    long start = System.nanoTime();
+                    int band = trackCarrier(buffer, position, available);
+                    metrics.recordCarrierDetection(System.nanoTime() - start);
+                    if (!isOwnCarrier(band)) {
+                        // keep one analysis window, where the transmission starts once it is detected
+                        ring.advance(Math.max(0, available - windowNSamples));
+                        return;
+                    }
+                } else {
+                    int blockNSamples = fsk.getFftSize();
+                    if (available < blockNSamples) {
+                        return;
+                    }
+
+                    long start = System.nanoTime();
+                    boolean passed = squelch.pass(buffer, position, blockNSamples);
+                    metrics.recordSquelch(passed);
+                    int band = passed ? fsk.detectCarrier(buffer, position, blockNSamples, getCarrierThreshold()) : -1;
+                    metrics.recordCarrierDetection(System.nanoTime() - start);
+                    if (!isOwnCarrier(band)) {
+                        if (passed) {
+                            squelch.noCarrier();
+                        }
+                        ring.advance(Math.max(1, blockNSamples / 2));
+                        continue;
+                    }
+                }
+            }
+
+            if (available < tryMaxNSamples + frameNSamples + 2) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            boolean locked = syncState == SyncState.LOCKED;
+            double confidence = locked ? findLockedFrame(buffer, position) : -1.0d;
+            if (confidence < confidenceSearchLimit) {
+                if (locked) {
+                    setSyncState(SyncState.LOST);
+                    locked = false;
+                }
+                confidence = findFrame(buffer, position);
+            }
+            metrics.recordFrameSearch(System.nanoTime() - start);
+
+            if (confidence <= confidenceThreshold) {
+                if (frameInfo.getRejection() != null) {
+                    metrics.recordRejected(frameInfo.getRejection());
+                }
+                if (carrier) {
+                    log.fine("### NOCARRIER");
+                    carrier = false;
+                    metrics.recordCarrierLost();
+                }
+                setSyncState(SyncState.ACQUIRING);
+                ring.advance(tryMaxNSamples);
+                continue;
+            }
+
+            if (!carrier) {
+                log.fine("### CARRIER");
+                carrier = true;
+                metrics.recordCarrierFound();
+            }
+            if (!locked) {
+                setSyncState(tracking && confidence >= confidenceSearchLimit ? SyncState.LOCKED : SyncState.LOST);
+            }
+
+            metrics.recordFrame(confidence, frameInfo.getAmpl());
+            long frameStart = (ring.readPosition() + frameInfo.getStartPos()) * decimation - (decimator != null ? decimator.getDelay() : 0);
+            if (frameStart >= outputFrom && frameStart < outputTo) {
+                emit(frameInfo.getBits(), frameStart);
+            }
+
+            // the last stop bit of this frame is the previous stop bit of the next one
+            float frameAdvance = samplesPerBit * (nDataBits + 1 + nStopBits);
+            if (locked) {
+                track(buffer, position);
+                timingResidue += frameAdvance + timingDrift;
+                int advance = (int) Math.floor(timingResidue);
+                timingResidue -= advance;
+                ring.advance(frameInfo.getStartPos() + advance - overscanNSamples);
+            } else {
+                ring.advance(frameInfo.getStartPos() + (int) (frameAdvance + 0.5f) - overscanNSamples);
+            }
+        }
+    }
+
+    /**
+     * Exhaustive search before the carrier is established, from the overscan on after.
+     */
+    private double findFrame(float[] buffer, int position) {
+        resetFrameInfo();
+        int tryFirstSample = carrier ? overscanNSamples : 0;
+        float searchLimit = carrier ? confidenceSearchLimit : Float.POSITIVE_INFINITY;
+        return fsk.findFrame(buffer, position, frameNSamples, tryFirstSample, tryMaxNSamples,
+                tryStepNSamples, searchLimit, expectBitsString, frameInfo);
+    }
+
+    /**
+     * Early, on time and late candidates around the overscan, where the previous frame predicts this one; all three
+     * are tried, so that the best one tells the timing error.
+     */
+    private double findLockedFrame(float[] buffer, int position) {
+        resetFrameInfo();
+        int from = overscanNSamples - lockWindowNSamples;
+        double confidence = fsk.findFrame(buffer, position + from, frameNSamples, lockWindowNSamples, 2 * lockWindowNSamples + 1,
+                lockWindowNSamples, Float.POSITIVE_INFINITY, expectBitsString, frameInfo);
+        frameInfo.setStartPos(frameInfo.getStartPos() + from);
+        return confidence;
+    }
+
+    private void resetFrameInfo() {
+        frameInfo.setConfidence(0.0f);
+        frameInfo.setAmpl(0.0f);
+        frameInfo.setBits(0L);
+        frameInfo.setStartPos(0);
+    }
+
+    /**
+     * Corrects the frame length and tone offset predictions by a share of the errors of the frame just found.
+     */
+    private void track(float[] buffer, int position) {
+        int timingError = frameInfo.getStartPos() - overscanNSamples;
+        // no more than the margin the full search leaves
+        timingDrift = Math.max(-overscanNSamples, Math.min(overscanNSamples, timingDrift + TIMING_GAIN * timingError));
+
+        if (++lockedFrames % FREQUENCY_TRACK_FRAMES == 0 && fsk.getAnalysisMode() == FSK.AnalysisMode.GOERTZEL) {
+            // the start bit is all space, the stop bit all mark
+            int frameFrom = position + frameInfo.getStartPos();
+            int bitNSamples = (int) (samplesPerBit + 0.5f);
+            int stopBit = expectBitsString.length() - 1;
+            float spaceError = fsk.toneOffsetError(buffer, frameFrom + (int) (samplesPerBit + 0.5f), bitNSamples, false);
+            float markError = fsk.toneOffsetError(buffer, frameFrom + (int) (samplesPerBit * stopBit + 0.5f), bitNSamples, true);
+            float offset = fsk.getToneOffset() + FREQUENCY_GAIN * (spaceError + markError) / 2.0f;
+            fsk.setToneOffset(Math.max(-FSK.MAX_TONE_OFFSET, Math.min(FSK.MAX_TONE_OFFSET, offset)));
+        }
+    }
+
+    private void setSyncState(SyncState state) {
+        if (state == syncState) {
+            return;
+        }
+        if (state == SyncState.LOCKED) {
+            log.fine("### LOCKED");
+            metrics.recordLockFound();
+            timingResidue = 0.0f;
+            lockedFrames = 0;
+        } else if (syncState == SyncState.LOCKED && state == SyncState.LOST) {
+            log.fine("### UNLOCKED");
+            metrics.recordLockLost();
+        }
+        if (state == SyncState.ACQUIRING) {
+            timingDrift = 0.0f;
+            fsk.setToneOffset(0.0f);
+        }
+        syncState = state;
+    }
+
+    /**
+     * Feeds the samples of <code>buffer[position, position + available)</code> the tracker has not seen yet.
+     */
+    private int trackCarrier(float[] buffer, int position, int available) {
+        long readPosition = ring.readPosition();
+        int seen = (int) Math.max(0L, trackedPosition - readPosition);
+        if (seen < available) {
+            carrierTracker.update(buffer, position + seen, available - seen);
+            trackedPosition = readPosition + available;
+        }
+        return carrierTracker.getCarrierBand(getCarrierThreshold());
+    }
+
+    private float getCarrierThreshold() {
+        FskConfig config = fsk.getConfig();
+        return config.isFskMinMagnitude() ? config.getFskMinMagnitude() : 0.0f;
+    }
+
+    /**
+     * Whether one of our tones is the dominant one of <code>samples[from, from + count)</code>, as for carrier detection.
+     */
+    boolean hasCarrier(float[] samples, int from, int count) {
+        if (blockDecimator != null) {
+            // only the output of a full filter, past its start from silence
+            float[] block = new float[blockDecimator.getMaxOutput(count)];
+            blockDecimator.reset();
+            int n = blockDecimator.process(samples, from, count, block, 0);
+            int settled = Math.min(n, blockDecimator.getMaxOutput(blockDecimator.getNTaps() - 1));
+            return n > settled && isOwnCarrier(fsk.detectCarrier(block, settled, n - settled, getCarrierThreshold()));
+        }
+        return count > 0 && isOwnCarrier(fsk.detectCarrier(samples, from, count, getCarrierThreshold()));
+    }
+
+    /**
+     * Input samples making up a carrier detection block for {@link #hasCarrier}, filter start included.
+     */
+    int getCarrierBlockNSamples() {
+        return fsk.getFftSize() * decimation + (blockDecimator != null ? blockDecimator.getNTaps() - 1 : 0);
+    }
+
+    private boolean isOwnCarrier(int band) {
+        return band >= 0 && (Math.abs(band - fsk.getMarkBand()) <= 1 || Math.abs(band - fsk.getSpaceBand()) <= 1);
+    }
+
+    private void emit(long frameBits, long frameStart) throws IOException {
+        long dataBits = (frameBits >>> 2) & ((1L << nDataBits) - 1);
+        frameData.clear();
+        frameData.put(0, (byte) dataBits);
+        decoded.clear();
+
+        databits.decode(frameData, decoded);
+        if (decoded.position() > 0 && outputStream != null) {
+            outputStream.write(decoded.array(), 0, decoded.position());
+            outputStream.flush();
+        }
+        if (framePublisher != null && framePublisher.hasSubscribers()) {
+            framePublisher.submit(new DecodedFrame(frameBits, Arrays.copyOf(decoded.array(), decoded.position()),
+                    (float) frameInfo.getConfidence(), frameInfo.getAmpl(), frameStart));
+        }
+
+        if (log.isLoggable(Level.FINEST)) {
+            log.finest(String.format("frame bits=0x%x confidence=%f ampl=%f", frameBits, frameInfo.getConfidence(), frameInfo.getAmpl()));
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    @Override
+    public void setInputStream(InputStream stream) {
+        this.inputStream = stream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream stream) {
+        this.outputStream = stream;
+    }
+}
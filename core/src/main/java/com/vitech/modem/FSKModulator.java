@@ -0,0 +1,240 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.DatabitsResult;
+import com.vitech.modem.databits.IDatabits;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Phase-continuous FSK transmitter.
+ *
+ * Characters are turned into data words by an {@link IDatabits} encoder and framed as
+ * <code>[start bit][data bits, lsb first][stop bits]</code>. Tones come from a shared sine table
+ * indexed by a 32-bit fixed-point phase accumulator, and bit boundaries are kept by a 32.32
+ * fixed-point sample clock, so no <code>Math.sin</code> or floating point timing runs per sample.
+ *
+ * @see <a href="https://github.com/kamalmostafa/minimodem/blob/master/src/minimodem.c">source code</a>
+ */
+public class FSKModulator implements ITranscoder, Runnable {
+    private static final int SINE_TABLE_BITS = 14;
+    private static final int SINE_TABLE_SHIFT = 32 - SINE_TABLE_BITS;
+    private static final float[] SINE_TABLE = new float[1 << SINE_TABLE_BITS];
+
+    static {
+        for (int i = 0; i < SINE_TABLE.length; i++) {
+            SINE_TABLE[i] = (float) Math.sin(2.0 * Math.PI * i / SINE_TABLE.length);
+        }
+    }
+
+    public static final float DEFAULT_AMPLITUDE = 1.0f;
+    public static final float DEFAULT_LEADER_BITS = 2.0f;
+
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int MAX_WORDS_PER_CHAR = 2;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+
+    private final IDatabits databits;
+    private final int sampleRate;
+    private final int nDataBits;
+    private final float nStopBits;
+
+    private final int markIncrement;
+    private final int spaceIncrement;
+    // samples per bit, 32.32 fixed point
+    private final long bitLength;
+
+    private float amplitude = DEFAULT_AMPLITUDE;
+    private float leaderBits = DEFAULT_LEADER_BITS;
+
+    private int phase;
+    private long clock;
+
+    private final ByteBuffer words = ByteBuffer.allocate(256 * MAX_WORDS_PER_CHAR);
+
+    /**
+     * @param sampleRate    output sample rate, Hz
+     * @param baudRate      data rate, bits per second
+     * @param markFreq      frequency of '1' bits, Hz
+     * @param spaceFreq     frequency of '0' bits, Hz
+     * @param nDataBits     data bits per frame, 1 to 8
+     * @param nStopBits     stop bits per frame, e.g. 1.5 for Baudot
+     * @param databits      encoder of the characters into data words
+     */
+    public FSKModulator(int sampleRate, float baudRate, float markFreq, float spaceFreq, int nDataBits, float nStopBits, IDatabits databits) {
+        Validate.isTrue(sampleRate > 0 && baudRate > 0, "sample rate and baud rate must be positive");
+        Validate.isTrue(nDataBits > 0 && nDataBits <= 8, "1 to 8 data bits expected: %d", nDataBits);
+        Validate.isTrue(nStopBits >= 0.0f);
+        Validate.isTrue(markFreq < sampleRate / 2.0f && spaceFreq < sampleRate / 2.0f, "tones must be below the Nyquist frequency");
+        Validate.notNull(databits);
+
+        this.sampleRate     = sampleRate;
+        this.nDataBits      = nDataBits;
+        this.nStopBits      = nStopBits;
+        this.databits       = databits;
+        this.markIncrement  = phaseIncrement(markFreq, sampleRate);
+        this.spaceIncrement = phaseIncrement(spaceFreq, sampleRate);
+        this.bitLength      = Math.round((double) sampleRate / baudRate * (1L << 32));
+    }
+
+    private static int phaseIncrement(float freq, int sampleRate) {
+        return (int) Math.round((double) freq / sampleRate * (1L << 32));
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public float getAmplitude() {
+        return amplitude;
+    }
+
+    public void setAmplitude(float amplitude) {
+        Validate.isTrue(amplitude >= 0.0f && amplitude <= 1.0f, "amplitude must be within [0, 1]: %f", amplitude);
+        this.amplitude = amplitude;
+    }
+
+    public float getLeaderBits() {
+        return leaderBits;
+    }
+
+    /**
+     * Idle mark sent by {@link #run()} before and after the data, in bit periods.
+     */
+    public void setLeaderBits(float leaderBits) {
+        Validate.isTrue(leaderBits >= 0.0f);
+        this.leaderBits = leaderBits;
+    }
+
+    /**
+     * Upper bound of the samples {@link #modulate} produces for <code>nChars</code> characters.
+     */
+    public int getMaxSamples(int nChars) {
+        double frameBits = 1 + nDataBits + nStopBits;
+        return (int) Math.ceil(nChars * MAX_WORDS_PER_CHAR * frameBits * bitLength / (double) (1L << 32)) + nChars * MAX_WORDS_PER_CHAR * 3;
+    }
+
+    /**
+     * Modulates <code>data[from, from + length)</code> into <code>out</code> starting at <code>outOffset</code>.
+     * Phase and bit timing carry over to the next call.
+     *
+     * @return number of samples written
+     */
+    public int modulate(byte[] data, int from, int length, float[] out, int outOffset) {
+        int n = outOffset;
+        ByteBuffer chars = ByteBuffer.wrap(data, from, length);
+
+        DatabitsResult result;
+        do {
+            words.clear();
+            result = databits.encode(chars, words);
+            Validate.validState(result == DatabitsResult.UNDERFLOW || words.position() > 0, "no progress encoding %s", chars);
+
+            for (int w = 0; w < words.position(); w++) {
+                int word = words.get(w);
+
+                n = tone(false, 1.0f, out, n);
+                for (int bit = 0; bit < nDataBits; bit++) {
+                    n = tone((word >> bit & 1) != 0, 1.0f, out, n);
+                }
+                n = tone(true, nStopBits, out, n);
+            }
+        } while (result == DatabitsResult.OVERFLOW);
+
+        return n - outOffset;
+    }
+
+    /**
+     * Writes <code>nBits</code> bit periods of idle mark tone.
+     *
+     * @return number of samples written
+     */
+    public int idle(float nBits, float[] out, int outOffset) {
+        return tone(true, nBits, out, outOffset) - outOffset;
+    }
+
+    private int tone(boolean mark, float nBits, float[] out, int n) {
+        long end = clock + (long) (bitLength * (double) nBits);
+        int count = (int) ((end >> 32) - (clock >> 32));
+        clock = end;
+
+        int increment = mark ? markIncrement : spaceIncrement;
+        int p = phase;
+        float a = amplitude;
+
+        for (int i = 0; i < count; i++) {
+            out[n++] = a * SINE_TABLE[p >>> SINE_TABLE_SHIFT];
+            p += increment;
+        }
+
+        phase = p;
+        return n;
+    }
+
+    /**
+     * Reads characters from the input stream until it ends and writes 16-bit signed little-endian mono PCM,
+     * surrounded by {@link #getLeaderBits()} of idle mark.
+     */
+    @Override
+    public void run() {
+        Validate.validState(inputStream != null, "input stream is not set");
+        Validate.validState(outputStream != null, "output stream is not set");
+
+        byte[] chars = new byte[256];
+        float[] samples = new float[Math.max(getMaxSamples(chars.length), getMaxSamples(0) + idleSamples())];
+        byte[] pcm = new byte[samples.length * BYTES_PER_SAMPLE];
+
+        try {
+            writePcm(samples, idle(leaderBits, samples, 0), pcm);
+
+            int n;
+            while ((n = inputStream.read(chars)) >= 0) {
+                writePcm(samples, modulate(chars, 0, n, samples, 0), pcm);
+            }
+
+            writePcm(samples, idle(leaderBits, samples, 0), pcm);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int idleSamples() {
+        return (int) Math.ceil(leaderBits * bitLength / (double) (1L << 32)) + 1;
+    }
+
+    private void writePcm(float[] samples, int count, byte[] pcm) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int value = Math.round(samples[i] * Short.MAX_VALUE);
+            pcm[2 * i] = (byte) value;
+            pcm[2 * i + 1] = (byte) (value >> 8);
+        }
+        outputStream.write(pcm, 0, count * BYTES_PER_SAMPLE);
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    @Override
+    public void setInputStream(InputStream stream) {
+        this.inputStream = stream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream stream) {
+        this.outputStream = stream;
+    }
+}
@@ -0,0 +1,285 @@
+package com.vitech.modem;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Flow.Publisher} of decoded frames, for consumers that may fall behind the demodulator.
+ *
+ * {@link #submit} never blocks: every subscriber has its own queue, drained on the executor as far as it has
+ * requested frames. A queue holding {@link #getCapacity()} frames is full, and its {@link OverflowPolicy} decides
+ * which frame is lost, so that a slow subscriber costs frames (or memory), never audio.
+ *
+ * Frames are published until {@link #close()}; a demodulator does not close its publisher, so one may outlive
+ * several inputs.
+ */
+public class FramePublisher implements Flow.Publisher<DecodedFrame>, AutoCloseable {
+    private static final Logger log = Logger.getLogger(FramePublisher.class.getName());
+
+    public static final int DEFAULT_CAPACITY = Flow.defaultBufferSize();
+
+    public enum OverflowPolicy {
+        /** keep every frame: the queue grows past its capacity */
+        BUFFER,
+        /** drop the oldest queued frame to make room */
+        DROP_OLDEST,
+        /** drop the frame being submitted */
+        DROP_NEWEST
+    }
+
+    private final Executor executor;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final CopyOnWriteArrayList<FrameSubscription> subscriptions = new CopyOnWriteArrayList<FrameSubscription>();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+    private volatile Throwable closeError;
+
+    /**
+     * Delivers on the common pool, dropping the oldest frames of subscribers more than {@link #DEFAULT_CAPACITY}
+     * frames behind.
+     */
+    public FramePublisher() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * @param executor          runs the subscriber callbacks, at most one at a time per subscriber
+     * @param capacity          frames queued per subscriber before the overflow policy applies
+     * @param overflowPolicy    what a full queue does with the next frame
+     */
+    public FramePublisher(Executor executor, int capacity, OverflowPolicy overflowPolicy) {
+        Validate.notNull(executor);
+        Validate.notNull(overflowPolicy);
+        Validate.isTrue(capacity > 0, "capacity must be positive: %d", capacity);
+        this.executor = executor;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Frames lost to full queues so far, counted once per subscriber.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    public int getNumberOfSubscribers() {
+        return subscriptions.size();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super DecodedFrame> subscriber) {
+        Objects.requireNonNull(subscriber);
+        FrameSubscription subscription = new FrameSubscription(subscriber);
+        subscriptions.add(subscription);
+        if (closed) {
+            // closed before, or meanwhile: the subscriber only sees its subscription end
+            subscriptions.remove(subscription);
+            subscription.complete(closeError, false);
+        }
+        subscription.signal();
+    }
+
+    /**
+     * Queues <code>frame</code> for every current subscriber.
+     */
+    public void submit(DecodedFrame frame) {
+        Validate.notNull(frame);
+        Validate.validState(!closed, "publisher is closed");
+        for (FrameSubscription subscription : subscriptions) {
+            subscription.offer(frame);
+        }
+    }
+
+    /**
+     * Completes every subscriber once it has received the frames queued for it.
+     */
+    @Override
+    public void close() {
+        closeExceptionally(null);
+    }
+
+    /**
+     * Ends every subscriber with <code>error</code> once it has received the frames queued for it; null completes them.
+     */
+    public void closeExceptionally(Throwable error) {
+        if (closed) {
+            return;
+        }
+        closeError = error;
+        closed = true;
+        for (FrameSubscription subscription : subscriptions) {
+            subscriptions.remove(subscription);
+            subscription.complete(error, false);
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Queue and demand of one subscriber. All its callbacks run in {@link #run()}, which the executor never runs
+     * twice at once: each signal bumps a counter, and only the signal finding it at 0 schedules a run.
+     */
+    private class FrameSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super DecodedFrame> subscriber;
+        private final AtomicInteger signals = new AtomicInteger();
+        private final AtomicLong demand = new AtomicLong();
+
+        // guarded by this
+        private final ArrayDeque<DecodedFrame> queue = new ArrayDeque<DecodedFrame>();
+        private boolean completed;
+        private Throwable error;
+
+        private volatile boolean cancelled;
+        // touched by run() only
+        private boolean subscribed;
+
+        FrameSubscription(Flow.Subscriber<? super DecodedFrame> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(DecodedFrame frame) {
+            synchronized (this) {
+                if (completed || cancelled) {
+                    return;
+                }
+                if (queue.size() >= capacity) {
+                    if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                        dropped.increment();
+                        return;
+                    } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                        queue.pollFirst();
+                        dropped.increment();
+                    }
+                }
+                queue.addLast(frame);
+            }
+            signal();
+        }
+
+        /**
+         * Ends the subscription after the queued frames, or right away if <code>discard</code>.
+         */
+        synchronized void complete(Throwable error, boolean discard) {
+            if (discard) {
+                queue.clear();
+                this.error = error;
+            } else if (!completed) {
+                this.error = error;
+            }
+            this.completed = true;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                complete(new IllegalArgumentException("non-positive request: " + n), true);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (this) {
+                queue.clear();
+            }
+        }
+
+        void signal() {
+            if (signals.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    log.log(Level.WARNING, "frame delivery rejected, cancelling the subscription", e);
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int pending = signals.get();
+            while (true) {
+                try {
+                    deliver();
+                } catch (RuntimeException e) {
+                    // a failing subscriber loses its subscription, not the publisher
+                    log.log(Level.WARNING, "subscriber failed, cancelling its subscription", e);
+                    cancel();
+                }
+                pending = signals.addAndGet(-pending);
+                if (pending == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void deliver() {
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+
+            while (!cancelled) {
+                DecodedFrame frame = null;
+                boolean end = false;
+                Throwable endError;
+                synchronized (this) {
+                    endError = error;
+                    if (queue.isEmpty()) {
+                        end = completed;
+                    } else if (demand.get() > 0) {
+                        frame = queue.pollFirst();
+                    }
+                }
+
+                if (frame != null) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(frame);
+                } else {
+                    if (end) {
+                        cancel();
+                        if (endError != null) {
+                            subscriber.onError(endError);
+                        } else {
+                            subscriber.onComplete();
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
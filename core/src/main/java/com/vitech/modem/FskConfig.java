@@ -0,0 +1,274 @@
+package com.vitech.modem;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Properties;
+
+/**
+ * Immutable FSK analysis settings, parsed once and handed to {@link FSK}.
+ *
+ * Every threshold is optional, as with the corresponding <code>FSK_*</code> system properties:
+ * an unset threshold disables its check. The confidence algorithm defaults to minimodem's algorithm 6.
+ */
+public final class FskConfig {
+    public static final int DEFAULT_CONFIDENCE_ALGO = 6;
+
+    private final boolean fskAutodetectMinFreq;
+    private final float fskMinFreq;
+    private final boolean fskAutodetectMaxFreq;
+    private final float fskMaxFreq;
+    private final boolean fskMinMagnitude;
+    private final float fskMinMagnitudeValue;
+    private final boolean fskMinBitSnr;
+    private final float fskMinBitSnrValue;
+    private final boolean fskAvoidTransients;
+    private final float fskAvoidTransientsValue;
+    private final boolean confidenceAlgo;
+    private final int confidenceAlgoValue;
+
+    private FskConfig(Builder builder) {
+        this.fskAutodetectMinFreq       = builder.fskAutodetectMinFreq;
+        this.fskMinFreq                 = builder.fskMinFreq;
+        this.fskAutodetectMaxFreq       = builder.fskAutodetectMaxFreq;
+        this.fskMaxFreq                 = builder.fskMaxFreq;
+        this.fskMinMagnitude            = builder.fskMinMagnitude;
+        this.fskMinMagnitudeValue       = builder.fskMinMagnitudeValue;
+        this.fskMinBitSnr               = builder.fskMinBitSnr;
+        this.fskMinBitSnrValue          = builder.fskMinBitSnrValue;
+        this.fskAvoidTransients         = builder.fskAvoidTransients;
+        this.fskAvoidTransientsValue    = builder.fskAvoidTransientsValue;
+        this.confidenceAlgo             = builder.confidenceAlgo;
+        this.confidenceAlgoValue        = builder.confidenceAlgoValue;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Defaults overridden by whichever <code>FSK_*</code> / <code>CONFIDENCE_ALGO</code> system properties are set.
+     */
+    public static FskConfig fromSystemProperties() {
+        return builder().importProperties(System.getProperties()).build();
+    }
+
+    public static FskConfig fromProperties(Properties properties) {
+        return builder().importProperties(properties).build();
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.fskAutodetectMinFreq    = fskAutodetectMinFreq;
+        builder.fskMinFreq              = fskMinFreq;
+        builder.fskAutodetectMaxFreq    = fskAutodetectMaxFreq;
+        builder.fskMaxFreq              = fskMaxFreq;
+        builder.fskMinMagnitude         = fskMinMagnitude;
+        builder.fskMinMagnitudeValue    = fskMinMagnitudeValue;
+        builder.fskMinBitSnr            = fskMinBitSnr;
+        builder.fskMinBitSnrValue       = fskMinBitSnrValue;
+        builder.fskAvoidTransients      = fskAvoidTransients;
+        builder.fskAvoidTransientsValue = fskAvoidTransientsValue;
+        builder.confidenceAlgo          = confidenceAlgo;
+        builder.confidenceAlgoValue     = confidenceAlgoValue;
+        return builder;
+    }
+
+    public boolean isFskAutodetectMinFreq() {
+        return fskAutodetectMinFreq;
+    }
+
+    public float getFskMinFreq() {
+        return fskMinFreq;
+    }
+
+    public boolean isFskAutodetectMaxFreq() {
+        return fskAutodetectMaxFreq;
+    }
+
+    public float getFskMaxFreq() {
+        return fskMaxFreq;
+    }
+
+    public boolean isFskMinMagnitude() {
+        return fskMinMagnitude;
+    }
+
+    public float getFskMinMagnitude() {
+        return fskMinMagnitudeValue;
+    }
+
+    public boolean isFskMinBitSnr() {
+        return fskMinBitSnr;
+    }
+
+    public float getFskMinBitSnr() {
+        return fskMinBitSnrValue;
+    }
+
+    public boolean isFskAvoidTransients() {
+        return fskAvoidTransients;
+    }
+
+    public float getFskAvoidTransients() {
+        return fskAvoidTransientsValue;
+    }
+
+    public boolean isConfidenceAlgo() {
+        return confidenceAlgo;
+    }
+
+    public int getConfidenceAlgo() {
+        return confidenceAlgoValue;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("FskConfig{");
+        append(sb, FSK.PROPERTY_NAME_FSK_AUTODETECT_MIN_FREQ, fskAutodetectMinFreq, fskMinFreq);
+        append(sb, FSK.PROPERTY_NAME_FSK_AUTODETECT_MAX_FREQ, fskAutodetectMaxFreq, fskMaxFreq);
+        append(sb, FSK.PROPERTY_NAME_FSK_MIN_MAGNITUDE, fskMinMagnitude, fskMinMagnitudeValue);
+        append(sb, FSK.PROPERTY_NAME_FSK_MIN_BIT_SNR, fskMinBitSnr, fskMinBitSnrValue);
+        append(sb, FSK.PROPERTY_NAME_FSK_AVOID_TRANSIENTS, fskAvoidTransients, fskAvoidTransientsValue);
+        append(sb, FSK.PROPERTY_NAME_CONFIDENCE_ALGO, confidenceAlgo, confidenceAlgoValue);
+        return sb.append('}').toString();
+    }
+
+    private static void append(StringBuilder sb, String name, boolean enabled, Object value) {
+        if (sb.charAt(sb.length() - 1) != '{') {
+            sb.append(", ");
+        }
+        sb.append(name).append('=').append(enabled ? value : "off");
+    }
+
+    public static final class Builder {
+        private boolean fskAutodetectMinFreq;
+        private float fskMinFreq;
+        private boolean fskAutodetectMaxFreq;
+        private float fskMaxFreq;
+        private boolean fskMinMagnitude;
+        private float fskMinMagnitudeValue;
+        private boolean fskMinBitSnr;
+        private float fskMinBitSnrValue;
+        private boolean fskAvoidTransients;
+        private float fskAvoidTransientsValue;
+        private boolean confidenceAlgo = true;
+        private int confidenceAlgoValue = DEFAULT_CONFIDENCE_ALGO;
+
+        private Builder() {
+        }
+
+        public Builder setFskMinFreq(float minFreq) {
+            this.fskAutodetectMinFreq = true;
+            this.fskMinFreq = minFreq;
+            return this;
+        }
+
+        public Builder setFskMaxFreq(float maxFreq) {
+            this.fskAutodetectMaxFreq = true;
+            this.fskMaxFreq = maxFreq;
+            return this;
+        }
+
+        public Builder setFskMinMagnitude(float minMagnitude) {
+            this.fskMinMagnitude = true;
+            this.fskMinMagnitudeValue = minMagnitude;
+            return this;
+        }
+
+        public Builder setFskMinBitSnr(float minBitSnr) {
+            this.fskMinBitSnr = true;
+            this.fskMinBitSnrValue = minBitSnr;
+            return this;
+        }
+
+        public Builder setFskAvoidTransients(float avoidTransients) {
+            this.fskAvoidTransients = true;
+            this.fskAvoidTransientsValue = avoidTransients;
+            return this;
+        }
+
+        public Builder setConfidenceAlgo(int confidenceAlgo) {
+            this.confidenceAlgo = true;
+            this.confidenceAlgoValue = confidenceAlgo;
+            return this;
+        }
+
+        public Builder clearFskMinFreq() {
+            this.fskAutodetectMinFreq = false;
+            return this;
+        }
+
+        public Builder clearFskMaxFreq() {
+            this.fskAutodetectMaxFreq = false;
+            return this;
+        }
+
+        public Builder clearFskMinMagnitude() {
+            this.fskMinMagnitude = false;
+            return this;
+        }
+
+        public Builder clearFskMinBitSnr() {
+            this.fskMinBitSnr = false;
+            return this;
+        }
+
+        public Builder clearFskAvoidTransients() {
+            this.fskAvoidTransients = false;
+            return this;
+        }
+
+        public Builder clearConfidenceAlgo() {
+            this.confidenceAlgo = false;
+            return this;
+        }
+
+        /**
+         * Applies every FSK property present (non-empty) in <code>properties</code>; absent ones keep their current value.
+         */
+        public Builder importProperties(Properties properties) {
+            Validate.notNull(properties);
+
+            String value = properties.getProperty(FSK.PROPERTY_NAME_FSK_AUTODETECT_MIN_FREQ);
+            if (StringUtils.isNotEmpty(value)) {
+                setFskMinFreq(Float.valueOf(value));
+            }
+
+            value = properties.getProperty(FSK.PROPERTY_NAME_FSK_AUTODETECT_MAX_FREQ);
+            if (StringUtils.isNotEmpty(value)) {
+                setFskMaxFreq(Float.valueOf(value));
+            }
+
+            value = properties.getProperty(FSK.PROPERTY_NAME_FSK_MIN_MAGNITUDE);
+            if (StringUtils.isNotEmpty(value)) {
+                setFskMinMagnitude(Float.valueOf(value));
+            }
+
+            value = properties.getProperty(FSK.PROPERTY_NAME_FSK_MIN_BIT_SNR);
+            if (StringUtils.isNotEmpty(value)) {
+                setFskMinBitSnr(Float.valueOf(value));
+            }
+
+            value = properties.getProperty(FSK.PROPERTY_NAME_FSK_AVOID_TRANSIENTS);
+            if (StringUtils.isNotEmpty(value)) {
+                setFskAvoidTransients(Float.valueOf(value));
+            }
+
+            value = properties.getProperty(FSK.PROPERTY_NAME_CONFIDENCE_ALGO);
+            if (StringUtils.isNotEmpty(value)) {
+                setConfidenceAlgo(Integer.valueOf(value));
+            }
+
+            return this;
+        }
+
+        public Builder importSystemProperties() {
+            return importProperties(System.getProperties());
+        }
+
+        public FskConfig build() {
+            return new FskConfig(this);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.vitech.modem;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Created by vic on 10/1/14.
+ *
+ * @see <a href="https://github.com/kamalmostafa/minimodem/blob/master/src/minimodem.c">source code</a>
+ */
+public class Minimodem {
+    private static final Logger log = Logger.getLogger(Minimodem.class.getName());
+
+    private FSKModulator modulator;
+    private FSKDemodulator demodulator;
+    private int bufferCapacity;
+
+    public FSKModulator getModulator() {
+        return modulator;
+    }
+
+    public void setModulator(FSKModulator modulator) {
+        this.modulator = modulator;
+    }
+
+    public FSKDemodulator getDemodulator() {
+        return demodulator;
+    }
+
+    public void setDemodulator(FSKDemodulator demodulator) {
+        this.demodulator = demodulator;
+    }
+
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    /**
+     * Capacity, in samples, of the buffer between the input reader and the demodulator; at least one
+     * frame search window ({@link FSKDemodulator#getWindowNSamples()}). 0 keeps the demodulator's default.
+     */
+    public void setBufferCapacity(int bufferCapacity) {
+        Validate.isTrue(bufferCapacity >= 0);
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    /**
+     * Receives everything readable from the demodulator's input stream: one thread reads and converts the
+     * audio into the sample buffer while the calling thread demodulates it.
+     *
+     * @throws UncheckedIOException if reading the input failed; what was read before is still demodulated
+     */
+    public void demodulate() {
+        Validate.validState(demodulator != null, "demodulator is not set");
+
+        if (bufferCapacity > 0) {
+            demodulator.setSampleBuffer(new SampleRingBuffer(bufferCapacity));
+        }
+
+        // receive() closes the buffer on failure too, so a read error would otherwise look like the end of input
+        AtomicReference<RuntimeException> readerFailure = new AtomicReference<>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    demodulator.receive();
+                } catch (RuntimeException e) {
+                    readerFailure.set(e);
+                }
+            }
+        }, "minimodem-rx");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            demodulator.demodulate();
+        } finally {
+            demodulator.stop();
+        }
+
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            log.warning("interrupted while waiting for the input reader");
+            Thread.currentThread().interrupt();
+        }
+
+        RuntimeException failure = readerFailure.get();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public void stop() {
+        if (demodulator != null) {
+            demodulator.stop();
+        }
+    }
+
+    /**
+     * Transmits everything readable from the modulator's input stream.
+     */
+    public void modulate() {
+        Validate.validState(modulator != null, "modulator is not set");
+        modulator.run();
+    }
+}
@@ -0,0 +1,178 @@
+package com.vitech.modem;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-capacity ring of samples for one producer thread and one consumer thread, without locks.
+ *
+ * The ring is mirrored: sample <code>k</code> is stored at both <code>k % capacity</code> and
+ * <code>k % capacity + capacity</code> of {@link #array()}. Any window of up to <code>capacity</code>
+ * unread samples is therefore contiguous, starting at {@link #readOffset()}, and can be handed to
+ * {@link FSK} as is: nothing is ever compacted or copied out.
+ *
+ * The producer publishes samples by advancing the write count, the consumer releases them by
+ * advancing the read count; each count is written by one side only.
+ */
+public final class SampleRingBuffer {
+    private static final long MAX_PARK_NANOS = 1000000L;
+
+    private final float[] samples;
+    private final int capacity;
+
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong readCount = new AtomicLong();
+    private volatile boolean closed;
+
+    public SampleRingBuffer(int capacity) {
+        Validate.isTrue(capacity > 0, "capacity must be positive: %d", capacity);
+        this.capacity = capacity;
+        this.samples = new float[2 * capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // ---- producer side
+
+    /**
+     * Number of samples that can be written without overwriting unread ones.
+     */
+    public int free() {
+        return capacity - (int) (writeCount.get() - readCount.get());
+    }
+
+    /**
+     * Appends as many of <code>src[from, from + count)</code> as fit.
+     *
+     * @return number of samples written
+     */
+    public int write(float[] src, int from, int count) {
+        long write = writeCount.get();
+        int n = Math.min(count, capacity - (int) (write - readCount.get()));
+
+        int offset = (int) (write % capacity);
+        int head = Math.min(n, capacity - offset);
+
+        System.arraycopy(src, from, samples, offset, head);
+        System.arraycopy(src, from, samples, offset + capacity, head);
+        System.arraycopy(src, from + head, samples, 0, n - head);
+        System.arraycopy(src, from + head, samples, capacity, n - head);
+
+        writeCount.lazySet(write + n);
+        return n;
+    }
+
+    /**
+     * Appends <code>count</code> zero samples, as many as fit.
+     *
+     * @return number of samples written
+     */
+    public int writeSilence(int count) {
+        long write = writeCount.get();
+        int n = Math.min(count, capacity - (int) (write - readCount.get()));
+
+        for (int i = 0; i < n; i++) {
+            int offset = (int) ((write + i) % capacity);
+            samples[offset] = 0.0f;
+            samples[offset + capacity] = 0.0f;
+        }
+
+        writeCount.lazySet(write + n);
+        return n;
+    }
+
+    /**
+     * Waits until at least <code>count</code> samples can be written.
+     *
+     * @return false if the buffer was closed or the thread interrupted
+     */
+    public boolean awaitFree(int count) {
+        Validate.isTrue(count <= capacity, "%d samples do not fit capacity %d", count, capacity);
+        return await(count, false);
+    }
+
+    /**
+     * Marks the end of the stream: the consumer drains what is left, a producer waiting for space gives up.
+     * Either side may close.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    // ---- consumer side
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Number of samples written and not yet released by the consumer.
+     */
+    public int available() {
+        return (int) (writeCount.get() - readCount.get());
+    }
+
+    /**
+     * Waits until at least <code>count</code> samples are available.
+     *
+     * @return false if the stream was closed (or the thread interrupted) before that
+     */
+    public boolean awaitAvailable(int count) {
+        Validate.isTrue(count <= capacity, "%d samples do not fit capacity %d", count, capacity);
+        return await(count, true);
+    }
+
+    /**
+     * Backing array; unread samples are <code>array()[readOffset(), readOffset() + available())</code>.
+     */
+    public float[] array() {
+        return samples;
+    }
+
+    public int readOffset() {
+        return (int) (readCount.get() % capacity);
+    }
+
+    /**
+     * Number of samples released so far, i.e. the stream position of the sample at {@link #readOffset()}.
+     */
+    public long readPosition() {
+        return readCount.get();
+    }
+
+    /**
+     * Releases the <code>count</code> oldest samples to the producer.
+     */
+    public void advance(int count) {
+        if (count < 0 || count > available()) {
+            throw new IllegalArgumentException("cannot advance by " + count + " of " + available());
+        }
+        readCount.lazySet(readCount.get() + count);
+    }
+
+    private boolean await(int count, boolean consumer) {
+        long parkNanos = 1000L;
+        int spins = 0;
+
+        while (true) {
+            int ready = consumer ? available() : free();
+            if (ready >= count) {
+                return true;
+            }
+            if (closed && (!consumer || available() < count) || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            if (spins++ < 100) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.vitech.modem;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Cheap pre-analysis of carrier detection blocks: their RMS and peak level decide whether the spectrum is worth
+ * computing at all.
+ *
+ * A block always passes unless it is provably silent: no band of {@link FSK#detectCarrier} can exceed twice the
+ * block RMS, so a block below half the carrier threshold cannot hold a carrier. That test never loses a transmission.
+ *
+ * Optionally, {@link #setOpenRatio(float)} also gates blocks that are not well above the noise floor, the average
+ * level of the blocks found carrier-less. The gate opens at <code>openRatio</code> times the floor and closes below
+ * <code>closeRatio</code> times the floor, only after {@link #getHoldBlocks()} blocks in a row, so that the fading
+ * edges of a burst are not clipped. The floor is wideband: a weak narrowband signal barely raises it and may
+ * be gated, which is why this is off by default.
+ *
+ * Not thread safe: one gate per sample stream.
+ */
+public class SquelchGate {
+    public static final float DEFAULT_CLOSE_RATIO = 2.0f;
+    public static final int DEFAULT_HOLD_BLOCKS = 8;
+
+    // Weight of each carrier-less block in the noise floor
+    private static final float NOISE_FLOOR_ALPHA = 1.0f / 16.0f;
+
+    private final float minRms;
+
+    private float openRatio = 0.0f;
+    private float closeRatio = DEFAULT_CLOSE_RATIO;
+    private int holdBlocks = DEFAULT_HOLD_BLOCKS;
+
+    private float noiseFloor = -1.0f;
+    private boolean open;
+    private int holdCountdown;
+
+    private float rms;
+    private float peak;
+    private long gatedCount;
+    private long passedCount;
+
+    /**
+     * @param carrierThreshold  smallest magnitude {@link FSK#detectCarrier} accepts; 0 gates only digital silence
+     */
+    public SquelchGate(float carrierThreshold) {
+        Validate.isTrue(carrierThreshold >= 0.0f, "carrier threshold must not be negative: %f", carrierThreshold);
+        this.minRms = carrierThreshold / 2.0f;
+    }
+
+    public float getOpenRatio() {
+        return openRatio;
+    }
+
+    /**
+     * Level over the noise floor that opens the gate, e.g. 4 for 12 dB; 0 disables gating on the noise floor.
+     * Otherwise at least {@link #getCloseRatio()}.
+     */
+    public void setOpenRatio(float openRatio) {
+        Validate.isTrue(openRatio == 0.0f || openRatio >= 1.0f, "open ratio must be 0 or at least 1: %f", openRatio);
+        Validate.isTrue(openRatio == 0.0f || closeRatio <= openRatio,
+                "open ratio must be at least the close ratio %f: %f", closeRatio, openRatio);
+        this.openRatio = openRatio;
+    }
+
+    public float getCloseRatio() {
+        return closeRatio;
+    }
+
+    /**
+     * Level over the noise floor below which an open gate starts closing; at most a non-zero {@link #getOpenRatio()}.
+     */
+    public void setCloseRatio(float closeRatio) {
+        Validate.isTrue(closeRatio >= 1.0f, "close ratio must be at least 1: %f", closeRatio);
+        Validate.isTrue(openRatio == 0.0f || closeRatio <= openRatio,
+                "close ratio must be at most the open ratio %f: %f", openRatio, closeRatio);
+        this.closeRatio = closeRatio;
+    }
+
+    public int getHoldBlocks() {
+        return holdBlocks;
+    }
+
+    /**
+     * Blocks below the close level an open gate still passes.
+     */
+    public void setHoldBlocks(int holdBlocks) {
+        Validate.isTrue(holdBlocks >= 0, "hold must not be negative: %d", holdBlocks);
+        this.holdBlocks = holdBlocks;
+    }
+
+    /**
+     * RMS level of the carrier-less blocks, or -1 before the first one.
+     */
+    public float getNoiseFloor() {
+        return noiseFloor;
+    }
+
+    /**
+     * RMS level of the last block.
+     */
+    public float getRms() {
+        return rms;
+    }
+
+    /**
+     * Peak level of the last block.
+     */
+    public float getPeak() {
+        return peak;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public long getGatedCount() {
+        return gatedCount;
+    }
+
+    public long getPassedCount() {
+        return passedCount;
+    }
+
+    /**
+     * Measures <code>samples[from, from + count)</code>.
+     *
+     * @return whether the block may hold a carrier and needs spectral analysis
+     */
+    public boolean pass(float[] samples, int from, int count) {
+        double sumSquares = 0.0d;
+        float max = 0.0f;
+        for (int i = from; i < from + count; i++) {
+            float sample = samples[i];
+            sumSquares += sample * sample;
+            max = Math.max(max, Math.abs(sample));
+        }
+        rms = count > 0 ? (float) Math.sqrt(sumSquares / count) : 0.0f;
+        peak = max;
+
+        boolean passed;
+        if (rms < minRms || peak == 0.0f) {
+            passed = false;
+        } else if (openRatio == 0.0f || noiseFloor < 0.0f) {
+            passed = true;
+        } else if (rms >= openRatio * noiseFloor) {
+            open = true;
+            holdCountdown = holdBlocks;
+            passed = true;
+        } else if (open && rms >= closeRatio * noiseFloor) {
+            holdCountdown = holdBlocks;
+            passed = true;
+        } else if (open && holdCountdown > 0) {
+            holdCountdown--;
+            passed = true;
+        } else {
+            open = false;
+            passed = false;
+        }
+
+        if (passed) {
+            passedCount++;
+        } else {
+            // a gated block is noise by definition
+            open = false;
+            updateNoiseFloor();
+            gatedCount++;
+        }
+        return passed;
+    }
+
+    /**
+     * Reports that the last block passed, but spectral analysis found no carrier in it: its level is noise.
+     */
+    public void noCarrier() {
+        updateNoiseFloor();
+    }
+
+    private void updateNoiseFloor() {
+        noiseFloor = noiseFloor < 0.0f ? rms : noiseFloor + NOISE_FLOOR_ALPHA * (rms - noiseFloor);
+    }
+}
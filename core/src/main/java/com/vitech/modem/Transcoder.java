@@ -0,0 +1,42 @@
+package com.vitech.modem;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Created by vic on 10/3/14.
+ *
+ * One step of a byte stream transformation, as run by {@link com.vitech.modem.pipeline.Pipeline}: each
+ * {@link #run()} reads from the input buffer, flipped for reading, and appends to the output buffer. It must make
+ * progress, consuming input or producing output; input it leaves unread is offered again once the output has been
+ * passed on.
+ */
+public abstract class Transcoder implements Runnable {
+    private ByteBuffer  inputBuffer;
+    private ByteBuffer  outputBuffer;
+
+    public ByteBuffer getInputBuffer() {
+        return inputBuffer;
+    }
+
+    public void setInputBuffer(ByteBuffer inputBuffer) {
+        this.inputBuffer = inputBuffer;
+    }
+
+    public ByteBuffer getOutputBuffer() {
+        return outputBuffer;
+    }
+
+    public void setOutputBuffer(ByteBuffer outputBuffer) {
+        this.outputBuffer = outputBuffer;
+    }
+
+    /**
+     * Called instead of {@link #run()} once the input has ended, until it returns true: appends what the step still
+     * holds to the output buffer.
+     *
+     * @return whether everything has been written out
+     */
+    public boolean finish() {
+        return true;
+    }
+}
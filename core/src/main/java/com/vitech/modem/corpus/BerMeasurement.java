@@ -0,0 +1,232 @@
+package com.vitech.modem.corpus;
+
+import com.vitech.modem.FSKDemodulator;
+import com.vitech.modem.FskConfig;
+import org.apache.commons.lang3.Validate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Decode quality and cost of one {@link SyntheticSignal}: its bit error rate, and the CPU time the demodulator
+ * spent per second of audio.
+ *
+ * The decoded text is aligned with the sent text at the least bit cost: a wrong character costs the bits in which
+ * it differs (within the data bits; only an estimate for Baudot, whose characters are not their codes), a lost or
+ * an extra one costs all its data bits. CPU time is that of the calling thread, which runs the demodulator:
+ * a parallel frame search on other threads is not counted.
+ */
+public final class BerMeasurement {
+    private final SyntheticSignal signal;
+    private final int charsSent;
+    private final int charsReceived;
+    private final long bitsSent;
+    private final long bitErrors;
+    private final int charsWrong;
+    private final int charsLost;
+    private final int charsExtra;
+    private final double audioSeconds;
+    private final long cpuNanos;
+
+    private BerMeasurement(SyntheticSignal signal, int charsSent, int charsReceived, Alignment alignment, double audioSeconds, long cpuNanos) {
+        this.signal = signal;
+        this.charsSent = charsSent;
+        this.charsReceived = charsReceived;
+        this.bitsSent = (long) charsSent * signal.getNDataBits();
+        this.bitErrors = alignment.bitErrors;
+        this.charsWrong = alignment.wrong;
+        this.charsLost = alignment.lost;
+        this.charsExtra = alignment.extra;
+        this.audioSeconds = audioSeconds;
+        this.cpuNanos = cpuNanos;
+    }
+
+    /**
+     * Sends {@link SyntheticSignal#text(int) nChars random characters} to a demodulator for the nominal settings.
+     */
+    public static BerMeasurement measure(SyntheticSignal signal, int nChars, FskConfig config) {
+        return measure(signal, signal.text(nChars), signal.newDemodulator(config));
+    }
+
+    /**
+     * Sends <code>text</code> to <code>demodulator</code>, as float samples: the PCM conversion is left out.
+     * The demodulator's output stream is replaced.
+     */
+    public static BerMeasurement measure(SyntheticSignal signal, byte[] text, FSKDemodulator demodulator) {
+        Validate.isTrue(demodulator.getSampleRate() == signal.getSampleRate(),
+                "demodulator expects %d Hz, the signal is %d Hz", demodulator.getSampleRate(), signal.getSampleRate());
+        float[] samples = signal.modulate(text);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setOutputStream(out);
+
+        long start = cpuTime();
+        try {
+            demodulator.write(samples, 0, samples.length);
+            demodulator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long cpuNanos = cpuTime() - start;
+
+        byte[] received = out.toByteArray();
+        return new BerMeasurement(signal, text.length, received.length, align(text, received, signal.getNDataBits()),
+                (double) samples.length / signal.getSampleRate(), cpuNanos);
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    public SyntheticSignal getSignal() {
+        return signal;
+    }
+
+    public int getCharsSent() {
+        return charsSent;
+    }
+
+    public int getCharsReceived() {
+        return charsReceived;
+    }
+
+    public long getBitsSent() {
+        return bitsSent;
+    }
+
+    public long getBitErrors() {
+        return bitErrors;
+    }
+
+    public double getBitErrorRate() {
+        return bitsSent > 0 ? (double) bitErrors / bitsSent : 0.0;
+    }
+
+    public int getCharsWrong() {
+        return charsWrong;
+    }
+
+    /**
+     * Characters sent but not received, e.g. frames missed by the search or rejected.
+     */
+    public int getCharsLost() {
+        return charsLost;
+    }
+
+    /**
+     * Characters received but not sent, e.g. frames found in noise.
+     */
+    public int getCharsExtra() {
+        return charsExtra;
+    }
+
+    public double getAudioSeconds() {
+        return audioSeconds;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Demodulator CPU time per second of audio, in milliseconds: 1000 is real time on one core.
+     */
+    public double getCpuMillisPerAudioSecond() {
+        return audioSeconds > 0.0 ? cpuNanos / 1e6 / audioSeconds : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: BER %.2e (%d/%d bits), %d wrong, %d lost, %d extra, %.2f ms CPU per audio s", signal,
+                getBitErrorRate(), bitErrors, bitsSent, charsWrong, charsLost, charsExtra, getCpuMillisPerAudioSecond());
+    }
+
+    /**
+     * Least cost edit of <code>sent</code> into <code>received</code>, see the class comment.
+     */
+    static Alignment align(byte[] sent, byte[] received, int nDataBits) {
+        int mask = (1 << nDataBits) - 1;
+        int m = received.length;
+
+        // one row per sent character: cost, and the edits that make it, of aligning with received[0, j)
+        long[] cost = new long[m + 1];
+        int[] wrong = new int[m + 1];
+        int[] lost = new int[m + 1];
+        int[] extra = new int[m + 1];
+        long[] nextCost = new long[m + 1];
+        int[] nextWrong = new int[m + 1];
+        int[] nextLost = new int[m + 1];
+        int[] nextExtra = new int[m + 1];
+
+        for (int j = 1; j <= m; j++) {
+            cost[j] = (long) j * nDataBits;
+            extra[j] = j;
+        }
+
+        for (byte s : sent) {
+            nextCost[0] = cost[0] + nDataBits;
+            nextWrong[0] = wrong[0];
+            nextLost[0] = lost[0] + 1;
+            nextExtra[0] = extra[0];
+
+            for (int j = 1; j <= m; j++) {
+                int differing = Math.min(nDataBits, Integer.bitCount((s ^ received[j - 1]) & mask));
+                if (s != received[j - 1] && differing == 0) {
+                    // differs beyond the data bits only, e.g. Baudot case
+                    differing = 1;
+                }
+                long substitute = cost[j - 1] + differing;
+                long lose = cost[j] + nDataBits;
+                long insert = nextCost[j - 1] + nDataBits;
+
+                if (substitute <= lose && substitute <= insert) {
+                    nextCost[j] = substitute;
+                    nextWrong[j] = wrong[j - 1] + (differing > 0 ? 1 : 0);
+                    nextLost[j] = lost[j - 1];
+                    nextExtra[j] = extra[j - 1];
+                } else if (lose <= insert) {
+                    nextCost[j] = lose;
+                    nextWrong[j] = wrong[j];
+                    nextLost[j] = lost[j] + 1;
+                    nextExtra[j] = extra[j];
+                } else {
+                    nextCost[j] = insert;
+                    nextWrong[j] = nextWrong[j - 1];
+                    nextLost[j] = nextLost[j - 1];
+                    nextExtra[j] = nextExtra[j - 1] + 1;
+                }
+            }
+
+            long[] swapCost = cost;
+            cost = nextCost;
+            nextCost = swapCost;
+            int[] swap = wrong;
+            wrong = nextWrong;
+            nextWrong = swap;
+            swap = lost;
+            lost = nextLost;
+            nextLost = swap;
+            swap = extra;
+            extra = nextExtra;
+            nextExtra = swap;
+        }
+        return new Alignment(cost[m], wrong[m], lost[m], extra[m]);
+    }
+
+    static final class Alignment {
+        final long bitErrors;
+        final int wrong;
+        final int lost;
+        final int extra;
+
+        Alignment(long bitErrors, int wrong, int lost, int extra) {
+            this.bitErrors = bitErrors;
+            this.wrong = wrong;
+            this.lost = lost;
+            this.extra = extra;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.vitech.modem.corpus;
+
+import com.vitech.modem.FSKDemodulator;
+import com.vitech.modem.FSKModulator;
+import com.vitech.modem.FskConfig;
+import com.vitech.modem.databits.ASCII;
+import com.vitech.modem.databits.Baudot;
+import com.vitech.modem.databits.IDatabits;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Random;
+
+/**
+ * Immutable description of a test transmission: an FSK signal as a receiver would get it, with white noise,
+ * both tones off by the same frequency offset and the transmitter's bit clock off by a drift.
+ *
+ * Everything random comes from {@link #getSeed()}: the same settings always give the same samples and text.
+ * {@link #newDemodulator(FskConfig)} gives a demodulator set to the nominal, not the impaired, settings.
+ */
+public final class SyntheticSignal {
+    private static final String ASCII_ALPHABET;
+    private static final String BAUDOT_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789";
+
+    static {
+        StringBuilder printable = new StringBuilder("\n");
+        for (char c = ' '; c <= '~'; c++) {
+            printable.append(c);
+        }
+        ASCII_ALPHABET = printable.toString();
+    }
+
+    private final int sampleRate;
+    private final float baudRate;
+    private final float markFreq;
+    private final float spaceFreq;
+    private final int nDataBits;
+    private final float nStopBits;
+    private final float amplitude;
+    private final float snrDb;
+    private final float frequencyOffset;
+    private final float timingDriftPpm;
+    private final float leaderBits;
+    private final long seed;
+
+    private SyntheticSignal(Builder builder) {
+        this.sampleRate         = builder.sampleRate;
+        this.baudRate           = builder.baudRate;
+        this.markFreq           = builder.markFreq;
+        this.spaceFreq          = builder.spaceFreq;
+        this.nDataBits          = builder.nDataBits;
+        this.nStopBits          = builder.nStopBits;
+        this.amplitude          = builder.amplitude;
+        this.snrDb              = builder.snrDb;
+        this.frequencyOffset    = builder.frequencyOffset;
+        this.timingDriftPpm     = builder.timingDriftPpm;
+        this.leaderBits         = builder.leaderBits;
+        this.seed               = builder.seed;
+    }
+
+    /**
+     * 300 baud 8N1 ASCII on 1200/2100 Hz at 48 kHz, half scale, without noise, offset or drift.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.sampleRate      = sampleRate;
+        builder.baudRate        = baudRate;
+        builder.markFreq        = markFreq;
+        builder.spaceFreq       = spaceFreq;
+        builder.nDataBits       = nDataBits;
+        builder.nStopBits       = nStopBits;
+        builder.amplitude       = amplitude;
+        builder.snrDb           = snrDb;
+        builder.frequencyOffset = frequencyOffset;
+        builder.timingDriftPpm  = timingDriftPpm;
+        builder.leaderBits      = leaderBits;
+        builder.seed            = seed;
+        return builder;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public float getBaudRate() {
+        return baudRate;
+    }
+
+    public float getMarkFreq() {
+        return markFreq;
+    }
+
+    public float getSpaceFreq() {
+        return spaceFreq;
+    }
+
+    public int getNDataBits() {
+        return nDataBits;
+    }
+
+    public float getNStopBits() {
+        return nStopBits;
+    }
+
+    public float getAmplitude() {
+        return amplitude;
+    }
+
+    /**
+     * Signal to noise ratio in a bandwidth of the baud rate: the energy per bit over the noise density (Eb/N0), so
+     * that the same value is as hard at any baud and sample rate. Infinite without noise.
+     */
+    public float getSnrDb() {
+        return snrDb;
+    }
+
+    public float getFrequencyOffset() {
+        return frequencyOffset;
+    }
+
+    public float getTimingDriftPpm() {
+        return timingDriftPpm;
+    }
+
+    public float getLeaderBits() {
+        return leaderBits;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Baudot for 5 data bits, ASCII otherwise.
+     */
+    public IDatabits newDatabits() {
+        return nDataBits == 5 ? new Baudot() : new ASCII();
+    }
+
+    /**
+     * A demodulator for the nominal settings; it has to cope with the noise, offset and drift itself.
+     */
+    public FSKDemodulator newDemodulator(FskConfig config) {
+        FSKDemodulator demodulator = new FSKDemodulator(sampleRate, baudRate, markFreq, spaceFreq, nDataBits, newDatabits(), config);
+        demodulator.setStopBits(nStopBits);
+        return demodulator;
+    }
+
+    /**
+     * <code>nChars</code> random characters the codec can send: printable ASCII and newlines, or for Baudot
+     * letters, digits and spaces.
+     */
+    public byte[] text(int nChars) {
+        String alphabet = nDataBits == 5 ? BAUDOT_ALPHABET : ASCII_ALPHABET;
+        Random random = new Random(seed);
+        byte[] text = new byte[nChars];
+        for (int i = 0; i < nChars; i++) {
+            text[i] = (byte) alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return text;
+    }
+
+    /**
+     * Modulates <code>text</code> between {@link #getLeaderBits()} of idle mark on each side, then adds the noise.
+     *
+     * @return samples, not clipped: at low baud rates the noise for a given SNR may well exceed full scale
+     */
+    public float[] modulate(byte[] text) {
+        float drift = 1.0f + timingDriftPpm * 1e-6f;
+        FSKModulator modulator = new FSKModulator(sampleRate, baudRate * drift, markFreq + frequencyOffset, spaceFreq + frequencyOffset,
+                nDataBits, nStopBits, newDatabits());
+        modulator.setAmplitude(amplitude);
+
+        int leaderNSamples = (int) Math.ceil(leaderBits * sampleRate / (baudRate * drift)) + 1;
+        float[] buffer = new float[modulator.getMaxSamples(text.length) + 2 * leaderNSamples];
+        int n = modulator.idle(leaderBits, buffer, 0);
+        n += modulator.modulate(text, 0, text.length, buffer, n);
+        n += modulator.idle(leaderBits, buffer, n);
+
+        float[] samples = new float[n];
+        if (Float.isInfinite(snrDb)) {
+            System.arraycopy(buffer, 0, samples, 0, n);
+            return samples;
+        }
+
+        // a sine of amplitude a has a power of a^2 / 2; white noise spreads its variance up to half the sample rate
+        double noiseDensity = amplitude * amplitude / 2.0 / baudRate / Math.pow(10.0, snrDb / 10.0);
+        double sigma = Math.sqrt(noiseDensity * sampleRate / 2.0);
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        for (int i = 0; i < n; i++) {
+            samples[i] = (float) (buffer[i] + sigma * random.nextGaussian());
+        }
+        return samples;
+    }
+
+    /**
+     * <code>samples</code> as 16-bit signed little-endian PCM, clipped to full scale.
+     */
+    public static byte[] toPcm(float[] samples) {
+        byte[] pcm = new byte[2 * samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            int value = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(samples[i] * Short.MAX_VALUE)));
+            pcm[2 * i] = (byte) value;
+            pcm[2 * i + 1] = (byte) (value >> 8);
+        }
+        return pcm;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.2f baud %.0f/%.0f Hz %d%s, %s dB SNR, %+.1f Hz, %+.0f ppm", baudRate, markFreq, spaceFreq, nDataBits,
+                nStopBits == 1.0f ? "N1" : "N" + nStopBits, Float.isInfinite(snrDb) ? "inf" : String.format("%.1f", snrDb),
+                frequencyOffset, timingDriftPpm);
+    }
+
+    public static final class Builder {
+        private int sampleRate = 48000;
+        private float baudRate = 300.0f;
+        private float markFreq = 1200.0f;
+        private float spaceFreq = 2100.0f;
+        private int nDataBits = 8;
+        private float nStopBits = 1.0f;
+        private float amplitude = 0.5f;
+        private float snrDb = Float.POSITIVE_INFINITY;
+        private float frequencyOffset;
+        private float timingDriftPpm;
+        private float leaderBits = 2.0f;
+        private long seed = 1L;
+
+        private Builder() {
+        }
+
+        public Builder setSampleRate(int sampleRate) {
+            Validate.isTrue(sampleRate > 0, "sample rate must be positive: %d", sampleRate);
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        public Builder setBaudRate(float baudRate) {
+            Validate.isTrue(baudRate > 0.0f, "baud rate must be positive: %f", baudRate);
+            this.baudRate = baudRate;
+            return this;
+        }
+
+        public Builder setTones(float markFreq, float spaceFreq) {
+            Validate.isTrue(markFreq > 0.0f && spaceFreq > 0.0f && markFreq != spaceFreq, "invalid tone pair %f/%f", markFreq, spaceFreq);
+            this.markFreq = markFreq;
+            this.spaceFreq = spaceFreq;
+            return this;
+        }
+
+        /**
+         * Frame format; 5 data bits are sent as Baudot, others as ASCII.
+         */
+        public Builder setFraming(int nDataBits, float nStopBits) {
+            Validate.isTrue(nDataBits > 0 && nDataBits <= 8, "1 to 8 data bits expected: %d", nDataBits);
+            Validate.isTrue(nStopBits >= 1.0f, "at least one stop bit expected: %f", nStopBits);
+            this.nDataBits = nDataBits;
+            this.nStopBits = nStopBits;
+            return this;
+        }
+
+        public Builder setAmplitude(float amplitude) {
+            Validate.isTrue(amplitude > 0.0f && amplitude <= 1.0f, "amplitude must be within (0, 1]: %f", amplitude);
+            this.amplitude = amplitude;
+            return this;
+        }
+
+        /**
+         * See {@link SyntheticSignal#getSnrDb()}; {@link Float#POSITIVE_INFINITY} adds no noise.
+         */
+        public Builder setSnrDb(float snrDb) {
+            Validate.isTrue(!Float.isNaN(snrDb), "SNR must be a number");
+            this.snrDb = snrDb;
+            return this;
+        }
+
+        /**
+         * Shift of both tones, Hz, as from a mistuned receiver.
+         */
+        public Builder setFrequencyOffset(float frequencyOffset) {
+            this.frequencyOffset = frequencyOffset;
+            return this;
+        }
+
+        /**
+         * Error of the transmitter's bit clock, in parts per million: positive sends faster than the baud rate.
+         */
+        public Builder setTimingDriftPpm(float timingDriftPpm) {
+            Validate.isTrue(timingDriftPpm > -1e6f, "drift must be above -1e6 ppm: %f", timingDriftPpm);
+            this.timingDriftPpm = timingDriftPpm;
+            return this;
+        }
+
+        /**
+         * Idle mark before and after the text, in bit periods.
+         */
+        public Builder setLeaderBits(float leaderBits) {
+            Validate.isTrue(leaderBits >= 0.0f, "leader must not be negative: %f", leaderBits);
+            this.leaderBits = leaderBits;
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public SyntheticSignal build() {
+            Validate.validState(Math.max(markFreq, spaceFreq) + Math.abs(frequencyOffset) < sampleRate / 2.0f,
+                    "tones must be below the Nyquist frequency");
+            return new SyntheticSignal(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.vitech.modem.databits;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @see <a href="https://github.com/kamalmostafa/minimodem/blob/master/src/databits_ascii.c">source code</a>
+ */
+public class ASCII implements IDatabits {
+
+    @Override
+    public int encode(byte[] source, byte[] encoded) {
+        ByteBuffer target = ByteBuffer.wrap(encoded);
+        encode(ByteBuffer.wrap(source), target);
+        return target.position();
+    }
+
+    @Override
+    public int decode(byte[] source, byte[] decoded) {
+        ByteBuffer target = ByteBuffer.wrap(decoded);
+        decode(ByteBuffer.wrap(source), target);
+        return target.position();
+    }
+
+    @Override
+    public DatabitsResult encode(ByteBuffer source, ByteBuffer encoded) {
+        return copy(source, encoded);
+    }
+
+    @Override
+    public DatabitsResult decode(ByteBuffer source, ByteBuffer decoded) {
+        return copy(source, decoded);
+    }
+
+    // 8-bit data words are the characters themselves
+    private static DatabitsResult copy(ByteBuffer source, ByteBuffer target) {
+        int n = Math.min(source.remaining(), target.remaining());
+        target.put(target.position(), source, source.position(), n);
+        target.position(target.position() + n);
+        source.position(source.position() + n);
+        return source.hasRemaining() ? DatabitsResult.OVERFLOW : DatabitsResult.UNDERFLOW;
+    }
+}
@@ -0,0 +1,361 @@
+package com.vitech.modem.databits;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Baudot 5-bit data databits decoder/encoder
+ *
+ * Encoding and decoding are single lookups in transition tables built from the character tables below, indexed by
+ * the letters/figures shift state and the input: each yields the words or character to emit and the next state.
+ * Characters Baudot cannot encode are skipped and counted, see {@link #getSkippedCount()}.
+ *
+ * @see <a href="https://github.com/kamalmostafa/minimodem/blob/master/src/databits_baudot.c">source code</a>
+ */
+public class Baudot implements IDatabits {
+    private static byte[][]
+        baudot_decode_table = new byte[][]{
+        // letter, U.S. figs, CCITT No.2 figs (Europe)
+        { '_', '^', '^' },	// NUL (underscore and caret marks for debugging)
+        { 'E', '3', '3' },
+        { 0xA, 0xA, 0xA },	// LF
+        { 'A', '-', '-' },
+        { ' ', ' ', ' ' },	// SPACE
+        { 'S', 0x7, '\'' },	// BELL or apostrophe
+        { 'I', '8', '8' },
+        { 'U', '7', '7' },
+
+        { 0xD, 0xD, 0xD },	// CR
+        { 'D', '$', '^' },	// '$' or ENQ
+        { 'R', '4', '4' },
+        { 'J', '\'', 0x7 },	// apostrophe or BELL
+        { 'N', ',', ',' },
+        { 'F', '!', '!' },
+        { 'C', ':', ':' },
+        { 'K', '(', '(' },
+
+        { 'T', '5', '5' },
+        { 'Z', '"', '+' },
+        { 'L', ')', ')' },
+        { 'W', '2', '2' },
+        { 'H', '#', '%' },	// '#' or British pounds symbol	// FIXME
+        { 'Y', '6', '6' },
+        { 'P', '0', '0' },
+        { 'Q', '1', '1' },
+
+        { 'O', '9', '9' },
+        { 'B', '?', '?' },
+        { 'G', '&', '&' },
+        { '%', '%', '%' },	// FIGS (symbol % for debug; won't be printed)
+        { 'M', '.', '.' },
+        { 'X', '/', '/' },
+        { 'V', ';', '=' },
+        { '%', '%', '%' },	// LTRS (symbol % for debug; won't be printed)
+    };
+
+    private static byte[][]
+    baudot_encode_table = new byte[][] {
+        // index: ascii char; values: bits, ltrs_or_figs_or_neither_or_both
+
+  /* 0x00 */
+    /* NUL */	{ 0x00, 3 },	// NUL
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* BEL */	{ 0x05, 2 },	// BELL (or CCITT2 apostrophe)
+    /* BS */	{ 0, 0 },	// non-encodable (FIXME???)
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* LF */	{ 0x02, 3 },	// LF
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* 0xD */	{ 0x08, 3 },	// CR
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+
+  /* 0x10 */
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+    /* xxx */	{ 0, 0 },	// non-encodable
+
+  /* 0x20 */
+    /*   */	{ 0x04, 3 },	// SPACE
+    /* ! */	{ 0x0d, 2 },	//
+    /* " */	{ 0x11, 2 },	//
+    /* # */	{ 0x14, 2 },	// '#' (or CCITT2 British pounds symbol)
+    /* $ */	{ 0x09, 2 },	// '$' (or CCITT2 ENQ)
+    /* % */	{ 0, 0 },	// non-encodable
+    /* & */	{ 0x1a, 2 },	//
+    /* ' */	{ 0x0b, 2 },	// apostrophe (or CCITT2 BELL)
+    /* ( */	{ 0x0f, 2 },	//
+    /* ) */	{ 0x12, 2 },	//
+    /* * */	{ 0, 0 },	// non-encodable
+    /* + */	{ 0x12, 2 },	//
+    /* , */	{ 0x0c, 2 },	//
+    /* - */	{ 0x03, 2 },	//
+    /* . */	{ 0x1c, 2 },	//
+    /* / */	{ 0x1d, 2 },	//
+
+  /* 0x30 */
+    /* 0 */	{ 0x16, 2 },	//
+    /* 1 */	{ 0x17, 2 },	//
+    /* 2 */	{ 0x13, 2 },	//
+    /* 3 */	{ 0x01, 2 },	//
+    /* 4 */	{ 0x0a, 2 },	//
+    /* 5 */	{ 0x10, 2 },	//
+    /* 6 */	{ 0x15, 2 },	//
+    /* 7 */	{ 0x07, 2 },	//
+    /* 8 */	{ 0x06, 2 },	//
+    /* 9 */	{ 0x18, 2 },	//
+    /* : */	{ 0x0e, 2 },	//
+    /* ; */	{ 0x1e, 2 },	//
+    /* < */	{ 0, 0 },	// non-encodable
+    /* = */	{ 0, 0 },	// non-encodable
+    /* > */	{ 0, 0 },	// non-encodable
+    /* ? */	{ 0x19, 2 },	//
+
+  /* 0x40 */
+    /* @ */	{ 0, 0 },	// non-encodable
+    /* A */	{ 0x03, 1 },	//
+    /* B */	{ 0x19, 1 },	//
+    /* C */	{ 0x0e, 1 },	//
+    /* D */	{ 0x09, 1 },	//
+    /* E */	{ 0x01, 1 },	//
+    /* F */	{ 0x0d, 1 },	//
+    /* G */	{ 0x1a, 1 },	//
+    /* H */	{ 0x14, 1 },	//
+    /* I */	{ 0x06, 1 },	//
+    /* J */	{ 0x0b, 1 },	//
+    /* K */	{ 0x0f, 1 },	//
+    /* L */	{ 0x12, 1 },	//
+    /* M */	{ 0x1c, 1 },	//
+    /* N */	{ 0x0c, 1 },	//
+    /* O */	{ 0x18, 1 },	//
+
+  /* 0x50 */
+    /* P */	{ 0x16, 1 },	//
+    /* Q */	{ 0x17, 1 },	//
+    /* R */	{ 0x0a, 1 },	//
+    /* S */	{ 0x05, 1 },	//
+    /* T */	{ 0x10, 1 },	//
+    /* U */	{ 0x07, 1 },	//
+    /* V */	{ 0x1e, 1 },	//
+    /* W */	{ 0x13, 1 },	//
+    /* X */	{ 0x1d, 1 },	//
+    /* Y */	{ 0x15, 1 },	//
+    /* Z */	{ 0x11, 1 },	//
+    /* [ */	{ 0, 0 },	// non-encodable
+    /* \\ */	{ 0, 0 },	// non-encodable
+    /* ] */	{ 0, 0 },	// non-encodable
+    /* ^ */	{ 0, 0 },	// non-encodable
+    /* _ */	{ 0, 0 },	// non-encodable
+
+    };
+
+    private static final int BAUDOT_LTRS = 0x1F;
+    private static final int BAUDOT_FIGS = 0x1B;
+    private static final int BAUDOT_SPACE = 0x04;
+
+    /*
+     * 0 unknown state
+     * 1 LTRS state
+     * 2 FIGS state
+     */
+    private static final int N_CHARSETS = 3;
+
+    /*
+     * Encode transitions, index charset << 8 | input byte:
+     * bits 0-1 number of words, bit 2 skipped, bit 3 the charset changes, bits 4-5 next charset,
+     * bits 8-15 first word, bits 16-23 second word
+     */
+    private static final int[] encode_transitions = new int[N_CHARSETS << 8];
+
+    /*
+     * Decode transitions, index charset << 5 | data word:
+     * bits 0-7 character, bit 8 a character is emitted, bits 9-10 next charset, bit 11 the charset changes
+     */
+    private static final short[] decode_transitions = new short[N_CHARSETS << 5];
+
+    private static final int ENCODE_SKIPPED = 0x4;
+    private static final int ENCODE_SHIFT = 0x8;
+    private static final int DECODE_EMIT = 0x100;
+    private static final int DECODE_SHIFT = 0x800;
+
+    static {
+        for (int charset = 0; charset < N_CHARSETS; charset++) {
+            for (int b = 0; b < 256; b++) {
+                int t = encode_transition(charset, b);
+                encode_transitions[charset << 8 | b] = (t >> 4 & 0x3) != charset ? t | ENCODE_SHIFT : t;
+            }
+            for (int word = 0; word < 32; word++) {
+                short t = decode_transition(charset, word);
+                decode_transitions[charset << 5 | word] = (short) ((t >> 9) != charset ? t | DECODE_SHIFT : t);
+            }
+        }
+    }
+
+    private static int encode_transition(int charset, int char_out) {
+        if (char_out >= 'a' && char_out <= 'z')
+            char_out -= 'a' - 'A';
+
+        int charset_mask = char_out < 0x60 ? baudot_encode_table[char_out][1] : 0;
+        if ( charset_mask == 0 )
+            return charset << 4 | ENCODE_SKIPPED;
+
+        int n = 0;
+        int words = 0;
+
+        if ( (charset & charset_mask) == 0 ) {
+            if ( charset == 0 )
+                charset = 1;
+
+            if ( charset_mask != 3 )
+                charset = charset_mask;
+
+            words = charset == 1 ? BAUDOT_LTRS : BAUDOT_FIGS;
+            n++;
+        }
+
+        words |= baudot_encode_table[char_out][0] << (8 * n);
+        n++;
+
+        /* TX un-shift on space */
+        if ( char_out == ' ' )
+            charset = 1;
+
+        return words << 8 | charset << 4 | n;
+    }
+
+    private static short decode_transition(int charset, int databits) {
+        if ( databits == BAUDOT_FIGS )
+            return (short) (2 << 9);
+        if ( databits == BAUDOT_LTRS )
+            return (short) (1 << 9);
+        if ( databits == BAUDOT_SPACE )	/* RX un-shift on space */
+            charset = 1;
+
+        int t = (charset == 1) ? 0 : 1;
+        return (short) (charset << 9 | DECODE_EMIT | baudot_decode_table[databits][t] & 0xFF);
+    }
+
+    private int baudot_charset = 0;
+    private long skipped;
+
+    /**
+     * Number of non-encodable characters skipped by this codec so far.
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    @Override
+    public int encode(byte[] source, byte[] encoded) {
+        int charset = baudot_charset;
+        int n = 0;
+
+        for (byte c : source) {
+            int t = encode_transitions[charset << 8 | c & 0xFF];
+            int nwords = t & 0x3;
+            if (nwords > 0)
+                encoded[n] = (byte) (t >> 8);
+            if (nwords == 2)
+                encoded[n + 1] = (byte) (t >> 16);
+            n += nwords;
+            skipped += t >> 2 & 1;
+            if ((t & ENCODE_SHIFT) != 0)
+                charset = t >> 4 & 0x3;
+        }
+
+        baudot_charset = charset;
+        return n;
+    }
+
+    @Override
+    public int decode(byte[] source, byte[] decoded) {
+        int charset = baudot_charset;
+        int n = 0;
+
+        for (byte word : source) {
+            int t = decode_transitions[charset << 5 | word & 0x1F];
+            if ((t & DECODE_EMIT) != 0)
+                decoded[n++] = (byte) t;
+            // shifts are rare: a predicted branch keeps the table load off the charset's dependency chain
+            if ((t & DECODE_SHIFT) != 0)
+                charset = t >> 9 & 0x3;
+        }
+
+        baudot_charset = charset;
+        return n;
+    }
+
+    @Override
+    public DatabitsResult encode(ByteBuffer source, ByteBuffer encoded) {
+        int charset = baudot_charset;
+        int sp = source.position();
+        int dp = encoded.position();
+        DatabitsResult result = DatabitsResult.UNDERFLOW;
+
+        for (int limit = source.limit(); sp < limit; sp++) {
+            int t = encode_transitions[charset << 8 | source.get(sp) & 0xFF];
+            int nwords = t & 0x3;
+            if (nwords > encoded.limit() - dp) {
+                result = DatabitsResult.OVERFLOW;
+                break;
+            }
+
+            if (nwords > 0)
+                encoded.put(dp, (byte) (t >> 8));
+            if (nwords == 2)
+                encoded.put(dp + 1, (byte) (t >> 16));
+            dp += nwords;
+            skipped += t >> 2 & 1;
+            if ((t & ENCODE_SHIFT) != 0)
+                charset = t >> 4 & 0x3;
+        }
+
+        baudot_charset = charset;
+        source.position(sp);
+        encoded.position(dp);
+        return result;
+    }
+
+    @Override
+    public DatabitsResult decode(ByteBuffer source, ByteBuffer decoded) {
+        int charset = baudot_charset;
+        int sp = source.position();
+        int dp = decoded.position();
+        DatabitsResult result = DatabitsResult.UNDERFLOW;
+
+        for (int limit = source.limit(); sp < limit; sp++) {
+            int t = decode_transitions[charset << 5 | source.get(sp) & 0x1F];
+            if ((t & DECODE_EMIT) != 0) {
+                if (dp == decoded.limit()) {
+                    result = DatabitsResult.OVERFLOW;
+                    break;
+                }
+                decoded.put(dp++, (byte) t);
+            }
+            if ((t & DECODE_SHIFT) != 0)
+                charset = t >> 9 & 0x3;
+        }
+
+        baudot_charset = charset;
+        source.position(sp);
+        decoded.position(dp);
+        return result;
+    }
+}
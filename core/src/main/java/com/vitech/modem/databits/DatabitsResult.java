@@ -0,0 +1,11 @@
+package com.vitech.modem.databits;
+
+/**
+ * Outcome of a bulk {@link IDatabits} call, after <code>java.nio.charset.CoderResult</code>.
+ */
+public enum DatabitsResult {
+    /** All of the source was consumed; more input is needed to go on. */
+    UNDERFLOW,
+    /** The destination is too small for the output of the next source unit, which is left unconsumed. */
+    OVERFLOW
+}
@@ -0,0 +1,58 @@
+package com.vitech.modem.databits;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @see <a href="https://github.com/kamalmostafa/minimodem/blob/master/src/databits.h">source code</a>
+ */
+public interface IDatabits {
+    public int encode(byte[] source, byte[] encoded);
+    public int decode(byte[] source, byte[] decoded);
+
+    /**
+     * Encodes characters from <code>source</code> into data words in <code>encoded</code>, from their positions
+     * on, advancing both; stops when the source is exhausted or the next character's words do not fit.
+     *
+     * The default implementation goes through {@link #encode(byte[], byte[])} one character at a time; it suits
+     * stateless codecs only, as a character that overflows has already been through the codec.
+     */
+    public default DatabitsResult encode(ByteBuffer source, ByteBuffer encoded) {
+        return Bulk.transcode(this, true, source, encoded);
+    }
+
+    /**
+     * Decodes data words from <code>source</code> into characters in <code>decoded</code>, as
+     * {@link #encode(ByteBuffer, ByteBuffer)} does.
+     */
+    public default DatabitsResult decode(ByteBuffer source, ByteBuffer decoded) {
+        return Bulk.transcode(this, false, source, decoded);
+    }
+
+    /**
+     * Bulk calls of the codecs with no native implementation.
+     */
+    static final class Bulk {
+        // output of one source unit, e.g. a 32 bit binary frame as text
+        private static final int MAX_OUTPUT = 64;
+
+        private Bulk() {
+        }
+
+        static DatabitsResult transcode(IDatabits databits, boolean encode, ByteBuffer source, ByteBuffer target) {
+            byte[] unit = new byte[1];
+            byte[] output = new byte[MAX_OUTPUT];
+
+            while (source.hasRemaining()) {
+                int mark = source.position();
+                unit[0] = source.get();
+                int n = encode ? databits.encode(unit, output) : databits.decode(unit, output);
+                if (n > target.remaining()) {
+                    source.position(mark);
+                    return DatabitsResult.OVERFLOW;
+                }
+                target.put(output, 0, n);
+            }
+            return DatabitsResult.UNDERFLOW;
+        }
+    }
+}
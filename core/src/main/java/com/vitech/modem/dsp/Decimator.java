@@ -0,0 +1,145 @@
+package com.vitech.modem.dsp;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+
+/**
+ * Streaming FIR decimator by an integer factor: a Blackman-windowed sinc low-pass, evaluated only at the kept
+ * samples, so it costs <code>taps / factor</code> multiply-adds per input sample.
+ *
+ * The pass band reaches <code>passband</code> (as a fraction of the input rate), the stop band starts where
+ * aliases would fold back into it, at the output rate minus the pass band. Output sample <code>i</code> is
+ * centered on input sample <code>i * factor - {@link #getDelay()}</code>.
+ *
+ * Not thread safe: one decimator per sample stream.
+ */
+public final class Decimator {
+    // Output rate over the highest frequency of interest that automatic factors keep
+    public static final double MIN_OVERSAMPLING = 2.5d;
+
+    // Blackman window transition width, times the tap count, as a fraction of the sample rate
+    private static final double BLACKMAN_TRANSITION = 5.5d;
+    // Input samples filtered at once
+    private static final int BLOCK_NSAMPLES = 4096;
+
+    private final int factor;
+    private final float[] taps;
+    private final float[] line;
+    private int next;
+    private Kernels kernels = Kernels.getDefault();
+
+    /**
+     * @param factor    ratio of the input rate to the output rate
+     * @param passband  highest frequency to keep, as a fraction of the input rate
+     */
+    public Decimator(int factor, double passband) {
+        Validate.isTrue(factor >= 1, "decimation factor must be positive: %d", factor);
+        double transition = 1.0d / factor - 2.0d * passband;
+        Validate.isTrue(passband > 0.0d && transition > 0.0d,
+                "pass band %f does not fit the output rate of 1/%d", passband, factor);
+
+        this.factor = factor;
+        int nTaps = factor == 1 ? 1 : (int) Math.ceil(BLACKMAN_TRANSITION / transition) | 1;
+        this.taps = new float[nTaps];
+
+        // cut off half way through the transition band: half the output rate
+        double cutoff = 0.5d / factor;
+        double center = (nTaps - 1) / 2.0d;
+        double sum = 0.0d;
+        double[] h = new double[nTaps];
+        for (int n = 0; n < nTaps; n++) {
+            double t = n - center;
+            double sinc = t == 0.0d ? 2.0d * cutoff : Math.sin(2.0d * Math.PI * cutoff * t) / (Math.PI * t);
+            double window = nTaps == 1 ? 1.0d
+                    : 0.42d - 0.5d * Math.cos(2.0d * Math.PI * n / (nTaps - 1)) + 0.08d * Math.cos(4.0d * Math.PI * n / (nTaps - 1));
+            h[n] = sinc * window;
+            sum += h[n];
+        }
+        for (int n = 0; n < nTaps; n++) {
+            taps[n] = (float) (h[n] / sum);
+        }
+
+        this.line = new float[nTaps - 1 + BLOCK_NSAMPLES];
+    }
+
+    /**
+     * Largest factor that divides <code>sampleRate</code> and keeps the output rate at least
+     * {@link #MIN_OVERSAMPLING} times <code>maxFreq</code>; 1 if there is none.
+     */
+    public static int chooseFactor(int sampleRate, double maxFreq) {
+        Validate.isTrue(sampleRate > 0 && maxFreq > 0.0d, "sample rate and frequency must be positive");
+        for (int factor = (int) (sampleRate / (MIN_OVERSAMPLING * maxFreq)); factor > 1; factor--) {
+            if (sampleRate % factor == 0) {
+                return factor;
+            }
+        }
+        return 1;
+    }
+
+    public Kernels getKernels() {
+        return kernels;
+    }
+
+    public void setKernels(Kernels kernels) {
+        Validate.notNull(kernels);
+        this.kernels = kernels;
+    }
+
+    public int getFactor() {
+        return factor;
+    }
+
+    public int getNTaps() {
+        return taps.length;
+    }
+
+    /**
+     * Group delay of the filter, in input samples.
+     */
+    public int getDelay() {
+        return (taps.length - 1) / 2;
+    }
+
+    /**
+     * Most output samples <code>count</code> input samples can produce.
+     */
+    public int getMaxOutput(int count) {
+        return (count + factor - 1) / factor;
+    }
+
+    /**
+     * Forgets the samples seen so far, as if the input had been silent.
+     */
+    public void reset() {
+        Arrays.fill(line, 0.0f);
+        next = 0;
+    }
+
+    /**
+     * Filters <code>src[from, from + count)</code> into <code>dst[offset, ...)</code>, which must have room for
+     * {@link #getMaxOutput(int)} samples.
+     *
+     * @return number of output samples
+     */
+    public int process(float[] src, int from, int count, float[] dst, int offset) {
+        int history = taps.length - 1;
+        int produced = 0;
+
+        while (count > 0) {
+            int n = Math.min(count, BLOCK_NSAMPLES);
+            System.arraycopy(src, from, line, history, n);
+
+            // the newest sample of the window of each output, relative to the block; taps are symmetric
+            for (; next < n; next += factor) {
+                dst[offset + produced++] = kernels.dot(taps, 0, line, next, taps.length);
+            }
+            next -= n;
+
+            System.arraycopy(line, n, line, 0, history);
+            from += n;
+            count -= n;
+        }
+        return produced;
+    }
+}
@@ -0,0 +1,77 @@
+package com.vitech.modem.dsp;
+
+import java.util.logging.Logger;
+
+/**
+ * The per-sample and per-bit loops of the FSK analysis, with a scalar implementation and a SIMD one on the
+ * <code>jdk.incubator.vector</code> module.
+ *
+ * {@link #getDefault()} is the SIMD one when the JVM runs with <code>--add-modules jdk.incubator.vector</code>,
+ * unless the <code>jminimodem.kernels</code> system property is <code>scalar</code>. Results of the two agree
+ * within floating point rounding, not bit for bit.
+ */
+public interface Kernels {
+    String PROPERTY_NAME_KERNELS = "jminimodem.kernels";
+
+    /**
+     * Widens <code>src[from, from + count)</code> into <code>dst[0, count)</code>.
+     */
+    void toDoubles(float[] src, int from, double[] dst, int count);
+
+    /**
+     * Magnitude of <code>tone</code> over <code>samples[from, from + count)</code>, <code>|X(f)|</code> of their DFT.
+     */
+    double toneMagnitude(float[] samples, int from, int count, Tone tone);
+
+    /**
+     * Dot product of <code>a[aFrom, aFrom + count)</code> and <code>b[bFrom, bFrom + count)</code>.
+     */
+    float dot(float[] a, int aFrom, float[] b, int bFrom, int count);
+
+    /**
+     * Sum of <code>values[0, count)</code>.
+     */
+    float sum(double[] values, int count);
+
+    /**
+     * Sum over <code>i</code> of <code>|sig[i] - other| / other</code>, where <code>other</code> is the mean of
+     * the other <code>count - 1</code> values of <code>sig[0, count)</code>, whose sum is <code>total</code>.
+     */
+    float divergence(double[] sig, int count, float total);
+
+    static Kernels scalar() {
+        return ScalarKernels.INSTANCE;
+    }
+
+    /**
+     * The SIMD kernels, or null when the <code>jdk.incubator.vector</code> module is not loaded.
+     */
+    static Kernels vector() {
+        return Holder.VECTOR;
+    }
+
+    static Kernels getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    final class Holder {
+        private static final Kernels VECTOR = loadVector();
+        private static final Kernels DEFAULT = "scalar".equals(System.getProperty(PROPERTY_NAME_KERNELS)) || VECTOR == null
+                ? ScalarKernels.INSTANCE : VECTOR;
+
+        private Holder() {
+        }
+
+        private static Kernels loadVector() {
+            if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                return null;
+            }
+            try {
+                return new VectorKernels();
+            } catch (LinkageError e) {
+                Logger.getLogger(Kernels.class.getName()).fine("vector kernels unavailable: " + e);
+                return null;
+            }
+        }
+    }
+}
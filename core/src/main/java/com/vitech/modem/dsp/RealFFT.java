@@ -0,0 +1,200 @@
+package com.vitech.modem.dsp;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.math3.util.ArithmeticUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-place radix-2 FFT of real input working on caller-owned <code>double[]</code> buffers.
+ *
+ * The <code>length</code> real samples are transformed as <code>length/2</code> complex values
+ * and split into the real spectrum afterwards. The result is packed into the same array:
+ * <code>work[0]</code> is the DC bin, <code>work[1]</code> the Nyquist bin and
+ * <code>work[2k], work[2k+1]</code> the real and imaginary parts of bin <code>k</code>.
+ *
+ * Twiddle and bit-reversal tables are immutable and shared per length, see {@link #forLength(int)},
+ * so an instance may be used from several threads as long as each one uses its own work array.
+ */
+public final class RealFFT {
+    private static final ConcurrentMap<Integer, RealFFT> cache = new ConcurrentHashMap<Integer, RealFFT>();
+
+    private final int length;
+    private final int half;
+
+    // exp(-2*pi*i*k/half), k < half/2
+    private final double[] cos;
+    private final double[] sin;
+
+    // exp(-2*pi*i*k/length), k <= half/2
+    private final double[] splitCos;
+    private final double[] splitSin;
+
+    private final int[] bitReverse;
+
+    private RealFFT(int length) {
+        Validate.isTrue(length >= 2 && ArithmeticUtils.isPowerOfTwo(length), "FFT length must be a power of 2: %d", length);
+
+        this.length = length;
+        this.half = length / 2;
+
+        cos = new double[Math.max(1, half / 2)];
+        sin = new double[cos.length];
+        for (int k = 0; k < half / 2; k++) {
+            double angle = 2.0d * Math.PI * k / half;
+            cos[k] = Math.cos(angle);
+            sin[k] = -Math.sin(angle);
+        }
+
+        splitCos = new double[half / 2 + 1];
+        splitSin = new double[half / 2 + 1];
+        for (int k = 0; k <= half / 2; k++) {
+            double angle = 2.0d * Math.PI * k / length;
+            splitCos[k] = Math.cos(angle);
+            splitSin[k] = -Math.sin(angle);
+        }
+
+        bitReverse = new int[half];
+        int bits = Integer.numberOfTrailingZeros(half);
+        for (int i = 0; i < half; i++) {
+            bitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    /**
+     * Returns the shared transform of the given power of 2 length, creating its tables on first use.
+     */
+    public static RealFFT forLength(int length) {
+        RealFFT fft = cache.get(length);
+        if (fft == null) {
+            fft = new RealFFT(length);
+            RealFFT existing = cache.putIfAbsent(length, fft);
+            if (existing != null) {
+                fft = existing;
+            }
+        }
+        return fft;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Number of distinct bins of the real spectrum: <code>length/2 + 1</code>.
+     */
+    public int getNBins() {
+        return half + 1;
+    }
+
+    /**
+     * Copies <code>samples[from, from + count)</code> into <code>work</code> and zero-pads it to the transform length.
+     */
+    public void load(float[] samples, int from, int count, double[] work) {
+        load(samples, from, count, work, Kernels.scalar());
+    }
+
+    /**
+     * {@link #load(float[], int, int, double[])} converting with the given kernels.
+     */
+    public void load(float[] samples, int from, int count, double[] work, Kernels kernels) {
+        Validate.isTrue(count <= length, "%d samples do not fit FFT length %d", count, length);
+
+        kernels.toDoubles(samples, from, work, count);
+        for (int i = count; i < length; i++) {
+            work[i] = 0.0d;
+        }
+    }
+
+    /**
+     * Forward transform (no normalization) of the real samples held in <code>work</code>, in place.
+     */
+    public void transform(double[] work) {
+        Validate.isTrue(work.length >= length);
+
+        complexTransform(work);
+
+        // Split the half-length complex spectrum Z into the real spectrum X:
+        // X[k] = (Z[k] + Z*[h-k]) / 2 - i * W^k * (Z[k] - Z*[h-k]) / 2,  W = exp(-2*pi*i/length)
+        double z0re = work[0];
+        double z0im = work[1];
+        work[0] = z0re + z0im;
+        work[1] = z0re - z0im;
+
+        for (int k = 1; k <= half / 2; k++) {
+            int m = half - k;
+            double zkRe = work[2 * k];
+            double zkIm = work[2 * k + 1];
+            double zmRe = work[2 * m];
+            double zmIm = work[2 * m + 1];
+
+            double evenRe = 0.5d * (zkRe + zmRe);
+            double evenIm = 0.5d * (zkIm - zmIm);
+            double oddRe = 0.5d * (zkIm + zmIm);
+            double oddIm = -0.5d * (zkRe - zmRe);
+
+            double wRe = splitCos[k];
+            double wIm = splitSin[k];
+            double tRe = wRe * oddRe - wIm * oddIm;
+            double tIm = wRe * oddIm + wIm * oddRe;
+
+            work[2 * k] = evenRe + tRe;
+            work[2 * k + 1] = evenIm + tIm;
+            work[2 * m] = evenRe - tRe;
+            work[2 * m + 1] = -(evenIm - tIm);
+        }
+    }
+
+    /**
+     * Magnitude of bin <code>k</code> (0 to <code>length/2</code>) of a transformed work array.
+     */
+    public double magnitude(double[] work, int k) {
+        if (k == 0) {
+            return Math.abs(work[0]);
+        }
+        if (k == half) {
+            return Math.abs(work[1]);
+        }
+
+        double re = work[2 * k];
+        double im = work[2 * k + 1];
+        return Math.sqrt(re * re + im * im);
+    }
+
+    private void complexTransform(double[] a) {
+        for (int i = 0; i < half; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                double re = a[2 * i];
+                double im = a[2 * i + 1];
+                a[2 * i] = a[2 * j];
+                a[2 * i + 1] = a[2 * j + 1];
+                a[2 * j] = re;
+                a[2 * j + 1] = im;
+            }
+        }
+
+        for (int size = 2; size <= half; size <<= 1) {
+            int halfSize = size / 2;
+            int step = half / size;
+
+            for (int start = 0; start < half; start += size) {
+                for (int j = 0; j < halfSize; j++) {
+                    double wRe = cos[j * step];
+                    double wIm = sin[j * step];
+                    int p = 2 * (start + j);
+                    int q = 2 * (start + j + halfSize);
+
+                    double tRe = wRe * a[q] - wIm * a[q + 1];
+                    double tIm = wRe * a[q + 1] + wIm * a[q];
+
+                    a[q] = a[p] - tRe;
+                    a[q + 1] = a[p + 1] - tIm;
+                    a[p] += tRe;
+                    a[p + 1] += tIm;
+                }
+            }
+        }
+    }
+}
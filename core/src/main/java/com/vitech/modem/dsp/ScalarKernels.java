@@ -0,0 +1,78 @@
+package com.vitech.modem.dsp;
+
+/**
+ * Plain loops, the reference for {@link VectorKernels}.
+ */
+final class ScalarKernels implements Kernels {
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {
+    }
+
+    @Override
+    public void toDoubles(float[] src, int from, double[] dst, int count) {
+        for (int i = 0; i < count; i++) {
+            dst[i] = src[from + i];
+        }
+    }
+
+    /**
+     * Goertzel recurrence, equal to <code>|X[k]|</code> of the zero-padded transform for <code>coeff = 2cos(2&pi;k/N)</code>.
+     */
+    @Override
+    public double toneMagnitude(float[] samples, int from, int count, Tone tone) {
+        double coeff = tone.getCoeff();
+        double s1 = 0.0d;
+        double s2 = 0.0d;
+
+        for (int i = from; i < from + count; i++) {
+            double s0 = samples[i] + coeff * s1 - s2;
+            s2 = s1;
+            s1 = s0;
+        }
+
+        double power = s1 * s1 + s2 * s2 - coeff * s1 * s2;
+        return power > 0.0d ? Math.sqrt(power) : 0.0d;
+    }
+
+    /**
+     * Four partial sums, so that the additions do not wait for each other.
+     */
+    @Override
+    public float dot(float[] a, int aFrom, float[] b, int bFrom, int count) {
+        float s0 = 0.0f;
+        float s1 = 0.0f;
+        float s2 = 0.0f;
+        float s3 = 0.0f;
+        int i = 0;
+        for (; i + 3 < count; i += 4) {
+            s0 += a[aFrom + i] * b[bFrom + i];
+            s1 += a[aFrom + i + 1] * b[bFrom + i + 1];
+            s2 += a[aFrom + i + 2] * b[bFrom + i + 2];
+            s3 += a[aFrom + i + 3] * b[bFrom + i + 3];
+        }
+        for (; i < count; i++) {
+            s0 += a[aFrom + i] * b[bFrom + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float sum(double[] values, int count) {
+        float sum = 0.0f;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float divergence(double[] sig, int count, float total) {
+        float divergence = 0.0f;
+        for (int i = 0; i < count; i++) {
+            double other = (total - Math.abs(sig[i])) / (count - 1);
+            divergence += Math.abs(sig[i] - other) / other;
+        }
+        return divergence;
+    }
+}
@@ -0,0 +1,52 @@
+package com.vitech.modem.dsp;
+
+/**
+ * A frequency whose magnitude {@link Kernels#toneMagnitude} measures over windows of samples: its Goertzel
+ * coefficient, and cosine/sine tables for correlating, grown on demand to the longest window seen.
+ */
+public final class Tone {
+    private final double cyclesPerSample;
+    private final double coeff;
+
+    // {cos, sin} of 2 pi f n; replaced, never modified, so readers need no lock
+    private volatile double[][] tables = new double[][] { new double[0], new double[0] };
+
+    /**
+     * @param cyclesPerSample   frequency over sample rate, e.g. <code>band / fftSize</code>
+     */
+    public Tone(double cyclesPerSample) {
+        this.cyclesPerSample = cyclesPerSample;
+        this.coeff = 2.0d * Math.cos(2.0d * Math.PI * cyclesPerSample);
+    }
+
+    public double getCyclesPerSample() {
+        return cyclesPerSample;
+    }
+
+    /**
+     * <code>2cos(2&pi;f)</code>, the Goertzel recurrence coefficient.
+     */
+    public double getCoeff() {
+        return coeff;
+    }
+
+    /**
+     * Cosine and sine tables of at least <code>count</code> entries, <code>{cos, sin}</code>; shared, not to be modified.
+     */
+    public double[][] getTables(int count) {
+        double[][] current = tables;
+        if (current[0].length >= count) {
+            return current;
+        }
+
+        double[] cos = new double[count];
+        double[] sin = new double[count];
+        for (int n = 0; n < count; n++) {
+            cos[n] = Math.cos(2.0d * Math.PI * cyclesPerSample * n);
+            sin[n] = Math.sin(2.0d * Math.PI * cyclesPerSample * n);
+        }
+        current = new double[][] { cos, sin };
+        tables = current;
+        return current;
+    }
+}
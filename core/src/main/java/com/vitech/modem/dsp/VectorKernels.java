@@ -0,0 +1,111 @@
+package com.vitech.modem.dsp;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels at the preferred vector width: floats are loaded half a vector at a time and widened, so that
+ * every lane computes in double precision as the scalar code does. Tones are measured by correlation with
+ * their cosine/sine tables rather than by the Goertzel recurrence, which does not vectorize.
+ */
+final class VectorKernels implements Kernels {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+    private static final VectorSpecies<Float> FULL_FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    VectorKernels() {
+        // fails fast, as a LinkageError, when the module is not there
+        DoubleVector.zero(DOUBLES);
+    }
+
+    private static DoubleVector load(float[] src, int offset) {
+        return (DoubleVector) FloatVector.fromArray(FLOATS, src, offset).convertShape(VectorOperators.F2D, DOUBLES, 0);
+    }
+
+    @Override
+    public void toDoubles(float[] src, int from, double[] dst, int count) {
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(count); i < bound; i += DOUBLES.length()) {
+            load(src, from + i).intoArray(dst, i);
+        }
+        for (; i < count; i++) {
+            dst[i] = src[from + i];
+        }
+    }
+
+    @Override
+    public double toneMagnitude(float[] samples, int from, int count, Tone tone) {
+        double[][] tables = tone.getTables(count);
+        double[] cos = tables[0];
+        double[] sin = tables[1];
+
+        DoubleVector re = DoubleVector.zero(DOUBLES);
+        DoubleVector im = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(count); i < bound; i += DOUBLES.length()) {
+            DoubleVector x = load(samples, from + i);
+            re = x.fma(DoubleVector.fromArray(DOUBLES, cos, i), re);
+            im = x.fma(DoubleVector.fromArray(DOUBLES, sin, i), im);
+        }
+
+        double sumRe = re.reduceLanes(VectorOperators.ADD);
+        double sumIm = im.reduceLanes(VectorOperators.ADD);
+        for (; i < count; i++) {
+            sumRe += samples[from + i] * cos[i];
+            sumIm += samples[from + i] * sin[i];
+        }
+        return Math.sqrt(sumRe * sumRe + sumIm * sumIm);
+    }
+
+    @Override
+    public float dot(float[] a, int aFrom, float[] b, int bFrom, int count) {
+        FloatVector sum = FloatVector.zero(FULL_FLOATS);
+        int i = 0;
+        for (int bound = FULL_FLOATS.loopBound(count); i < bound; i += FULL_FLOATS.length()) {
+            sum = FloatVector.fromArray(FULL_FLOATS, a, aFrom + i).fma(FloatVector.fromArray(FULL_FLOATS, b, bFrom + i), sum);
+        }
+
+        float dot = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < count; i++) {
+            dot += a[aFrom + i] * b[bFrom + i];
+        }
+        return dot;
+    }
+
+    @Override
+    public float sum(double[] values, int count) {
+        DoubleVector sum = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(count); i < bound; i += DOUBLES.length()) {
+            sum = sum.add(DoubleVector.fromArray(DOUBLES, values, i));
+        }
+
+        double total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < count; i++) {
+            total += values[i];
+        }
+        return (float) total;
+    }
+
+    @Override
+    public float divergence(double[] sig, int count, float total) {
+        double scale = 1.0d / (count - 1);
+        DoubleVector sum = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(count); i < bound; i += DOUBLES.length()) {
+            DoubleVector s = DoubleVector.fromArray(DOUBLES, sig, i);
+            DoubleVector other = s.abs().neg().add(total).mul(scale);
+            sum = sum.add(s.sub(other).abs().div(other));
+        }
+
+        double divergence = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < count; i++) {
+            double other = (total - Math.abs(sig[i])) * scale;
+            divergence += Math.abs(sig[i] - other) / other;
+        }
+        return (float) divergence;
+    }
+}
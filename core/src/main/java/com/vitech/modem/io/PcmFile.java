@@ -0,0 +1,255 @@
+package com.vitech.modem.io;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped WAV or raw PCM recording, read as float samples in <code>[-1, 1)</code> by absolute position.
+ *
+ * The file is mapped in regions of at most 1 GiB, so recordings of any length are read straight from the page cache
+ * without an <code>InputStream</code> or heap copy. Multichannel files are read as their first channel.
+ * Reads never move shared state, so any number of threads may read at once.
+ *
+ * Supported: 8-bit unsigned, 16/24/32-bit signed little-endian integer and 32-bit float PCM.
+ */
+public class PcmFile implements Closeable {
+    public enum Encoding {
+        PCM_UNSIGNED_8,
+        PCM_SIGNED_16,
+        PCM_SIGNED_24,
+        PCM_SIGNED_32,
+        PCM_FLOAT_32
+    }
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private static final long MAX_REGION_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int sampleRate;
+    private final int nChannels;
+    private final Encoding encoding;
+    private final int frameSize;
+    private final long nSamples;
+
+    private final long regionNSamples;
+    private final MappedByteBuffer[] regions;
+
+    private PcmFile(FileChannel channel, int sampleRate, int nChannels, Encoding encoding, long dataOffset, long dataSize) throws IOException {
+        this.channel = channel;
+        this.sampleRate = sampleRate;
+        this.nChannels = nChannels;
+        this.encoding = encoding;
+        this.frameSize = nChannels * bytesPerSample(encoding);
+        this.nSamples = dataSize / frameSize;
+
+        this.regionNSamples = MAX_REGION_BYTES / frameSize;
+        int nRegions = (int) ((nSamples + regionNSamples - 1) / regionNSamples);
+        this.regions = new MappedByteBuffer[nRegions];
+        for (int r = 0; r < nRegions; r++) {
+            long first = r * regionNSamples;
+            long size = Math.min(regionNSamples, nSamples - first) * frameSize;
+            regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + first * frameSize, size);
+            regions[r].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Opens a RIFF/WAVE file; the format comes from its <code>fmt </code> chunk.
+     */
+    public static PcmFile openWav(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) {   // "RIFF", "WAVE"
+                throw new IOException(path + " is not a WAV file");
+            }
+
+            int formatTag = -1;
+            int nChannels = 0;
+            int sampleRate = 0;
+            int bitsPerSample = 0;
+
+            ByteBuffer chunk = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            long position = 12;
+            while (true) {
+                chunk.clear();
+                readFully(channel, chunk, position);
+                int id = chunk.getInt(0);
+                long size = chunk.getInt(4) & 0xFFFFFFFFL;
+                position += 8;
+
+                if (id == 0x20746d66) {                                                // "fmt "
+                    ByteBuffer fmt = ByteBuffer.allocate((int) Math.min(size, 40)).order(ByteOrder.LITTLE_ENDIAN);
+                    readFully(channel, fmt, position);
+                    formatTag = fmt.getShort(0) & 0xFFFF;
+                    nChannels = fmt.getShort(2) & 0xFFFF;
+                    sampleRate = fmt.getInt(4);
+                    bitsPerSample = fmt.getShort(14) & 0xFFFF;
+                    if (formatTag == WAVE_FORMAT_EXTENSIBLE && fmt.capacity() >= 26) {
+                        // the sub-format GUID starts with the format tag
+                        formatTag = fmt.getShort(24) & 0xFFFF;
+                    }
+                } else if (id == 0x61746164) {                                         // "data"
+                    if (formatTag < 0 || nChannels <= 0 || sampleRate <= 0) {
+                        throw new IOException(path + ": missing or invalid fmt chunk");
+                    }
+                    // streaming writers leave the size unset
+                    long available = channel.size() - position;
+                    long dataSize = size == 0 || size == 0xFFFFFFFFL ? available : Math.min(size, available);
+                    return new PcmFile(channel, sampleRate, nChannels, encoding(formatTag, bitsPerSample, path), position, dataSize);
+                }
+
+                position += size + (size & 1);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a headerless little-endian PCM file, e.g. the output of <code>minimodem --tx</code> to a pipe.
+     */
+    public static PcmFile openRaw(Path path, int sampleRate, Encoding encoding, int nChannels) throws IOException {
+        Validate.isTrue(sampleRate > 0 && nChannels > 0, "sample rate and channel count must be positive");
+        Validate.notNull(encoding);
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new PcmFile(channel, sampleRate, nChannels, encoding, 0L, channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Encoding encoding(int formatTag, int bitsPerSample, Path path) throws IOException {
+        if (formatTag == WAVE_FORMAT_PCM) {
+            switch (bitsPerSample) {
+                case 8:
+                    return Encoding.PCM_UNSIGNED_8;
+                case 16:
+                    return Encoding.PCM_SIGNED_16;
+                case 24:
+                    return Encoding.PCM_SIGNED_24;
+                case 32:
+                    return Encoding.PCM_SIGNED_32;
+            }
+        } else if (formatTag == WAVE_FORMAT_IEEE_FLOAT && bitsPerSample == 32) {
+            return Encoding.PCM_FLOAT_32;
+        }
+        throw new IOException(String.format("%s: unsupported WAV format %d, %d bits", path, formatTag, bitsPerSample));
+    }
+
+    private static int bytesPerSample(Encoding encoding) {
+        switch (encoding) {
+            case PCM_UNSIGNED_8:
+                return 1;
+            case PCM_SIGNED_16:
+                return 2;
+            case PCM_SIGNED_24:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getNChannels() {
+        return nChannels;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Length of the recording, in samples of one channel.
+     */
+    public long getNSamples() {
+        return nSamples;
+    }
+
+    /**
+     * Converts up to <code>count</code> samples starting at sample <code>position</code> into <code>dst[offset, ...)</code>.
+     *
+     * @return number of samples read, less than <code>count</code> only at the end of the recording
+     */
+    public int read(long position, float[] dst, int offset, int count) {
+        Validate.isTrue(position >= 0, "negative position %d", position);
+        int total = (int) Math.max(0L, Math.min(count, nSamples - position));
+
+        int done = 0;
+        while (done < total) {
+            long sample = position + done;
+            int r = (int) (sample / regionNSamples);
+            int first = (int) (sample - r * regionNSamples);
+            int n = (int) Math.min(total - done, regionNSamples - first);
+            convert(regions[r], first, dst, offset + done, n);
+            done += n;
+        }
+        return total;
+    }
+
+    private void convert(ByteBuffer region, int first, float[] dst, int offset, int n) {
+        int index = first * frameSize;
+        switch (encoding) {
+            case PCM_UNSIGNED_8:
+                for (int i = 0; i < n; i++, index += frameSize) {
+                    dst[offset + i] = ((region.get(index) & 0xFF) - 128) / 128.0f;
+                }
+                break;
+            case PCM_SIGNED_16:
+                for (int i = 0; i < n; i++, index += frameSize) {
+                    dst[offset + i] = region.getShort(index) / 32768.0f;
+                }
+                break;
+            case PCM_SIGNED_24:
+                for (int i = 0; i < n; i++, index += frameSize) {
+                    int value = (region.get(index) & 0xFF) | (region.get(index + 1) & 0xFF) << 8 | region.get(index + 2) << 16;
+                    dst[offset + i] = value / 8388608.0f;
+                }
+                break;
+            case PCM_SIGNED_32:
+                for (int i = 0; i < n; i++, index += frameSize) {
+                    dst[offset + i] = region.getInt(index) / 2147483648.0f;
+                }
+                break;
+            case PCM_FLOAT_32:
+                for (int i = 0; i < n; i++, index += frameSize) {
+                    dst[offset + i] = region.getFloat(index);
+                }
+                break;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,302 @@
+package com.vitech.modem.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Operational counters of one demodulator. Recording only increments striped counters ({@link LongAdder}) and
+ * fixed-bucket {@link Histogram}s: it does not allocate, and JMX may read while the demodulator records.
+ *
+ * Readable over JMX once {@link #register(String) registered}, as
+ * <code>com.vitech.modem:type=FSKDemodulator,name=...</code>.
+ */
+public class DemodulatorMetrics implements DemodulatorMetricsMBean {
+    public static final String JMX_DOMAIN = "com.vitech.modem";
+
+    public enum Rejection {
+        BIT_MISMATCH,
+        BIT_SNR,
+        MAGNITUDE
+    }
+
+    private static final double[] CONFIDENCE_BOUNDS = { 1.0, 1.5, 2.0, 2.3, 3.0, 5.0, 10.0, 20.0, 50.0, 100.0 };
+    private static final double[] AMPLITUDE_BOUNDS = { 0.001, 0.003, 0.01, 0.03, 0.1, 0.3, 1.0 };
+
+    private final LongAdder framesDecoded = new LongAdder();
+    private final LongAdder[] framesRejected = new LongAdder[Rejection.values().length];
+    private final LongAdder carrierFound = new LongAdder();
+    private final LongAdder carrierLost = new LongAdder();
+    private final LongAdder samplesProcessed = new LongAdder();
+    private final LongAdder processingNanos = new LongAdder();
+    private final LongAdder carrierDetectionNanos = new LongAdder();
+    private final LongAdder frameSearchNanos = new LongAdder();
+    private final LongAdder blocksGated = new LongAdder();
+    private final LongAdder blocksPassed = new LongAdder();
+    private final LongAdder locksFound = new LongAdder();
+    private final LongAdder locksLost = new LongAdder();
+    private final Histogram confidence = new Histogram(CONFIDENCE_BOUNDS);
+    private final Histogram amplitude = new Histogram(AMPLITUDE_BOUNDS);
+
+    private ObjectName objectName;
+
+    public DemodulatorMetrics() {
+        for (int i = 0; i < framesRejected.length; i++) {
+            framesRejected[i] = new LongAdder();
+        }
+    }
+
+    public void recordFrame(double frameConfidence, double frameAmplitude) {
+        framesDecoded.increment();
+        confidence.record(frameConfidence);
+        amplitude.record(frameAmplitude);
+    }
+
+    /**
+     * A frame search that found no frame, by the reason its candidate closest to a frame failed; once per search,
+     * however many candidates it tried.
+     */
+    public void recordRejected(Rejection reason) {
+        framesRejected[reason.ordinal()].increment();
+    }
+
+    public void recordCarrierFound() {
+        carrierFound.increment();
+    }
+
+    public void recordCarrierLost() {
+        carrierLost.increment();
+    }
+
+    public void recordProcessing(long nSamples, long nanos) {
+        samplesProcessed.add(nSamples);
+        processingNanos.add(nanos);
+    }
+
+    public void recordCarrierDetection(long nanos) {
+        carrierDetectionNanos.add(nanos);
+    }
+
+    public void recordFrameSearch(long nanos) {
+        frameSearchNanos.add(nanos);
+    }
+
+    public void recordSquelch(boolean passed) {
+        (passed ? blocksPassed : blocksGated).increment();
+    }
+
+    public void recordLockFound() {
+        locksFound.increment();
+    }
+
+    public void recordLockLost() {
+        locksLost.increment();
+    }
+
+    /**
+     * Adds everything <code>other</code> has recorded, e.g. to total the demodulators of a batch.
+     */
+    public void add(DemodulatorMetrics other) {
+        framesDecoded.add(other.framesDecoded.sum());
+        for (int i = 0; i < framesRejected.length; i++) {
+            framesRejected[i].add(other.framesRejected[i].sum());
+        }
+        carrierFound.add(other.carrierFound.sum());
+        carrierLost.add(other.carrierLost.sum());
+        samplesProcessed.add(other.samplesProcessed.sum());
+        processingNanos.add(other.processingNanos.sum());
+        carrierDetectionNanos.add(other.carrierDetectionNanos.sum());
+        frameSearchNanos.add(other.frameSearchNanos.sum());
+        blocksGated.add(other.blocksGated.sum());
+        blocksPassed.add(other.blocksPassed.sum());
+        locksFound.add(other.locksFound.sum());
+        locksLost.add(other.locksLost.sum());
+        confidence.add(other.confidence);
+        amplitude.add(other.amplitude);
+    }
+
+    public long getFramesRejected(Rejection reason) {
+        return framesRejected[reason.ordinal()].sum();
+    }
+
+    public Histogram getConfidence() {
+        return confidence;
+    }
+
+    public Histogram getAmplitude() {
+        return amplitude;
+    }
+
+    @Override
+    public long getFramesDecoded() {
+        return framesDecoded.sum();
+    }
+
+    @Override
+    public long getFramesRejectedBitMismatch() {
+        return getFramesRejected(Rejection.BIT_MISMATCH);
+    }
+
+    @Override
+    public long getFramesRejectedBitSnr() {
+        return getFramesRejected(Rejection.BIT_SNR);
+    }
+
+    @Override
+    public long getFramesRejectedMagnitude() {
+        return getFramesRejected(Rejection.MAGNITUDE);
+    }
+
+    @Override
+    public long getCarrierFoundCount() {
+        return carrierFound.sum();
+    }
+
+    @Override
+    public long getCarrierLostCount() {
+        return carrierLost.sum();
+    }
+
+    @Override
+    public long getSamplesProcessed() {
+        return samplesProcessed.sum();
+    }
+
+    @Override
+    public double getSamplesPerSecond() {
+        long nanos = processingNanos.sum();
+        return nanos > 0 ? samplesProcessed.sum() * 1e9 / nanos : 0.0;
+    }
+
+    @Override
+    public long getProcessingNanos() {
+        return processingNanos.sum();
+    }
+
+    @Override
+    public long getCarrierDetectionNanos() {
+        return carrierDetectionNanos.sum();
+    }
+
+    @Override
+    public long getFrameSearchNanos() {
+        return frameSearchNanos.sum();
+    }
+
+    @Override
+    public long getBlocksGated() {
+        return blocksGated.sum();
+    }
+
+    @Override
+    public long getBlocksPassed() {
+        return blocksPassed.sum();
+    }
+
+    @Override
+    public long getLockFoundCount() {
+        return locksFound.sum();
+    }
+
+    @Override
+    public long getLockLostCount() {
+        return locksLost.sum();
+    }
+
+    @Override
+    public double[] getConfidenceBucketBounds() {
+        return confidence.getBounds();
+    }
+
+    @Override
+    public long[] getConfidenceHistogram() {
+        return confidence.getCounts();
+    }
+
+    @Override
+    public double getConfidenceMean() {
+        return confidence.getMean();
+    }
+
+    @Override
+    public double[] getAmplitudeBucketBounds() {
+        return amplitude.getBounds();
+    }
+
+    @Override
+    public long[] getAmplitudeHistogram() {
+        return amplitude.getCounts();
+    }
+
+    @Override
+    public double getAmplitudeMean() {
+        return amplitude.getMean();
+    }
+
+    @Override
+    public void reset() {
+        framesDecoded.reset();
+        for (LongAdder rejected : framesRejected) {
+            rejected.reset();
+        }
+        carrierFound.reset();
+        carrierLost.reset();
+        samplesProcessed.reset();
+        processingNanos.reset();
+        carrierDetectionNanos.reset();
+        frameSearchNanos.reset();
+        blocksGated.reset();
+        blocksPassed.reset();
+        locksFound.reset();
+        locksLost.reset();
+        confidence.reset();
+        amplitude.reset();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under <code>name</code>, e.g. a channel id.
+     */
+    public synchronized ObjectName register(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("already registered as " + objectName);
+        }
+
+        try {
+            ObjectName registered = new ObjectName(JMX_DOMAIN + ":type=FSKDemodulator,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, registered);
+            objectName = registered;
+            return registered;
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register metrics " + name, e);
+        }
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if registered.
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister metrics " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    /**
+     * Name under which these metrics are registered, or null.
+     */
+    public synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+}
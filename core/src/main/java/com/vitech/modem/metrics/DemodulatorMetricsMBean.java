@@ -0,0 +1,60 @@
+package com.vitech.modem.metrics;
+
+/**
+ * JMX view of {@link DemodulatorMetrics}.
+ */
+public interface DemodulatorMetricsMBean {
+    long getFramesDecoded();
+
+    /** Frame searches given up because the closest candidate's start or stop bit did not match */
+    long getFramesRejectedBitMismatch();
+
+    /** Frame searches given up because the closest candidate had a bit below <code>FSK_MIN_BIT_SNR</code> */
+    long getFramesRejectedBitSnr();
+
+    /** Frame searches given up because the closest candidate was below <code>FSK_MIN_MAGNITUDE</code> */
+    long getFramesRejectedMagnitude();
+
+    long getCarrierFoundCount();
+
+    long getCarrierLostCount();
+
+    long getSamplesProcessed();
+
+    /** Samples analyzed per second of processing time, i.e. the sustainable input rate */
+    double getSamplesPerSecond();
+
+    long getProcessingNanos();
+
+    /** Time spent in carrier detection transforms */
+    long getCarrierDetectionNanos();
+
+    /** Time spent in frame search bit analysis */
+    long getFrameSearchNanos();
+
+    /** Carrier detection blocks the squelch skipped */
+    long getBlocksGated();
+
+    /** Carrier detection blocks the squelch let through to spectral analysis */
+    long getBlocksPassed();
+
+    /** Frame timing locks established */
+    long getLockFoundCount();
+
+    /** Frame timing locks lost to a weak or misplaced frame, including at the end of each transmission */
+    long getLockLostCount();
+
+    double[] getConfidenceBucketBounds();
+
+    long[] getConfidenceHistogram();
+
+    double getConfidenceMean();
+
+    double[] getAmplitudeBucketBounds();
+
+    long[] getAmplitudeHistogram();
+
+    double getAmplitudeMean();
+
+    void reset();
+}
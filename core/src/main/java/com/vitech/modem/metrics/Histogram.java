@@ -0,0 +1,127 @@
+package com.vitech.modem.metrics;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of a value over fixed buckets; recording is a bucket search and striped counter increments,
+ * with no allocation, and may happen from any number of threads.
+ *
+ * Bucket <code>i</code> counts the values up to <code>bounds[i]</code> (inclusive) and above the previous bound;
+ * the last bucket counts the values above the last bound.
+ */
+public class Histogram {
+    private final double[] bounds;
+    private final LongAdder[] counts;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * @param bounds    ascending upper bounds of the buckets
+     */
+    public Histogram(double... bounds) {
+        Validate.isTrue(bounds.length > 0, "at least one bucket bound expected");
+        for (int i = 1; i < bounds.length; i++) {
+            Validate.isTrue(bounds[i - 1] < bounds[i], "bucket bounds must be ascending: %f, %f", bounds[i - 1], bounds[i]);
+        }
+
+        this.bounds = bounds.clone();
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(double value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (value <= bounds[middle]) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        counts[low].increment();
+        sum.add(value);
+    }
+
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Snapshot of the bucket counts, one more than {@link #getBounds()}.
+     */
+    public long[] getCounts() {
+        long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Mean of the recorded values, or NaN if there are none.
+     */
+    public double getMean() {
+        long count = getCount();
+        return count > 0 ? sum.sum() / count : Double.NaN;
+    }
+
+    /**
+     * Upper bound of the bucket holding the <code>q</code> quantile of the recorded values: at least that share of
+     * them is at or below it. Infinity if it falls in the last bucket, NaN if there are no values.
+     */
+    public double getQuantileBound(double q) {
+        Validate.isTrue(q >= 0.0 && q <= 1.0, "quantile must be within [0, 1]: %f", q);
+        long[] snapshot = getCounts();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return bounds[i];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Adds the values recorded by <code>other</code>, which must have the same bounds.
+     */
+    public void add(Histogram other) {
+        Validate.isTrue(Arrays.equals(bounds, other.bounds), "histograms have different buckets");
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].add(other.counts[i].sum());
+        }
+        sum.add(other.sum.sum());
+    }
+
+    public void reset() {
+        for (LongAdder bucket : counts) {
+            bucket.reset();
+        }
+        sum.reset();
+    }
+}
@@ -0,0 +1,69 @@
+package com.vitech.modem.pipeline;
+
+import com.vitech.modem.Transcoder;
+import com.vitech.modem.dsp.Decimator;
+import org.apache.commons.lang3.Validate;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Float samples in, the same low-passed and decimated by a {@link Decimator} out. Once the input ends, the
+ * filter is flushed with {@link Decimator#getNTaps()} samples of silence, so the last samples come out whole.
+ */
+public class DecimateStage extends Transcoder {
+    private static final int BLOCK_NSAMPLES = 4096;
+
+    private final Decimator decimator;
+    private final float[] samples = new float[BLOCK_NSAMPLES];
+    private final float[] decimated;
+    // silent samples still to flush the filter with, -1 before the end of input
+    private int tail = -1;
+
+    public DecimateStage(Decimator decimator) {
+        Validate.notNull(decimator);
+        this.decimator = decimator;
+        this.decimated = new float[decimator.getMaxOutput(BLOCK_NSAMPLES)];
+    }
+
+    public Decimator getDecimator() {
+        return decimator;
+    }
+
+    @Override
+    public void run() {
+        ByteBuffer in = getInputBuffer();
+        int n = Math.min(in.remaining() / Float.BYTES, capacity());
+        for (int i = 0; i < n; i++) {
+            samples[i] = in.getFloat();
+        }
+        decimate(n);
+    }
+
+    @Override
+    public boolean finish() {
+        if (tail < 0) {
+            tail = decimator.getNTaps();
+            Arrays.fill(samples, 0.0f);
+        }
+        int n = Math.min(tail, capacity());
+        decimate(n);
+        tail -= n;
+        return tail == 0;
+    }
+
+    /**
+     * Input samples whose output fits in the output buffer for sure.
+     */
+    private int capacity() {
+        return Math.min(BLOCK_NSAMPLES, getOutputBuffer().remaining() / Float.BYTES * decimator.getFactor());
+    }
+
+    private void decimate(int n) {
+        ByteBuffer out = getOutputBuffer();
+        int m = decimator.process(samples, 0, n, decimated, 0);
+        for (int i = 0; i < m; i++) {
+            out.putFloat(decimated[i]);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.vitech.modem.pipeline;
+
+import com.vitech.modem.FSKDemodulator;
+import com.vitech.modem.Transcoder;
+import org.apache.commons.lang3.Validate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Float samples in, decoded characters out: carrier detection, frame search and data bits decoding, through
+ * {@link FSKDemodulator#write(float[], int, int)}. These share the analysis window and the carrier and lock
+ * state, so they run as one stage.
+ *
+ * What the demodulator writes is held until the output buffer has room; no input is read meanwhile.
+ */
+public class DemodulateStage extends Transcoder {
+    private static final int BLOCK_NSAMPLES = 4096;
+
+    private final FSKDemodulator demodulator;
+    private final float[] samples = new float[BLOCK_NSAMPLES];
+    private final Pending pending = new Pending();
+    private boolean flushed;
+
+    /**
+     * @param demodulator   set up for the sample rate of the input; its output stream is replaced
+     */
+    public DemodulateStage(FSKDemodulator demodulator) {
+        Validate.notNull(demodulator);
+        this.demodulator = demodulator;
+        demodulator.setOutputStream(pending);
+    }
+
+    public FSKDemodulator getDemodulator() {
+        return demodulator;
+    }
+
+    @Override
+    public void run() {
+        if (pending.drainTo(getOutputBuffer())) {
+            ByteBuffer in = getInputBuffer();
+            int n = Math.min(in.remaining() / Float.BYTES, BLOCK_NSAMPLES);
+            for (int i = 0; i < n; i++) {
+                samples[i] = in.getFloat();
+            }
+            try {
+                demodulator.write(samples, 0, n);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pending.drainTo(getOutputBuffer());
+        }
+    }
+
+    @Override
+    public boolean finish() {
+        if (!flushed) {
+            flushed = true;
+            try {
+                demodulator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return pending.drainTo(getOutputBuffer());
+    }
+
+    /**
+     * Demodulator output not yet passed on.
+     */
+    private static final class Pending extends ByteArrayOutputStream {
+        private int drained;
+
+        /**
+         * @return whether everything has been drained
+         */
+        boolean drainTo(ByteBuffer out) {
+            int n = Math.min(count - drained, out.remaining());
+            out.put(buf, drained, n);
+            drained += n;
+            if (drained < count) {
+                return false;
+            }
+            reset();
+            drained = 0;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.vitech.modem.pipeline;
+
+import com.vitech.modem.Transcoder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 16-bit signed little-endian mono PCM in, float samples in [-1, 1) out, in the output buffer's byte order.
+ */
+public class PcmDecodeStage extends Transcoder {
+    // low byte of a sample split across input buffers, or -1
+    private int carry = -1;
+
+    @Override
+    public void run() {
+        ByteBuffer in = getInputBuffer();
+        ByteBuffer out = getOutputBuffer();
+
+        if (carry >= 0 && in.hasRemaining() && out.remaining() >= Float.BYTES) {
+            out.putFloat(((in.get() << 8) | carry) / 32768.0f);
+            carry = -1;
+        }
+        while (in.remaining() >= 2 && out.remaining() >= Float.BYTES) {
+            int lo = in.get() & 0xff;
+            int hi = in.get();
+            out.putFloat(((hi << 8) | lo) / 32768.0f);
+        }
+        if (in.remaining() == 1) {
+            carry = in.get() & 0xff;
+        }
+    }
+}
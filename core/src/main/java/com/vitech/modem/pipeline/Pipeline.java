@@ -0,0 +1,535 @@
+package com.vitech.modem.pipeline;
+
+import com.vitech.modem.Transcoder;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Chain of {@link Transcoder} stages, each running in its own thread or in batches on a shared executor.
+ *
+ * Consecutive stages are linked by two {@link SpscQueue}s: one carries filled buffers downstream, the other
+ * returns them empty. Each link owns {@link Builder#setQueueDepth(int)} buffers, allocated once: a stage that
+ * runs ahead waits for its consumer to hand one back, so memory stays bounded and nothing is allocated per buffer.
+ * The first stage reads what is passed to {@link #write}, the output of the last goes to the sink.
+ *
+ * Each {@link Stage} counts its input, output, busy time and stalls, and shows the depth of its input queue:
+ * a stage with a full input queue is slower than the one feeding it.
+ */
+public class Pipeline {
+    public static final int DEFAULT_BUFFER_BYTES = 16384;
+    public static final int DEFAULT_QUEUE_DEPTH = 4;
+
+    private static final long MAX_PARK_NANOS = 1000000L;
+
+    private final List<Stage> stages;
+    private final Link input;
+    private final OutputStream sink;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicInteger running;
+
+    private ByteBuffer writing;
+    private boolean started;
+    private volatile boolean stopped;
+    private volatile Stage failedStage;
+    private volatile Throwable failure;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final List<String> names = new ArrayList<String>();
+        private final List<Transcoder> transcoders = new ArrayList<Transcoder>();
+        private int bufferBytes = DEFAULT_BUFFER_BYTES;
+        private int queueDepth = DEFAULT_QUEUE_DEPTH;
+        private OutputStream sink;
+
+        private Builder() {
+        }
+
+        /**
+         * Size of every buffer passed between stages, a whole number of float samples; a stage writing more per
+         * input buffer splits its output.
+         */
+        public Builder setBufferBytes(int bufferBytes) {
+            Validate.isTrue(bufferBytes > 0 && bufferBytes % Float.BYTES == 0,
+                    "buffer size must be a positive multiple of %d: %d", Float.BYTES, bufferBytes);
+            this.bufferBytes = bufferBytes;
+            return this;
+        }
+
+        /**
+         * Buffers per link, so at most this many are queued in front of a stage.
+         */
+        public Builder setQueueDepth(int queueDepth) {
+            Validate.isTrue(queueDepth > 0, "queue depth must be positive: %d", queueDepth);
+            this.queueDepth = queueDepth;
+            return this;
+        }
+
+        public Builder addStage(String name, Transcoder transcoder) {
+            Validate.notNull(name);
+            Validate.notNull(transcoder);
+            names.add(name);
+            transcoders.add(transcoder);
+            return this;
+        }
+
+        /**
+         * Where the output of the last stage is written, from that stage's thread.
+         */
+        public Builder setSink(OutputStream sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        public Pipeline build() {
+            Validate.validState(!transcoders.isEmpty(), "no stages");
+            Validate.validState(sink != null, "sink is not set");
+            return new Pipeline(this);
+        }
+    }
+
+    private Pipeline(Builder builder) {
+        this.sink = builder.sink;
+        this.input = new Link(builder.queueDepth, builder.bufferBytes);
+
+        List<Stage> stages = new ArrayList<Stage>();
+        Link in = input;
+        for (int i = 0; i < builder.transcoders.size(); i++) {
+            boolean last = i == builder.transcoders.size() - 1;
+            Link out = last ? null : new Link(builder.queueDepth, builder.bufferBytes);
+            stages.add(new Stage(i, builder.names.get(i), builder.transcoders.get(i), in, out, builder.bufferBytes));
+            in = out;
+        }
+        this.stages = Collections.unmodifiableList(stages);
+        this.running = new AtomicInteger(stages.size());
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Runs every stage in a thread of its own, which waits for input or room by spinning, then parking.
+     */
+    public synchronized void start() {
+        Validate.validState(!started, "already started");
+        started = true;
+        for (final Stage stage : stages) {
+            Thread thread = new Thread(stage::runPinned, "pipeline-" + stage.getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Runs the stages as tasks of <code>executor</code>, scheduled when their input or room changes. A task
+     * processes at most <code>batch</code> buffers before making way for the other tasks.
+     */
+    public synchronized void start(Executor executor, int batch) {
+        Validate.notNull(executor);
+        Validate.isTrue(batch > 0, "batch must be positive: %d", batch);
+        Validate.validState(!started, "already started");
+        started = true;
+        for (Stage stage : stages) {
+            stage.executor = executor;
+            stage.batch = batch;
+            stage.signal();
+        }
+    }
+
+    /**
+     * Feeds <code>src[from, from + count)</code> to the first stage, waiting while all its buffers are in use.
+     * Not thread safe: one writer only.
+     */
+    public void write(byte[] src, int from, int count) throws IOException {
+        while (count > 0) {
+            if (writing == null) {
+                writing = awaitFree();
+            }
+            int n = Math.min(count, writing.remaining());
+            writing.put(src, from, n);
+            from += n;
+            count -= n;
+            if (!writing.hasRemaining()) {
+                shipInput();
+            }
+        }
+    }
+
+    /**
+     * Feeds the whole of <code>in</code>, then ends the input.
+     */
+    public void transfer(InputStream in) throws IOException {
+        byte[] block = new byte[input.bufferBytes];
+        for (int n; (n = in.read(block)) >= 0; ) {
+            write(block, 0, n);
+        }
+        endInput();
+    }
+
+    /**
+     * Marks the end of the input: the stages finish what they hold, one after the other.
+     */
+    public void endInput() throws IOException {
+        if (writing != null && writing.position() > 0) {
+            shipInput();
+        }
+        input.ended = true;
+        stages.get(0).signal();
+    }
+
+    /**
+     * Waits until the last stage has finished, or one has failed.
+     *
+     * @throws IOException  if a stage failed; the others have been stopped
+     */
+    public void await() throws IOException, InterruptedException {
+        done.await();
+        if (failure != null) {
+            throw new IOException("stage " + failedStage.getName() + " failed", failure);
+        }
+    }
+
+    /**
+     * Stops every stage as soon as it is done with its current buffer; what is queued is lost.
+     */
+    public void stop() {
+        stopped = true;
+        done.countDown();
+    }
+
+    private ByteBuffer awaitFree() throws IOException {
+        long parkNanos = 1000L;
+        int spins = 0;
+        while (true) {
+            checkRunning();
+            ByteBuffer buffer = input.free.poll();
+            if (buffer != null) {
+                buffer.clear();
+                return buffer;
+            }
+            if (spins++ < 100) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+
+    private void shipInput() throws IOException {
+        checkRunning();
+        writing.flip();
+        input.full.offer(writing);
+        writing = null;
+        stages.get(0).signal();
+    }
+
+    private void checkRunning() throws IOException {
+        if (failure != null) {
+            throw new IOException("stage " + failedStage.getName() + " failed", failure);
+        }
+        if (stopped) {
+            throw new IOException("pipeline stopped");
+        }
+    }
+
+    private void fail(Stage stage, Throwable e) {
+        if (failure == null) {
+            failedStage = stage;
+            failure = e;
+        }
+        stop();
+    }
+
+    /**
+     * Buffers between two stages: filled ones go down, empty ones come back.
+     */
+    private static final class Link {
+        private final int bufferBytes;
+        private final SpscQueue<ByteBuffer> full;
+        private final SpscQueue<ByteBuffer> free;
+        // set by the producer after its last buffer
+        private volatile boolean ended;
+
+        Link(int depth, int bufferBytes) {
+            this.bufferBytes = bufferBytes;
+            this.full = new SpscQueue<ByteBuffer>(depth);
+            this.free = new SpscQueue<ByteBuffer>(depth);
+            for (int i = 0; i < depth; i++) {
+                free.offer(ByteBuffer.allocate(bufferBytes).order(ByteOrder.nativeOrder()));
+            }
+        }
+    }
+
+    /**
+     * One transcoder and its counters. The counters are written by the stage only, and may be read from any thread.
+     */
+    public final class Stage {
+        private final int index;
+        private final String name;
+        private final Transcoder transcoder;
+        private final Link in;
+        private final Link out;
+        private final ByteBuffer sinkBuffer;
+
+        // executor mode: pending signals, a run is scheduled while not 0
+        private final AtomicInteger signals = new AtomicInteger();
+        private Executor executor;
+        private int batch;
+
+        private ByteBuffer inputBuffer;
+        private ByteBuffer outputBuffer;
+        private volatile boolean finished;
+
+        private volatile long buffersIn;
+        private volatile long bytesIn;
+        private volatile long bytesOut;
+        private volatile long busyNanos;
+        private volatile long stalls;
+
+        Stage(int index, String name, Transcoder transcoder, Link in, Link out, int bufferBytes) {
+            this.index = index;
+            this.name = name;
+            this.transcoder = transcoder;
+            this.in = in;
+            this.out = out;
+            this.sinkBuffer = out == null ? ByteBuffer.allocate(bufferBytes).order(ByteOrder.nativeOrder()) : null;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Transcoder getTranscoder() {
+            return transcoder;
+        }
+
+        /**
+         * Buffers waiting in front of this stage.
+         */
+        public int getQueueDepth() {
+            return in.full.size();
+        }
+
+        public int getQueueCapacity() {
+            return in.full.getCapacity();
+        }
+
+        public long getBuffersIn() {
+            return buffersIn;
+        }
+
+        public long getBytesIn() {
+            return bytesIn;
+        }
+
+        public long getBytesOut() {
+            return bytesOut;
+        }
+
+        /**
+         * Time spent in the transcoder, excluding waits.
+         */
+        public long getBusyNanos() {
+            return busyNanos;
+        }
+
+        /**
+         * Times the stage had input but had to wait for its consumer to return a buffer.
+         */
+        public long getStalls() {
+            return stalls;
+        }
+
+        /**
+         * Input bytes per second of busy time: the most this stage can take.
+         */
+        public double getBytesPerSecond() {
+            long nanos = busyNanos;
+            return nanos > 0 ? bytesIn * 1e9 / nanos : 0.0;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: queue %d/%d, %d bytes in, %d bytes out, %.1f MB/s, %d stalls", name, getQueueDepth(),
+                    getQueueCapacity(), bytesIn, bytesOut, getBytesPerSecond() / 1e6, stalls);
+        }
+
+        private void runPinned() {
+            long parkNanos = 1000L;
+            int spins = 0;
+            while (!stopped && !finished) {
+                if (step()) {
+                    parkNanos = 1000L;
+                    spins = 0;
+                } else if (spins++ < 100) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+                }
+            }
+        }
+
+        private void signal() {
+            if (executor != null && !finished && !stopped && signals.getAndIncrement() == 0) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this::runBatch);
+            } catch (RejectedExecutionException e) {
+                fail(this, e);
+            }
+        }
+
+        private void runBatch() {
+            int pending = signals.get();
+            while (true) {
+                int steps = 0;
+                while (steps < batch && !stopped && !finished && step()) {
+                    steps++;
+                }
+                if (steps == batch && !finished && !stopped) {
+                    // more to do: requeue, still counted as scheduled, so that the other stages get a turn
+                    schedule();
+                    return;
+                }
+                pending = signals.addAndGet(-pending);
+                if (pending == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return whether anything was read, written or finished
+         */
+        private boolean step() {
+            try {
+                return transcode();
+            } catch (IOException | RuntimeException e) {
+                fail(this, e);
+                return false;
+            }
+        }
+
+        private boolean transcode() throws IOException {
+            if (inputBuffer == null) {
+                boolean ended = in.ended;
+                inputBuffer = in.full.poll();
+                if (inputBuffer == null) {
+                    return ended && finish();
+                }
+                buffersIn++;
+                bytesIn += inputBuffer.remaining();
+            }
+
+            if (!acquireOutput()) {
+                stalls++;
+                return false;
+            }
+
+            transcoder.setInputBuffer(inputBuffer);
+            transcoder.setOutputBuffer(outputBuffer);
+            int read = inputBuffer.position();
+            int written = outputBuffer.position();
+            long start = System.nanoTime();
+            transcoder.run();
+            busyNanos += System.nanoTime() - start;
+
+            boolean progress = inputBuffer.position() != read || outputBuffer.position() != written;
+            Validate.validState(progress || !outputBuffer.hasRemaining(), "stage %s made no progress", name);
+
+            if (!inputBuffer.hasRemaining()) {
+                in.free.offer(inputBuffer);
+                inputBuffer = null;
+                if (index > 0) {
+                    stages.get(index - 1).signal();
+                }
+            }
+            // pass output on when full, or when it holds all this input made
+            if (!outputBuffer.hasRemaining() || inputBuffer == null && outputBuffer.position() > 0) {
+                shipOutput();
+            }
+            return true;
+        }
+
+        /**
+         * Once the input has ended: lets the transcoder write out what it holds, then ends the output.
+         */
+        private boolean finish() throws IOException {
+            if (!acquireOutput()) {
+                stalls++;
+                return false;
+            }
+
+            transcoder.setInputBuffer(null);
+            transcoder.setOutputBuffer(outputBuffer);
+            long start = System.nanoTime();
+            boolean complete = transcoder.finish();
+            busyNanos += System.nanoTime() - start;
+
+            if (outputBuffer.position() > 0) {
+                shipOutput();
+            }
+            if (complete) {
+                finished = true;
+                if (out != null) {
+                    out.ended = true;
+                    stages.get(index + 1).signal();
+                }
+                if (running.decrementAndGet() == 0) {
+                    done.countDown();
+                }
+            }
+            return true;
+        }
+
+        private boolean acquireOutput() {
+            if (outputBuffer == null) {
+                outputBuffer = out == null ? sinkBuffer : out.free.poll();
+                if (outputBuffer == null) {
+                    return false;
+                }
+                outputBuffer.clear();
+            }
+            return true;
+        }
+
+        private void shipOutput() throws IOException {
+            outputBuffer.flip();
+            bytesOut += outputBuffer.remaining();
+            if (out == null) {
+                sink.write(outputBuffer.array(), outputBuffer.arrayOffset(), outputBuffer.remaining());
+                outputBuffer = null;
+                return;
+            }
+            out.full.offer(outputBuffer);
+            outputBuffer = null;
+            stages.get(index + 1).signal();
+        }
+    }
+}
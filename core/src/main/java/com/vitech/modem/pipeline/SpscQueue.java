@@ -0,0 +1,75 @@
+package com.vitech.modem.pipeline;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue for one producer thread and one consumer thread, without locks.
+ *
+ * As in {@link com.vitech.modem.SampleRingBuffer}, each side advances its own count and only reads the other's:
+ * the producer publishes an element by advancing the tail after storing it, the consumer frees its slot by
+ * advancing the head after taking it.
+ */
+public final class SpscQueue<E> {
+    private final Object[] elements;
+    private final int capacity;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public SpscQueue(int capacity) {
+        Validate.isTrue(capacity > 0, "capacity must be positive: %d", capacity);
+        this.capacity = capacity;
+        this.elements = new Object[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Number of elements queued; exact only on the producer or consumer thread, an estimate elsewhere.
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Producer side: appends <code>element</code> unless the queue is full.
+     *
+     * @return whether it was queued
+     */
+    public boolean offer(E element) {
+        Validate.notNull(element);
+        long t = tail.get();
+        if (t - head.get() >= capacity) {
+            return false;
+        }
+        elements[(int) (t % capacity)] = element;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side: takes the oldest element.
+     *
+     * @return the element, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int index = (int) (h % capacity);
+        E element = (E) elements[index];
+        elements[index] = null;
+        head.lazySet(h + 1);
+        return element;
+    }
+}
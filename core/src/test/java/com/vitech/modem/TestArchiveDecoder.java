@@ -0,0 +1,68 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.ASCII;
+import com.vitech.modem.io.PcmFile;
+import com.vitech.modem.io.WavFiles;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestArchiveDecoder {
+    private static final int SAMPLE_RATE = 9600;
+    private static final float BAUD_RATE = 300;
+    private static final float MARK = 1200;
+    private static final float SPACE = 2100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decodesSegmentsInOrder() throws IOException {
+        StringBuilder text = new StringBuilder();
+        FSKModulator modulator = new FSKModulator(SAMPLE_RATE, BAUD_RATE, MARK, SPACE, 8, 1.0f, new ASCII());
+        float[] samples = new float[40 * SAMPLE_RATE];
+        int n = 0;
+
+        for (int burst = 0; burst < 12; burst++) {
+            // every third burst is long enough to be cut in the middle
+            String message = burst % 3 == 2 ? "a continuous transmission of burst " + burst + " spanning segments\n" : "burst " + burst + "\n";
+            text.append(message);
+
+            n += modulator.idle(2.0f, samples, n);
+            n += modulator.modulate(message.getBytes(), 0, message.length(), samples, n);
+            n += modulator.idle(2.0f, samples, n);
+            // a quarter second of silence
+            n += SAMPLE_RATE / 4;
+        }
+
+        File file = folder.newFile("archive.wav");
+        Files.write(file.toPath(), WavFiles.mono16(SAMPLE_RATE, samples, n, 0.5f));
+
+        ArchiveDecoder decoder = new ArchiveDecoder(() -> new FSKDemodulator(SAMPLE_RATE, BAUD_RATE, MARK, SPACE, 8, new ASCII(), FskConfig.builder().build()));
+        decoder.setSegmentSeconds(0.7f);
+        decoder.setSearchSeconds(2.0f);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        decoder.setPool(pool);
+
+        try (PcmFile file1 = PcmFile.openWav(file.toPath())) {
+            List<ArchiveDecoder.Segment> segments = decoder.split(file1);
+            Assert.assertTrue(segments.size() > 5);
+            Assert.assertEquals(0L, segments.get(0).getStart());
+            Assert.assertEquals(file1.getNSamples(), segments.get(segments.size() - 1).getEnd());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            decoder.decode(file1, out);
+            Assert.assertEquals(text.toString(), new String(out.toByteArray()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
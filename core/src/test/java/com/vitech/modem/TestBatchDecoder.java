@@ -0,0 +1,136 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.ASCII;
+import com.vitech.modem.io.WavFiles;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestBatchDecoder {
+    private static final int SAMPLE_RATE = 9600;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decodesFilesInParallel() throws Exception {
+        File captures = folder.newFolder("captures");
+        File out = folder.newFolder("out");
+        String[] texts = { "first file\n", "second file, a little longer than the first\n", "third\n" };
+        for (int i = 0; i < texts.length; i++) {
+            write(new File(captures, "capture" + i + ".wav"), texts[i]);
+        }
+        Files.write(new File(captures, "broken.wav").toPath(), "not a wav file".getBytes());
+
+        BatchDecoder decoder = new BatchDecoder(rate -> new FSKDemodulator(rate, 300, 1200, 2100, 8, new ASCII(), FskConfig.builder().build()));
+        decoder.setOutputDirectory(out.toPath());
+        // segments end at the silence after each transmission
+        decoder.setSegmentSeconds(0.5f);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        decoder.setPool(pool);
+
+        BatchDecoder.Report report;
+        try {
+            report = decoder.decode(BatchDecoder.listInputs(captures.getPath()));
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals(4, report.getFiles().size());
+        Assert.assertEquals(1, report.getFailedCount());
+        Assert.assertTrue(report.getFiles().get(0).isFailed());
+        for (int i = 0; i < texts.length; i++) {
+            BatchDecoder.FileResult result = report.getFiles().get(i + 1);
+            Assert.assertFalse(result.isFailed());
+            Assert.assertEquals(new File(out, "capture" + i + ".txt").toPath(), result.getOutput());
+            Assert.assertEquals(texts[i], new String(Files.readAllBytes(result.getOutput())));
+            Assert.assertTrue(result.getMetrics().getFramesDecoded() >= texts[i].length());
+            Assert.assertTrue(result.getMetrics().getConfidenceMean() > 2.0);
+        }
+        Assert.assertTrue(report.getAudioSeconds() > 3.0);
+        Assert.assertTrue(report.getAudioSecondsPerSecond() > 0.0);
+    }
+
+    @Test
+    public void keepsLayoutOfInputsInOutputDirectory() throws Exception {
+        File captures = folder.newFolder("captures");
+        File out = folder.newFolder("out");
+        File[] inputs = { new File(folder.newFolder("captures", "a"), "x.wav"), new File(folder.newFolder("captures", "b"), "x.wav") };
+        write(inputs[0], "from a\n");
+        write(inputs[1], "from b, which is longer\n");
+        // same name as a/x.wav but for its extension
+        Files.copy(inputs[0].toPath(), new File(captures, "a/x.WAV").toPath());
+
+        BatchDecoder decoder = new BatchDecoder(rate -> new FSKDemodulator(rate, 300, 1200, 2100, 8, new ASCII(), FskConfig.builder().build()));
+        decoder.setOutputDirectory(out.toPath());
+        decoder.setSegmentSeconds(0.5f);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        decoder.setPool(pool);
+
+        // b/x.wav is listed twice
+        List<Path> listed = new ArrayList<Path>(BatchDecoder.listInputs(captures.getPath() + "/**.{wav,WAV}"));
+        listed.add(inputs[1].toPath());
+        BatchDecoder.Report report;
+        try {
+            report = decoder.decode(listed);
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals(3, report.getFiles().size());
+        Assert.assertEquals(1, report.getFailedCount());
+        Assert.assertEquals("from a\n", new String(Files.readAllBytes(new File(out, "a/x.txt").toPath())));
+        Assert.assertEquals("from b, which is longer\n", new String(Files.readAllBytes(new File(out, "b/x.txt").toPath())));
+        Assert.assertTrue(report.getFiles().get(1).isFailed());
+        // listed after a/x.WAV, which sorts first
+        Assert.assertEquals(inputs[0].toPath(), report.getFiles().get(1).getInput());
+    }
+
+    @Test
+    public void listsGlobMatches() throws IOException {
+        File captures = folder.newFolder("captures");
+        File day = folder.newFolder("captures", "day1");
+        for (File file : new File[] { new File(captures, "a.wav"), new File(captures, "b.raw"), new File(day, "c.wav") }) {
+            Files.write(file.toPath(), new byte[0]);
+        }
+
+        List<Path> flat = BatchDecoder.listInputs(captures.getPath() + "/*.wav");
+        Assert.assertEquals(Arrays.asList(new File(captures, "a.wav").toPath()), flat);
+
+        List<Path> deep = BatchDecoder.listInputs(captures.getPath() + "/**.wav");
+        Assert.assertEquals(Arrays.asList(new File(captures, "a.wav").toPath(), new File(day, "c.wav").toPath()), deep);
+
+        Assert.assertEquals(flat, BatchDecoder.listInputs(captures.getPath()));
+    }
+
+    @Test
+    public void namesOutputAfterInput() {
+        BatchDecoder decoder = new BatchDecoder(rate -> null);
+        Assert.assertEquals(new File("/data/capture.txt").toPath(), decoder.getOutput(new File("/data/capture.wav").toPath()));
+        decoder.setOutputSuffix(".decoded");
+        Assert.assertEquals(new File("/data/capture.decoded").toPath(), decoder.getOutput(new File("/data/capture").toPath()));
+    }
+
+    /**
+     * <code>text</code> between a second of idle mark and a second of silence, as 16-bit mono WAV.
+     */
+    private static void write(File file, String text) throws IOException {
+        FSKModulator modulator = new FSKModulator(SAMPLE_RATE, 300, 1200, 2100, 8, 1.0f, new ASCII());
+        float[] samples = new float[2 * SAMPLE_RATE + modulator.getMaxSamples(text.length()) + SAMPLE_RATE];
+        int n = modulator.idle(300.0f, samples, 0);
+        n += modulator.modulate(text.getBytes(), 0, text.length(), samples, n);
+        n += modulator.idle(2.0f, samples, n);
+        n += SAMPLE_RATE;
+        Files.write(file.toPath(), WavFiles.mono16(SAMPLE_RATE, samples, n, 0.5f));
+    }
+}
@@ -0,0 +1,83 @@
+package com.vitech.modem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCarrierTracker {
+    private static final int BAND_WIDTH = 150;
+    private static final int N_BANDS = 33;      // window 64, sample rate 9600
+
+    @Test
+    public void matchesDft() {
+        CarrierTracker tracker = new CarrierTracker(new FSK(BAND_WIDTH, N_BANDS, FskConfig.builder().build()));
+        tracker.setAveragingWindows(0.0f);
+        float[] samples = TestFSK.frame("0110100", 16, 40, 1000, 0.1f, 5);
+
+        // odd-sized blocks, some larger than the window
+        int from = 0;
+        for (int block = 1; from < samples.length; block = block * 3 % 97 + 1) {
+            int n = Math.min(block, samples.length - from);
+            tracker.update(samples, from, n);
+            from += n;
+
+            for (int band = 1; band < N_BANDS; band++) {
+                Assert.assertEquals(dft(samples, from, band), tracker.getMagnitude(band), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void staysExactOverLongStreams() {
+        CarrierTracker tracker = new CarrierTracker(new FSK(BAND_WIDTH, N_BANDS, FskConfig.builder().build()));
+        float[] samples = TestFSK.frame("", 16, 0, 4099, 0.3f, 7);
+
+        for (int i = 0; i < 100; i++) {
+            tracker.update(samples, 0, samples.length);
+        }
+
+        for (int band = 1; band < N_BANDS; band++) {
+            Assert.assertEquals(dft(samples, samples.length, band), tracker.getMagnitude(band), 1e-5);
+        }
+    }
+
+    @Test
+    public void followsCarrier() {
+        CarrierTracker tracker = new CarrierTracker(new FSK(BAND_WIDTH, N_BANDS, FskConfig.builder().build()));
+        Assert.assertEquals(-1, tracker.getCarrierBand(0.1f));
+
+        tracker.update(TestFSK.tone(8, 0.5f, 640), 0, 640);
+        Assert.assertEquals(8, tracker.getCarrierBand(0.1f));
+
+        // the average follows a new tone within a few windows
+        tracker.update(TestFSK.tone(14, 0.5f, 320), 0, 320);
+        Assert.assertEquals(14, tracker.getCarrierBand(0.1f));
+
+        tracker.update(new float[640], 0, 640);
+        Assert.assertEquals(-1, tracker.getCarrierBand(0.1f));
+    }
+
+    @Test
+    public void tracksAutodetectRangeOnly() {
+        FskConfig config = FskConfig.builder().setFskMinFreq(10 * BAND_WIDTH).setFskMaxFreq(20 * BAND_WIDTH).build();
+        CarrierTracker tracker = new CarrierTracker(new FSK(BAND_WIDTH, N_BANDS, config));
+        float[] samples = TestFSK.frame("", 16, 0, 256, 0.05f, 6);
+
+        tracker.update(samples, 0, samples.length);
+
+        Assert.assertEquals(0.0f, tracker.getMagnitude(8), 0.0f);
+        Assert.assertEquals(-1, tracker.getCarrierBand(0.1f));
+    }
+
+    // magnitude of band over the 64 samples before samples[end], zero-padded, scaled as FSK.detectCarrier
+    private static double dft(float[] samples, int end, int band) {
+        double re = 0.0;
+        double im = 0.0;
+        for (int i = 0; i < 64; i++) {
+            int t = end - 64 + i;
+            double x = t >= 0 ? samples[t] : 0.0;
+            re += x * Math.cos(2.0 * Math.PI * band * i / 64);
+            im -= x * Math.sin(2.0 * Math.PI * band * i / 64);
+        }
+        return Math.sqrt(re * re + im * im) * 2.0 / 64;
+    }
+}
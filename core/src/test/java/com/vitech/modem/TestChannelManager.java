@@ -0,0 +1,94 @@
+package com.vitech.modem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Flow;
+
+public class TestChannelManager {
+    @Test
+    public void decodesChannelsConcurrently() throws Exception {
+        int nChannels = 6;
+        ChannelManager manager = ChannelManager.withWorkers(3);
+        ByteArrayOutputStream[] outs = new ByteArrayOutputStream[nChannels];
+
+        try {
+            for (int i = 0; i < nChannels; i++) {
+                FSKDemodulator demodulator = TestFSKDemodulator.newDemodulator();
+                outs[i] = new ByteArrayOutputStream();
+                demodulator.setInputStream(new ByteArrayInputStream(TestFSKDemodulator.pcm("channel " + i + "\n", 0.05f, i)));
+                demodulator.setOutputStream(outs[i]);
+                manager.addChannel("ch" + i, demodulator);
+            }
+
+            Assert.assertEquals(nChannels, manager.getChannels().size());
+            for (ChannelManager.Channel channel : manager.getChannels()) {
+                channel.await();
+                Assert.assertTrue(channel.isDone());
+                Assert.assertTrue(channel.getAudioSeconds() > 0.5);
+                Assert.assertTrue(channel.getRealTimeFactor() > 0.0);
+            }
+        } finally {
+            manager.shutdown();
+        }
+
+        for (int i = 0; i < nChannels; i++) {
+            Assert.assertEquals("channel " + i + "\n", new String(outs[i].toByteArray()));
+        }
+        Assert.assertTrue(manager.getChannels().isEmpty());
+    }
+
+    @Test
+    public void publishesWithoutOutputStream() throws Exception {
+        ChannelManager manager = ChannelManager.withWorkers(1);
+        FramePublisher publisher = new FramePublisher(Runnable::run, 16, FramePublisher.OverflowPolicy.BUFFER);
+        StringBuffer decoded = new StringBuffer();
+        publisher.subscribe(new Flow.Subscriber<DecodedFrame>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(DecodedFrame frame) {
+                decoded.append(new String(frame.getData()));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        try {
+            FSKDemodulator demodulator = TestFSKDemodulator.newDemodulator();
+            demodulator.setInputStream(new ByteArrayInputStream(TestFSKDemodulator.pcm("frames only\n", 0.05f, 1)));
+            demodulator.setFramePublisher(publisher);
+            manager.addChannel("ch", demodulator).await();
+        } finally {
+            manager.shutdown();
+        }
+
+        Assert.assertEquals("frames only\n", decoded.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateId() {
+        ChannelManager manager = ChannelManager.withWorkers(1);
+        try {
+            for (int i = 0; i < 2; i++) {
+                FSKDemodulator demodulator = TestFSKDemodulator.newDemodulator();
+                demodulator.setInputStream(new ByteArrayInputStream(new byte[0]));
+                demodulator.setOutputStream(new ByteArrayOutputStream());
+                manager.addChannel("ch", demodulator);
+            }
+        } finally {
+            manager.shutdown();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.ASCII;
+import com.vitech.modem.databits.Baudot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+public class TestChannelizer {
+    private static final int SAMPLE_RATE = 8000;
+
+    @Test
+    public void decodesRttyChannels() throws Exception {
+        String[] texts = { "RYRY DE CHANNEL ONE\n", "CQ CQ 73 CHANNEL TWO\n", "THE QUICK BROWN FOX 1234\n" };
+        float[] marks = { 1085, 1585, 2085 };
+        float[] band = new float[SAMPLE_RATE * 8];
+        Random random = new Random(1);
+
+        for (int c = 0; c < texts.length; c++) {
+            FSKModulator modulator = new FSKModulator(SAMPLE_RATE, 45.45f, marks[c], marks[c] - 170, 5, 1.5f, new Baudot());
+            modulator.setAmplitude(0.25f);
+            float[] signal = new float[band.length];
+            // the channels start at unrelated times
+            int n = modulator.idle(5.0f + 3.3f * c, signal, 0);
+            byte[] text = texts[c].getBytes();
+            n += modulator.modulate(text, 0, text.length, signal, n);
+            for (int i = 0; i < n; i++) {
+                band[i] += signal[i];
+            }
+        }
+        for (int i = 0; i < band.length; i++) {
+            band[i] += 0.02f * (float) random.nextGaussian();
+        }
+
+        Channelizer channelizer = new Channelizer(SAMPLE_RATE, 45.45f, FskConfig.builder().build());
+        ByteArrayOutputStream[] outs = new ByteArrayOutputStream[texts.length];
+        for (int c = 0; c < texts.length; c++) {
+            outs[c] = new ByteArrayOutputStream();
+            channelizer.addChannel(marks[c], marks[c] - 170, 5, new Baudot(), outs[c]).setStopBits(1.5f);
+        }
+
+        for (int from = 0; from < band.length; from += 1000) {
+            channelizer.write(band, from, Math.min(1000, band.length - from));
+        }
+        channelizer.flush();
+
+        for (int c = 0; c < texts.length; c++) {
+            Assert.assertEquals(texts[c], new String(outs[c].toByteArray()));
+            Assert.assertEquals(texts[c].length(), channelizer.getChannels().get(c).getMetrics().getFramesDecoded(), 2);
+        }
+    }
+
+    @Test
+    public void sharesToneBins() throws Exception {
+        Channelizer channelizer = new Channelizer(9600, 300, FskConfig.builder().build());
+        // the mark of one channel is the space of the other
+        channelizer.addChannel(1200, 2100, 8, new ASCII(), new ByteArrayOutputStream());
+        channelizer.addChannel(3000, 2100, 8, new ASCII(), new ByteArrayOutputStream());
+
+        Assert.assertEquals(2, channelizer.getChannels().size());
+        Assert.assertEquals(4, channelizer.getHopNSamples());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFramesWiderThanAByte() {
+        Channelizer channelizer = new Channelizer(9600, 300, FskConfig.builder().build());
+        channelizer.addChannel(1200, 2100, 9, new ASCII(), new ByteArrayOutputStream());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsChannelsAfterStart() throws Exception {
+        Channelizer channelizer = new Channelizer(9600, 300, FskConfig.builder().build());
+        channelizer.write(new float[100], 0, 100);
+        channelizer.addChannel(1200, 2100, 8, new ASCII(), new ByteArrayOutputStream());
+    }
+}
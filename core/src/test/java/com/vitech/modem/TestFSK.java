@@ -0,0 +1,156 @@
+package com.vitech.modem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Created by vic on 10/7/14.
+ */
+public class TestFSK {
+    private static final int BAND_WIDTH = 150;
+    private static final int N_BANDS = 33;      // fftSize 64, sample rate 9600
+
+    @Test
+    public void detectCarrier() {
+        float[] samples = frame("", 8, 0, 64, 0.05f, 4);
+
+        for (FSK.AnalysisMode mode : FSK.AnalysisMode.values()) {
+            FSK fsk = newFrameFsk();
+            fsk.setAnalysisMode(mode);
+            Assert.assertEquals(8, fsk.detectCarrier(samples, 0.1f));
+            Assert.assertEquals(-1, fsk.detectCarrier(new float[64], 0.1f));
+        }
+
+        // the mark tone is out of the configured range, only noise is left
+        FSK fsk = new FSK(BAND_WIDTH, N_BANDS, FskConfig.builder().setFskMinFreq(10 * BAND_WIDTH).build());
+        Assert.assertEquals(-1, fsk.detectCarrier(samples, 0.1f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCarrierBlockLongerThanTransform() {
+        FSK fsk = newFrameFsk();
+        fsk.detectCarrier(new float[fsk.getFftLength() + 1], 0.1f);
+    }
+
+    @Test
+    public void goertzelMatchesFft() {
+        FSK fsk = new FSK(BAND_WIDTH, N_BANDS);
+        fsk.setTonesByBandshift(8, 6);
+        float[] samples = tone(8, 0.7f, 200);
+
+        FSK.BitAnalysisInfo fftInfo = fsk.new BitAnalysisInfo();
+        fsk.bitAnalyze(samples, 13, 64, fftInfo);
+
+        fsk.setAnalysisMode(FSK.AnalysisMode.GOERTZEL);
+        FSK.BitAnalysisInfo goertzelInfo = fsk.new BitAnalysisInfo();
+        fsk.bitAnalyze(samples, 13, 64, goertzelInfo);
+
+        Assert.assertEquals(fftInfo.getBit(), goertzelInfo.getBit());
+        Assert.assertEquals(fftInfo.getSignalMag(), goertzelInfo.getSignalMag(), 1e-6);
+        Assert.assertEquals(fftInfo.getNoiseMag(), goertzelInfo.getNoiseMag(), 1e-6);
+    }
+
+    @Test
+    public void goertzelSeparatesMarkAndSpace() {
+        FSK fsk = new FSK(BAND_WIDTH, N_BANDS);
+        fsk.setAnalysisMode(FSK.AnalysisMode.GOERTZEL);
+        fsk.setTonesByBandshift(8, 6);
+        FSK.BitAnalysisInfo info = fsk.new BitAnalysisInfo();
+
+        fsk.bitAnalyze(tone(8, 0.5f, 64), 0, 64, info);
+        Assert.assertEquals(1, info.getBit());
+        Assert.assertEquals(0.5, info.getSignalMag(), 1e-3);
+
+        fsk.bitAnalyze(tone(14, 0.5f, 64), 0, 64, info);
+        Assert.assertEquals(0, info.getBit());
+        Assert.assertEquals(0.5, info.getSignalMag(), 1e-3);
+    }
+
+    @Test
+    public void findFrame() {
+        // previous stop bit, start bit, 8 data bits 0x5A lsb first, stop bit
+        String frameBits = "10" + "01011010" + "1";
+        int offset = 37;
+        float[] samples = frame(frameBits, 64, offset, 2 * 64 + frameBits.length() * 64, 0.05f, 1);
+
+        FSK fsk = newFrameFsk();
+        FSK.FrameAnalysisInfo best = fsk.new FrameAnalysisInfo();
+        double confidence = fsk.findFrame(samples, 0, frameBits.length() * 64, 0, 2 * 64, 1, 1e9f, "10dddddddd1", best);
+
+        Assert.assertTrue(confidence > 2.0);
+        Assert.assertEquals(confidence, best.getConfidence(), 0.0);
+        Assert.assertEquals(offset, best.getStartPos(), 1);
+        Assert.assertEquals(0x5A, (best.getBits() >> 2) & 0xFF);
+    }
+
+    @Test
+    public void parallelFindFrameMatchesSerial() {
+        String frameBits = "10" + "11000101" + "1";
+        int frameNSamples = frameBits.length() * 64;
+        float[] samples = frame(frameBits, 64, 150, 3 * 64 + 64 + frameNSamples, 0.3f, 7);
+        float[] limits = {0.5f, 2.0f, 4.0f, 1e9f};
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (int tryFirst : new int[] {0, 64, 191}) {
+                for (float limit : limits) {
+                    FSK serial = newFrameFsk();
+                    FSK.FrameAnalysisInfo serialBest = serial.new FrameAnalysisInfo();
+                    serial.findFrame(samples, 0, frameNSamples, tryFirst, 3 * 64, 1, limit, "10dddddddd1", serialBest);
+
+                    FSK parallel = newFrameFsk();
+                    parallel.setSearchMode(FSK.SearchMode.PARALLEL);
+                    parallel.setSearchPool(pool);
+                    FSK.FrameAnalysisInfo parallelBest = parallel.new FrameAnalysisInfo();
+                    parallel.findFrame(samples, 0, frameNSamples, tryFirst, 3 * 64, 1, limit, "10dddddddd1", parallelBest);
+
+                    String msg = "first=" + tryFirst + " limit=" + limit;
+                    Assert.assertEquals(msg, serialBest.getStartPos(), parallelBest.getStartPos());
+                    Assert.assertEquals(msg, serialBest.getConfidence(), parallelBest.getConfidence(), 0.0);
+                    Assert.assertEquals(msg, serialBest.getBits(), parallelBest.getBits());
+                    Assert.assertEquals(msg, serialBest.getAmpl(), parallelBest.getAmpl(), 0.0f);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static FSK newFrameFsk() {
+        FSK fsk = new FSK(BAND_WIDTH, N_BANDS, FskConfig.builder().build());
+        fsk.setAnalysisMode(FSK.AnalysisMode.GOERTZEL);
+        fsk.setTonesByBandshift(8, 6);
+        return fsk;
+    }
+
+    /**
+     * Phase-continuous FSK burst (mark band 8, space band 14) of <code>bits</code> starting at <code>offset</code>,
+     * idling on mark elsewhere, plus gaussian noise.
+     */
+    static float[] frame(String bits, int samplesPerBit, int offset, int length, float noise, long seed) {
+        Random random = new Random(seed);
+        float[] samples = new float[length];
+        double phase = 0.0;
+        int fftSize = (N_BANDS - 1) * 2;
+
+        for (int i = 0; i < length; i++) {
+            int bit = i - offset;
+            char c = bit >= 0 && bit / samplesPerBit < bits.length() ? bits.charAt(bit / samplesPerBit) : '1';
+            int band = c == '1' ? 8 : 14;
+            phase += 2.0 * Math.PI * band / fftSize;
+            samples[i] = (float) (0.5 * Math.sin(phase) + noise * random.nextGaussian());
+        }
+        return samples;
+    }
+
+    static float[] tone(int band, float amplitude, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (amplitude * Math.sin(2.0 * Math.PI * band * i / ((N_BANDS - 1) * 2)));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,340 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.ASCII;
+import com.vitech.modem.databits.Baudot;
+import com.vitech.modem.metrics.DemodulatorMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class TestFSKDemodulator {
+    private static final int SAMPLE_RATE = 9600;
+    private static final float BAUD_RATE = 300;
+    private static final float MARK = 1200;
+    private static final float SPACE = 2100;
+
+    @Test
+    public void decodesStream() {
+        String text = "Hello, world!\n";
+        FSKDemodulator demodulator = newDemodulator();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setInputStream(new ByteArrayInputStream(pcm(text, 0.05f, 1)));
+        demodulator.setOutputStream(out);
+
+        demodulator.run();
+
+        Assert.assertEquals(text, new String(out.toByteArray()));
+    }
+
+    @Test
+    public void decodesWithSlidingCarrierDetection() {
+        String text = "Hello, world!\n";
+        FSKDemodulator demodulator = newDemodulator();
+        demodulator.setCarrierDetection(FSKDemodulator.CarrierDetection.SLIDING);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setInputStream(new ByteArrayInputStream(pcm(text, 0.05f, 4)));
+        demodulator.setOutputStream(out);
+
+        demodulator.run();
+
+        Assert.assertEquals(text, new String(out.toByteArray()));
+        Assert.assertTrue(demodulator.getCarrierTracker().getNSamples() > 0);
+    }
+
+    @Test
+    public void decodesSmallReads() {
+        String text = "0123456789";
+        FSKDemodulator demodulator = newDemodulator();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayInputStream pcm = new ByteArrayInputStream(pcm(text, 0.05f, 2));
+
+        // a pipe handing out odd-sized pieces
+        demodulator.setInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return pcm.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return pcm.read(b, off, Math.min(len, 7));
+            }
+        });
+        demodulator.setOutputStream(out);
+
+        demodulator.run();
+
+        Assert.assertEquals(text, new String(out.toByteArray()));
+    }
+
+    @Test
+    public void decodesWithReaderThread() {
+        String text = "minimodem\n";
+        FSKDemodulator demodulator = newDemodulator();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setInputStream(new ByteArrayInputStream(pcm(text, 0.05f, 3)));
+        demodulator.setOutputStream(out);
+
+        Minimodem minimodem = new Minimodem();
+        minimodem.setDemodulator(demodulator);
+        minimodem.setBufferCapacity(demodulator.getWindowNSamples());
+        minimodem.demodulate();
+
+        Assert.assertEquals(text, new String(out.toByteArray()));
+    }
+
+    @Test
+    public void reportsReadErrorOfReaderThread() {
+        FSKDemodulator demodulator = newDemodulator();
+        final byte[] pcm = pcm("minimodem\n", 0.05f, 4);
+        final ByteArrayInputStream head = new ByteArrayInputStream(pcm, 0, pcm.length / 2);
+
+        // a stream failing halfway through
+        demodulator.setInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return read(new byte[1], 0, 1);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (head.available() == 0) {
+                    throw new IOException("device lost");
+                }
+                return head.read(b, off, len);
+            }
+        });
+        demodulator.setOutputStream(new ByteArrayOutputStream());
+
+        Minimodem minimodem = new Minimodem();
+        minimodem.setDemodulator(demodulator);
+        try {
+            minimodem.demodulate();
+            Assert.fail("read error reported as end of input");
+        } catch (UncheckedIOException e) {
+            Assert.assertEquals("device lost", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void decodesRtty() {
+        String text = "RYRY 73 DE JMINIMODEM\n";
+        FSKModulator modulator = new FSKModulator(SAMPLE_RATE, 45.45f, 1585, 1415, 5, 1.5f, new Baudot());
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        modulator.setInputStream(new ByteArrayInputStream(text.getBytes()));
+        modulator.setOutputStream(pcm);
+        modulator.run();
+
+        FSKDemodulator demodulator = new FSKDemodulator(SAMPLE_RATE, 45.45f, 1585, 1415, 5, new Baudot(), FskConfig.builder().build());
+        demodulator.setStopBits(1.5f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setInputStream(new ByteArrayInputStream(pcm.toByteArray()));
+        demodulator.setOutputStream(out);
+
+        demodulator.run();
+
+        Assert.assertEquals(text, new String(out.toByteArray()));
+    }
+
+    @Test
+    public void decodesDecimatedInput() throws IOException {
+        String text = "RYRY 73 DE JMINIMODEM\n";
+        FSKModulator modulator = new FSKModulator(48000, 45.45f, 1585, 1415, 5, 1.5f, new Baudot());
+        byte[] chars = text.getBytes();
+        float[] samples = new float[modulator.getMaxSamples(chars.length) + 48000];
+        int n = modulator.idle(2.0f, samples, 0);
+        n += modulator.modulate(chars, 0, chars.length, samples, n);
+        n += modulator.idle(2.0f, samples, n);
+        // a stronger tone out of the analysis band would win carrier detection at the input rate
+        for (int i = 0; i < n; i++) {
+            samples[i] += (float) (2.0 * Math.sin(2.0 * Math.PI * 8000.0 / 48000.0 * i));
+        }
+
+        FSKDemodulator demodulator = new FSKDemodulator(48000, 45.45f, 1585, 1415, 5, new Baudot(), FskConfig.builder().build());
+        demodulator.setStopBits(1.5f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setOutputStream(out);
+        demodulator.write(samples, 0, n);
+        demodulator.flush();
+
+        Assert.assertEquals(10, demodulator.getDecimation());
+        Assert.assertEquals(text, new String(out.toByteArray()));
+    }
+
+    @Test
+    public void recordsMetrics() throws Exception {
+        String text = "Hello, world!\n";
+        FSKDemodulator demodulator = newDemodulator();
+        demodulator.setInputStream(new ByteArrayInputStream(pcm(text, 0.05f, 5)));
+        demodulator.setOutputStream(new ByteArrayOutputStream());
+
+        demodulator.run();
+
+        DemodulatorMetrics metrics = demodulator.getMetrics();
+        Assert.assertEquals(text.length(), metrics.getFramesDecoded());
+        Assert.assertEquals(text.length(), metrics.getConfidence().getCount());
+        Assert.assertTrue(metrics.getFramesRejectedBitMismatch() > 0);
+        Assert.assertEquals(1, metrics.getCarrierFoundCount());
+        Assert.assertEquals(1, metrics.getCarrierLostCount());
+        Assert.assertTrue(metrics.getSamplesProcessed() > 0);
+        Assert.assertTrue(metrics.getFrameSearchNanos() > 0);
+
+        ObjectName name = metrics.register("recordsMetrics");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals((long) text.length(), server.getAttribute(name, "FramesDecoded"));
+        } finally {
+            metrics.unregister();
+        }
+        Assert.assertNull(metrics.getObjectName());
+    }
+
+    @Test
+    public void countsRejectedFramesOncePerSearch() {
+        // searches in the idle mark around the text fail at the start bit
+        byte[] input = pcm("one frame after the other\n", 0.05f, 11);
+        long[][] rejected = new long[FSK.SearchMode.values().length][];
+        for (FSK.SearchMode mode : FSK.SearchMode.values()) {
+            FSKDemodulator demodulator = newDemodulator();
+            demodulator.getFsk().setSearchMode(mode);
+            demodulator.setInputStream(new ByteArrayInputStream(input));
+            demodulator.setOutputStream(new ByteArrayOutputStream());
+
+            demodulator.run();
+
+            DemodulatorMetrics metrics = demodulator.getMetrics();
+            rejected[mode.ordinal()] = new long[] { metrics.getFramesRejectedBitMismatch(), metrics.getFramesRejectedBitSnr(),
+                    metrics.getFramesRejectedMagnitude() };
+            // every failed search moves on by a bit period at most, so there are fewer than the bits analyzed
+            long total = rejected[mode.ordinal()][0] + rejected[mode.ordinal()][1] + rejected[mode.ordinal()][2];
+            Assert.assertTrue(total > 0);
+            Assert.assertTrue(total <= metrics.getSamplesProcessed() / (SAMPLE_RATE / (int) BAUD_RATE));
+        }
+        Assert.assertArrayEquals(rejected[FSK.SearchMode.SERIAL.ordinal()], rejected[FSK.SearchMode.PARALLEL.ordinal()]);
+    }
+
+    @Test
+    public void ignoresSilence() {
+        FSKDemodulator demodulator = newDemodulator();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setInputStream(new ByteArrayInputStream(new byte[SAMPLE_RATE * 2]));
+        demodulator.setOutputStream(out);
+
+        demodulator.run();
+
+        Assert.assertEquals(0, out.size());
+        Assert.assertFalse(demodulator.isCarrier());
+        Assert.assertTrue(demodulator.getMetrics().getBlocksGated() > 0);
+        Assert.assertEquals(0, demodulator.getMetrics().getBlocksPassed());
+    }
+
+    @Test
+    public void squelchesNoiseBetweenBursts() throws IOException {
+        FSKDemodulator demodulator = newDemodulator();
+        demodulator.getSquelch().setOpenRatio(4.0f);
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write(noise(SAMPLE_RATE, 0.05f, 6));
+        input.write(pcm("first\n", 0.05f, 7));
+        input.write(noise(SAMPLE_RATE, 0.05f, 8));
+        input.write(pcm("second\n", 0.05f, 9));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        demodulator.setInputStream(new ByteArrayInputStream(input.toByteArray()));
+        demodulator.setOutputStream(out);
+
+        demodulator.run();
+
+        Assert.assertEquals("first\nsecond\n", new String(out.toByteArray()));
+        // the two seconds of noise are skipped, the bursts are analyzed
+        Assert.assertTrue(demodulator.getMetrics().getBlocksPassed() > 0);
+        Assert.assertTrue(demodulator.getMetrics().getBlocksGated() > demodulator.getMetrics().getBlocksPassed());
+    }
+
+    @Test
+    public void tracksDriftingTransmitter() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            text.append("The quick brown fox jumps over the lazy dog\n");
+        }
+        FSKDemodulator demodulator = newDemodulator();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 1% fast, tones a fifth of a band high
+        demodulator.setInputStream(new ByteArrayInputStream(pcm(text.toString(), 0.05f, 10, BAUD_RATE * 1.01f, BAUD_RATE / 5)));
+        demodulator.setOutputStream(out);
+
+        demodulator.run();
+
+        Assert.assertEquals(text.toString(), new String(out.toByteArray()));
+        Assert.assertEquals(1, demodulator.getMetrics().getLockFoundCount());
+        // locked once, lost only at the end of the transmission
+        Assert.assertEquals(1, demodulator.getMetrics().getLockLostCount());
+        Assert.assertEquals(FSKDemodulator.SyncState.ACQUIRING, demodulator.getSyncState());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFramesWiderThanAByte() {
+        new FSKDemodulator(SAMPLE_RATE, BAUD_RATE, MARK, SPACE, 9, new ASCII(), FskConfig.builder().build());
+    }
+
+    static FSKDemodulator newDemodulator() {
+        return new FSKDemodulator(SAMPLE_RATE, BAUD_RATE, MARK, SPACE, 8, new ASCII(), FskConfig.builder().build());
+    }
+
+    static byte[] noise(int length, float noise, long seed) {
+        byte[] pcm = new byte[2 * length];
+        Random random = new Random(seed);
+        for (int i = 0; i < length; i++) {
+            short value = (short) Math.round(noise * random.nextGaussian() * 32767);
+            pcm[2 * i] = (byte) value;
+            pcm[2 * i + 1] = (byte) (value >> 8);
+        }
+        return pcm;
+    }
+
+    /**
+     * 8N1 frames of <code>text</code> between a quarter second of idle mark on each side, as 16-bit PCM.
+     */
+    static byte[] pcm(String text, float noise, long seed) {
+        return pcm(text, noise, seed, BAUD_RATE, 0.0f);
+    }
+
+    /**
+     * As {@link #pcm(String, float, long)}, sent at <code>baudRate</code> with both tones <code>shift</code> Hz off.
+     */
+    static byte[] pcm(String text, float noise, long seed, float baudRate, float shift) {
+        StringBuilder bits = new StringBuilder();
+        for (byte b : text.getBytes()) {
+            bits.append('0');
+            for (int i = 0; i < 8; i++) {
+                bits.append((b >> i & 1) == 1 ? '1' : '0');
+            }
+            bits.append('1');
+        }
+
+        double samplesPerBit = (double) SAMPLE_RATE / baudRate;
+        int lead = SAMPLE_RATE / 4;
+        int length = lead + (int) (bits.length() * samplesPerBit) + lead;
+        byte[] pcm = new byte[2 * length];
+        Random random = new Random(seed);
+        double phase = 0.0;
+
+        for (int i = 0; i < length; i++) {
+            int bit = (int) Math.floor((i - lead) / samplesPerBit);
+            boolean mark = i < lead || bit >= bits.length() || bits.charAt(bit) == '1';
+            phase += 2.0 * Math.PI * ((mark ? MARK : SPACE) + shift) / SAMPLE_RATE;
+            double sample = 0.5 * Math.sin(phase) + noise * random.nextGaussian();
+            short value = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(sample * 32767)));
+            pcm[2 * i] = (byte) value;
+            pcm[2 * i + 1] = (byte) (value >> 8);
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,75 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.ASCII;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+public class TestFSKModulator {
+    private static final int SAMPLE_RATE = 9600;
+
+    @Test
+    public void framesAndTiming() {
+        FSKModulator modulator = new FSKModulator(SAMPLE_RATE, 300, 1200, 2100, 8, 1.0f, new ASCII());
+        byte[] data = "AB".getBytes();
+        float[] out = new float[modulator.getMaxSamples(data.length)];
+
+        int n = modulator.modulate(data, 0, data.length, out, 0);
+
+        // 2 frames of 10 bits, 32 samples each
+        Assert.assertEquals(2 * 10 * 32, n);
+    }
+
+    @Test
+    public void fractionalBitLengthDoesNotDrift() {
+        // 45.45 baud at 8000 Hz: 176.017... samples per bit
+        FSKModulator modulator = new FSKModulator(8000, 45.45f, 1585, 1415, 5, 1.5f, new ASCII());
+        float[] out = new float[modulator.getMaxSamples(1000)];
+        byte[] data = new byte[1000];
+
+        int n = modulator.modulate(data, 0, data.length, out, 0);
+
+        Assert.assertEquals(1000 * 7.5 * 8000 / 45.45f, n, 1.0);
+    }
+
+    @Test
+    public void phaseContinuous() {
+        FSKModulator modulator = new FSKModulator(SAMPLE_RATE, 300, 1200, 2100, 8, 1.0f, new ASCII());
+        byte[] data = "U*".getBytes();
+        float[] out = new float[modulator.getMaxSamples(data.length) + 100];
+
+        int n = modulator.idle(1.0f, out, 0);
+        n += modulator.modulate(data, 0, data.length, out, n);
+
+        // the largest step of a unit sine at 2100 Hz is 2 sin(pi f / fs)
+        double maxStep = 2 * Math.sin(Math.PI * 2100 / SAMPLE_RATE) + 1e-3;
+        for (int i = 1; i < n; i++) {
+            Assert.assertTrue("jump at " + i, Math.abs(out[i] - out[i - 1]) <= maxStep);
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        String text = "The quick brown fox jumps over the lazy dog 0123456789\n";
+        FSKModulator modulator = new FSKModulator(SAMPLE_RATE, 300, 1200, 2100, 8, 1.0f, new ASCII());
+        modulator.setAmplitude(0.5f);
+        modulator.setLeaderBits(20);
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        modulator.setInputStream(new ByteArrayInputStream(text.getBytes()));
+        modulator.setOutputStream(pcm);
+
+        Minimodem minimodem = new Minimodem();
+        minimodem.setModulator(modulator);
+        minimodem.modulate();
+
+        FSKDemodulator demodulator = new FSKDemodulator(SAMPLE_RATE, 300, 1200, 2100, 8, new ASCII(), FskConfig.builder().build());
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        demodulator.setInputStream(new ByteArrayInputStream(pcm.toByteArray()));
+        demodulator.setOutputStream(decoded);
+        demodulator.run();
+
+        Assert.assertEquals(text, new String(decoded.toByteArray()));
+    }
+}
@@ -0,0 +1,143 @@
+package com.vitech.modem;
+
+import com.vitech.modem.databits.ASCII;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+public class TestFramePublisher {
+    @Test
+    public void publishesDecodedFrames() {
+        String text = "Hello, world!\n";
+        FSKDemodulator demodulator = new FSKDemodulator(9600, 300, 1200, 2100, 8, new ASCII(), FskConfig.builder().build());
+        FramePublisher publisher = new FramePublisher(Runnable::run, 16, FramePublisher.OverflowPolicy.BUFFER);
+        Collector collector = new Collector(Long.MAX_VALUE);
+        publisher.subscribe(collector);
+        demodulator.setFramePublisher(publisher);
+        demodulator.setInputStream(new ByteArrayInputStream(TestFSKDemodulator.pcm(text, 0.05f, 1)));
+
+        demodulator.run();
+        publisher.close();
+
+        StringBuilder decoded = new StringBuilder();
+        long previous = -1L;
+        for (DecodedFrame frame : collector.frames) {
+            decoded.append(new String(frame.getData()));
+            Assert.assertTrue(frame.getConfidence() > demodulator.getConfidenceThreshold());
+            Assert.assertTrue(frame.getAmplitude() > 0.0f);
+            Assert.assertEquals(frame.getData()[0], (byte) (frame.getBits() >>> 2));
+            // one frame of 10 bits of 32 samples after the other, within the search step
+            if (previous >= 0) {
+                Assert.assertEquals(320.0, frame.getSampleOffset() - previous, 8.0);
+            }
+            previous = frame.getSampleOffset();
+        }
+        Assert.assertEquals(text, decoded.toString());
+        Assert.assertTrue(collector.completed);
+    }
+
+    @Test
+    public void dropsOldestFrames() {
+        Collector collector = publish(FramePublisher.OverflowPolicy.DROP_OLDEST);
+        Assert.assertEquals(List.of(3L, 4L), offsets(collector));
+    }
+
+    @Test
+    public void dropsNewestFrames() {
+        Collector collector = publish(FramePublisher.OverflowPolicy.DROP_NEWEST);
+        Assert.assertEquals(List.of(0L, 1L), offsets(collector));
+    }
+
+    @Test
+    public void buffersFrames() {
+        Collector collector = publish(FramePublisher.OverflowPolicy.BUFFER);
+        Assert.assertEquals(List.of(0L, 1L, 2L, 3L, 4L), offsets(collector));
+    }
+
+    @Test
+    public void deliversOnlyRequestedFrames() {
+        FramePublisher publisher = new FramePublisher(Runnable::run, 8, FramePublisher.OverflowPolicy.BUFFER);
+        Collector collector = new Collector(1);
+        publisher.subscribe(collector);
+        for (int i = 0; i < 3; i++) {
+            publisher.submit(frame(i));
+        }
+        Assert.assertEquals(List.of(0L), offsets(collector));
+
+        collector.subscription.request(1);
+        Assert.assertEquals(List.of(0L, 1L), offsets(collector));
+
+        collector.subscription.cancel();
+        Assert.assertFalse(publisher.hasSubscribers());
+    }
+
+    /**
+     * Five frames to a subscriber that requests them only once the publisher closes, with room for two.
+     */
+    private static Collector publish(FramePublisher.OverflowPolicy policy) {
+        FramePublisher publisher = new FramePublisher(Runnable::run, 2, policy);
+        Collector collector = new Collector(0);
+        publisher.subscribe(collector);
+        for (int i = 0; i < 5; i++) {
+            publisher.submit(frame(i));
+        }
+        publisher.close();
+        Assert.assertTrue(collector.frames.isEmpty());
+        Assert.assertFalse(collector.completed);
+
+        collector.subscription.request(Long.MAX_VALUE);
+        Assert.assertTrue(collector.completed);
+        Assert.assertEquals(5 - collector.frames.size(), publisher.getDroppedCount());
+        return collector;
+    }
+
+    private static DecodedFrame frame(long offset) {
+        return new DecodedFrame(0L, new byte[0], 3.0f, 0.5f, offset);
+    }
+
+    private static List<Long> offsets(Collector collector) {
+        List<Long> offsets = new ArrayList<Long>();
+        for (DecodedFrame frame : collector.frames) {
+            offsets.add(frame.getSampleOffset());
+        }
+        return offsets;
+    }
+
+    private static class Collector implements Flow.Subscriber<DecodedFrame> {
+        private final long initialRequest;
+        private final List<DecodedFrame> frames = new ArrayList<DecodedFrame>();
+        private Flow.Subscription subscription;
+        private boolean completed;
+
+        Collector(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(DecodedFrame item) {
+            frames.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            Assert.fail(throwable.toString());
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
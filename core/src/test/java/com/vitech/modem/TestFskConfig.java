@@ -0,0 +1,53 @@
+package com.vitech.modem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Properties;
+
+public class TestFskConfig {
+
+    @Test
+    public void defaults() {
+        FskConfig config = FskConfig.builder().build();
+        Assert.assertFalse(config.isFskAutodetectMinFreq());
+        Assert.assertFalse(config.isFskAutodetectMaxFreq());
+        Assert.assertFalse(config.isFskMinMagnitude());
+        Assert.assertFalse(config.isFskMinBitSnr());
+        Assert.assertFalse(config.isFskAvoidTransients());
+        Assert.assertTrue(config.isConfidenceAlgo());
+        Assert.assertEquals(FskConfig.DEFAULT_CONFIDENCE_ALGO, config.getConfidenceAlgo());
+    }
+
+    @Test
+    public void importsOnlyPresentProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(FSK.PROPERTY_NAME_FSK_MIN_BIT_SNR, "1.4");
+        properties.setProperty(FSK.PROPERTY_NAME_FSK_MIN_MAGNITUDE, "");
+        properties.setProperty(FSK.PROPERTY_NAME_CONFIDENCE_ALGO, "5");
+
+        FskConfig config = FskConfig.builder()
+                .setFskMinMagnitude(0.1f)
+                .importProperties(properties)
+                .build();
+
+        Assert.assertTrue(config.isFskMinBitSnr());
+        Assert.assertEquals(1.4f, config.getFskMinBitSnr(), 0.0f);
+        Assert.assertTrue(config.isFskMinMagnitude());
+        Assert.assertEquals(0.1f, config.getFskMinMagnitude(), 0.0f);
+        Assert.assertEquals(5, config.getConfidenceAlgo());
+        Assert.assertFalse(config.isFskAutodetectMinFreq());
+    }
+
+    @Test
+    public void independentInstances() {
+        FskConfig strict = FskConfig.builder().setFskMinBitSnr(3.0f).build();
+        FskConfig relaxed = strict.toBuilder().clearFskMinBitSnr().build();
+
+        FSK a = new FSK(150, 33, strict);
+        FSK b = new FSK(150, 33, relaxed);
+
+        Assert.assertTrue(a.getConfig().isFskMinBitSnr());
+        Assert.assertFalse(b.getConfig().isFskMinBitSnr());
+    }
+}
@@ -0,0 +1,72 @@
+package com.vitech.modem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSampleRingBuffer {
+
+    @Test
+    public void windowsAreContiguousAcrossWrap() {
+        SampleRingBuffer ring = new SampleRingBuffer(8);
+        float[] src = new float[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+
+        Assert.assertEquals(6, ring.write(src, 0, 6));
+        ring.advance(5);
+        Assert.assertEquals(6, ring.write(src, 6, 6));
+        Assert.assertEquals(1, ring.free());
+        Assert.assertEquals(7, ring.available());
+
+        float[] array = ring.array();
+        int offset = ring.readOffset();
+        for (int i = 0; i < ring.available(); i++) {
+            Assert.assertEquals(5 + i, array[offset + i], 0.0f);
+        }
+        Assert.assertEquals(5, ring.readPosition());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotAdvancePastWritten() {
+        SampleRingBuffer ring = new SampleRingBuffer(8);
+        ring.advance(1);
+    }
+
+    @Test
+    public void producerConsumer() throws InterruptedException {
+        final SampleRingBuffer ring = new SampleRingBuffer(64);
+        final int total = 1000000;
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                float[] chunk = new float[37];
+                for (int next = 0; next < total; ) {
+                    int n = Math.min(chunk.length, total - next);
+                    for (int i = 0; i < n; i++) {
+                        chunk[i] = (next + i) % 1000;
+                    }
+                    for (int from = 0; from < n; ) {
+                        ring.awaitFree(1);
+                        from += ring.write(chunk, from, n - from);
+                    }
+                    next += n;
+                }
+                ring.close();
+            }
+        });
+        producer.start();
+
+        long expected = 0;
+        while (ring.awaitAvailable(1) || ring.available() > 0) {
+            float[] array = ring.array();
+            int offset = ring.readOffset();
+            int n = ring.available();
+            for (int i = 0; i < n; i++) {
+                Assert.assertEquals(expected++ % 1000, array[offset + i], 0.0f);
+            }
+            ring.advance(n);
+        }
+        producer.join();
+
+        Assert.assertEquals(total, expected);
+    }
+}
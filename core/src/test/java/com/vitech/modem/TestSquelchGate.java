@@ -0,0 +1,72 @@
+package com.vitech.modem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class TestSquelchGate {
+
+    private static float[] tone(int length, float amplitude) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (amplitude * Math.sin(2.0 * Math.PI * 0.1 * i));
+        }
+        return samples;
+    }
+
+    @Test
+    public void gatesBlocksBelowCarrierThreshold() {
+        SquelchGate squelch = new SquelchGate(0.1f);
+
+        Assert.assertFalse(squelch.pass(new float[64], 0, 64));
+        // magnitude 0.05 cannot reach the threshold, 0.2 may
+        Assert.assertFalse(squelch.pass(tone(64, 0.05f), 0, 64));
+        Assert.assertTrue(squelch.pass(tone(64, 0.2f), 0, 64));
+        Assert.assertEquals(0.2f, squelch.getPeak(), 0.01f);
+        Assert.assertEquals(0.2f / Math.sqrt(2.0), squelch.getRms(), 0.01f);
+        Assert.assertEquals(2, squelch.getGatedCount());
+        Assert.assertEquals(1, squelch.getPassedCount());
+    }
+
+    @Test
+    public void holdsOpenOverFades() {
+        SquelchGate squelch = new SquelchGate(0.0f);
+        squelch.setOpenRatio(4.0f);
+        squelch.setCloseRatio(2.0f);
+        squelch.setHoldBlocks(2);
+
+        float[] noise = tone(64, 0.01f);
+        float[] loud = tone(64, 0.1f);
+        float[] fade = tone(64, 0.015f);
+
+        // the first block passes, before there is a noise floor
+        Assert.assertTrue(squelch.pass(noise, 0, 64));
+        squelch.noCarrier();
+        Assert.assertFalse(squelch.pass(noise, 0, 64));
+        Assert.assertFalse(squelch.pass(fade, 0, 64));
+
+        Assert.assertTrue(squelch.pass(loud, 0, 64));
+        Assert.assertTrue(squelch.isOpen());
+        boolean[] fading = new boolean[4];
+        for (int i = 0; i < fading.length; i++) {
+            fading[i] = squelch.pass(fade, 0, 64);
+        }
+        Assert.assertEquals("[true, true, false, false]", Arrays.toString(fading));
+        Assert.assertFalse(squelch.isOpen());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCloseRatioAboveOpenRatio() {
+        SquelchGate squelch = new SquelchGate(0.0f);
+        squelch.setOpenRatio(2.0f);
+        squelch.setCloseRatio(4.0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOpenRatioBelowCloseRatio() {
+        SquelchGate squelch = new SquelchGate(0.0f);
+        squelch.setCloseRatio(2.0f);
+        squelch.setOpenRatio(1.5f);
+    }
+}
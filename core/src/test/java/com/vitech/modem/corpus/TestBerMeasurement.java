@@ -0,0 +1,65 @@
+package com.vitech.modem.corpus;
+
+import com.vitech.modem.FskConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBerMeasurement {
+    private static final FskConfig CONFIG = FskConfig.builder().build();
+
+    @Test
+    public void alignsWithLeastBitCost() {
+        byte[] sent = "hello world".getBytes();
+
+        BerMeasurement.Alignment same = BerMeasurement.align(sent, sent, 8);
+        Assert.assertEquals(0, same.bitErrors);
+        Assert.assertEquals(0, same.wrong);
+
+        BerMeasurement.Alignment flipped = BerMeasurement.align(sent, "hellm world".getBytes(), 8);
+        Assert.assertEquals(1, flipped.bitErrors);
+        Assert.assertEquals(1, flipped.wrong);
+
+        BerMeasurement.Alignment dropped = BerMeasurement.align(sent, "helo world".getBytes(), 8);
+        Assert.assertEquals(8, dropped.bitErrors);
+        Assert.assertEquals(1, dropped.lost);
+        Assert.assertEquals(0, dropped.extra);
+
+        BerMeasurement.Alignment added = BerMeasurement.align(sent, "hello, world".getBytes(), 8);
+        Assert.assertEquals(8, added.bitErrors);
+        Assert.assertEquals(0, added.lost);
+        Assert.assertEquals(1, added.extra);
+
+        BerMeasurement.Alignment nothing = BerMeasurement.align(sent, new byte[0], 8);
+        Assert.assertEquals(8 * sent.length, nothing.bitErrors);
+        Assert.assertEquals(sent.length, nothing.lost);
+    }
+
+    @Test
+    public void modulatesDeterministically() {
+        SyntheticSignal signal = SyntheticSignal.builder().setSnrDb(12.0f).build();
+        byte[] text = signal.text(20);
+        Assert.assertArrayEquals(text, signal.text(20));
+        Assert.assertArrayEquals(signal.modulate(text), signal.toBuilder().build().modulate(text), 0.0f);
+        Assert.assertNotEquals(text[0], signal.toBuilder().setSeed(2L).build().text(20)[0]);
+    }
+
+    @Test
+    public void decodesImpairedSignalsWithoutErrors() {
+        SyntheticSignal clean = SyntheticSignal.builder().build();
+        for (SyntheticSignal signal : new SyntheticSignal[] { clean, clean.toBuilder().setFrequencyOffset(30.0f).build(),
+                clean.toBuilder().setTimingDriftPpm(2000.0f).build(), clean.toBuilder().setSnrDb(16.0f).build() }) {
+            BerMeasurement measurement = BerMeasurement.measure(signal, 200, CONFIG);
+            Assert.assertEquals(signal.toString(), 0, measurement.getBitErrors());
+            Assert.assertEquals(200, measurement.getCharsReceived());
+            Assert.assertTrue(measurement.getCpuNanos() > 0);
+        }
+    }
+
+    @Test
+    public void errorsGrowWithNoise() {
+        SyntheticSignal signal = SyntheticSignal.builder().setSnrDb(16.0f).build();
+        BerMeasurement good = BerMeasurement.measure(signal, 200, CONFIG);
+        BerMeasurement bad = BerMeasurement.measure(signal.toBuilder().setSnrDb(11.0f).build(), 200, CONFIG);
+        Assert.assertTrue(bad.getBitErrorRate() > good.getBitErrorRate());
+    }
+}
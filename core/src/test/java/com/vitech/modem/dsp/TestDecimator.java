@@ -0,0 +1,73 @@
+package com.vitech.modem.dsp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDecimator {
+    private static final int SAMPLE_RATE = 48000;
+
+    private static float[] tone(double freq, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) Math.sin(2.0 * Math.PI * freq / SAMPLE_RATE * i);
+        }
+        return samples;
+    }
+
+    private static double peak(float[] samples, int from, int to) {
+        double peak = 0.0;
+        for (int i = from; i < to; i++) {
+            peak = Math.max(peak, Math.abs(samples[i]));
+        }
+        return peak;
+    }
+
+    @Test
+    public void choosesLargestDivisor() {
+        // 45.45 baud RTTY: 4800 Hz keeps 2.5 times 1585 + 45 Hz
+        Assert.assertEquals(10, Decimator.chooseFactor(SAMPLE_RATE, 1630.0));
+        Assert.assertEquals(5, Decimator.chooseFactor(SAMPLE_RATE, 3400.0));
+        Assert.assertEquals(1, Decimator.chooseFactor(9600, 2400.0));
+    }
+
+    @Test
+    public void keepsPassBandAndRejectsAliases() {
+        Decimator decimator = new Decimator(10, 1630.0 / SAMPLE_RATE);
+        int settled = decimator.getMaxOutput(decimator.getNTaps());
+
+        float[] out = new float[480];
+        int n = decimator.process(tone(1585.0, 4800), 0, 4800, out, 0);
+        Assert.assertEquals(480, n);
+        Assert.assertEquals(1.0, peak(out, settled, n), 0.01);
+
+        // 4800 - 1415 Hz would fold onto the space tone
+        decimator.reset();
+        n = decimator.process(tone(3385.0, 4800), 0, 4800, out, 0);
+        Assert.assertTrue(peak(out, settled, n) < 1e-3);
+    }
+
+    @Test
+    public void streamsInPieces() {
+        float[] input = tone(1000.0, 5000);
+        for (int i = 0; i < input.length; i += 7) {
+            input[i] += 0.5f;
+        }
+
+        Decimator whole = new Decimator(6, 0.05);
+        float[] expected = new float[whole.getMaxOutput(input.length)];
+        int n = whole.process(input, 0, input.length, expected, 0);
+
+        Decimator pieces = new Decimator(6, 0.05);
+        float[] actual = input.clone();
+        int produced = 0;
+        for (int from = 0; from < input.length; from += 13) {
+            // in place, as the demodulator does
+            produced += pieces.process(actual, from, Math.min(13, input.length - from), actual, produced);
+        }
+
+        Assert.assertEquals(n, produced);
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals("sample " + i, expected[i], actual[i], 1e-6f);
+        }
+    }
+}
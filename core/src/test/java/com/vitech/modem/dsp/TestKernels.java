@@ -0,0 +1,91 @@
+package com.vitech.modem.dsp;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestKernels {
+    private final Kernels scalar = Kernels.scalar();
+    private Kernels vector;
+
+    @Before
+    public void setUp() {
+        vector = Kernels.vector();
+        Assume.assumeNotNull(vector);
+    }
+
+    private static float[] noise(Random random, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) random.nextGaussian();
+        }
+        return samples;
+    }
+
+    @Test
+    public void toDoublesMatchesScalar() {
+        float[] samples = noise(new Random(1), 100);
+
+        // odd offsets and lengths exercise the tails
+        for (int count = 0; count <= 67; count++) {
+            double[] expected = new double[count];
+            double[] actual = new double[count];
+            scalar.toDoubles(samples, 3, expected, count);
+            vector.toDoubles(samples, 3, actual, count);
+            Assert.assertArrayEquals("count " + count, expected, actual, 0.0d);
+        }
+    }
+
+    @Test
+    public void toneMagnitudeMatchesScalar() {
+        Random random = new Random(2);
+        float[] samples = noise(random, 512);
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] += (float) Math.sin(2.0 * Math.PI * 1200.0 / 48000.0 * i);
+        }
+
+        for (double cyclesPerSample : new double[] { 0.0, 1200.0 / 48000.0, 2200.0 / 48000.0, 0.37, 0.5 }) {
+            Tone tone = new Tone(cyclesPerSample);
+            for (int count : new int[] { 1, 7, 40, 160, 401 }) {
+                double expected = scalar.toneMagnitude(samples, 11, count, tone);
+                double actual = vector.toneMagnitude(samples, 11, count, tone);
+                Assert.assertEquals("f " + cyclesPerSample + " count " + count, expected, actual, 1e-9 * count);
+            }
+        }
+    }
+
+    @Test
+    public void dotMatchesScalar() {
+        Random random = new Random(4);
+        float[] a = noise(random, 300);
+        float[] b = noise(random, 300);
+
+        for (int count = 0; count <= 275; count += 11) {
+            float expected = 0.0f;
+            for (int i = 0; i < count; i++) {
+                expected += a[i] * b[5 + i];
+            }
+            Assert.assertEquals("scalar " + count, expected, scalar.dot(a, 0, b, 5, count), 1e-4f * count);
+            Assert.assertEquals("vector " + count, expected, vector.dot(a, 0, b, 5, count), 1e-4f * count);
+        }
+    }
+
+    @Test
+    public void sumsMatchScalar() {
+        Random random = new Random(3);
+        for (int count = 2; count <= 64; count++) {
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = random.nextDouble();
+            }
+
+            float total = scalar.sum(values, count);
+            Assert.assertEquals("sum " + count, total, vector.sum(values, count), 1e-5f * count);
+            Assert.assertEquals("divergence " + count,
+                    scalar.divergence(values, count, total), vector.divergence(values, count, total), 1e-4f * count);
+        }
+    }
+}
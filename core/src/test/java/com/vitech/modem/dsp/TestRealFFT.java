@@ -0,0 +1,61 @@
+package com.vitech.modem.dsp;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestRealFFT {
+
+    @Test
+    public void matchesCommonsMath() {
+        Random random = new Random(42);
+
+        for (int length = 2; length <= 1024; length <<= 1) {
+            float[] samples = new float[length];
+            double[] reference = new double[length];
+            for (int i = 0; i < length; i++) {
+                samples[i] = (float) random.nextGaussian();
+                reference[i] = samples[i];
+            }
+
+            Complex[] expected = new FastFourierTransformer(DftNormalization.STANDARD).transform(reference, TransformType.FORWARD);
+
+            RealFFT fft = RealFFT.forLength(length);
+            double[] work = new double[length];
+            fft.load(samples, 0, length, work);
+            fft.transform(work);
+
+            for (int k = 0; k < fft.getNBins(); k++) {
+                Assert.assertEquals("length " + length + " bin " + k, expected[k].abs(), fft.magnitude(work, k), 1e-9 * length);
+            }
+        }
+    }
+
+    @Test
+    public void zeroPadsPartialWindow() {
+        float[] samples = new float[] {9, 9, 1, 2, 3, 9};
+        RealFFT fft = RealFFT.forLength(8);
+        double[] work = new double[] {7, 7, 7, 7, 7, 7, 7, 7};
+
+        fft.load(samples, 2, 3, work);
+        fft.transform(work);
+
+        Assert.assertEquals(6.0, fft.magnitude(work, 0), 1e-12);
+        Assert.assertEquals(2.0, fft.magnitude(work, 4), 1e-12);
+    }
+
+    @Test
+    public void sharesTablesPerLength() {
+        Assert.assertSame(RealFFT.forLength(256), RealFFT.forLength(256));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPowerOfTwo() {
+        RealFFT.forLength(960);
+    }
+}
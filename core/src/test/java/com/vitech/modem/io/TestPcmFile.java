@@ -0,0 +1,68 @@
+package com.vitech.modem.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+public class TestPcmFile {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsWavFirstChannel() throws IOException {
+        short[] left = {0, 16384, -16384, 32767, -32768, 1};
+        ByteBuffer data = ByteBuffer.allocate(left.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (short sample : left) {
+            data.putShort(sample).putShort((short) 1234);
+        }
+        File file = folder.newFile("stereo.wav");
+        Files.write(file.toPath(), WavFiles.wav(1, 2, 8000, 16, data.array()));
+
+        try (PcmFile pcm = PcmFile.openWav(file.toPath())) {
+            Assert.assertEquals(8000, pcm.getSampleRate());
+            Assert.assertEquals(2, pcm.getNChannels());
+            Assert.assertEquals(PcmFile.Encoding.PCM_SIGNED_16, pcm.getEncoding());
+            Assert.assertEquals(left.length, pcm.getNSamples());
+
+            float[] samples = new float[10];
+            Assert.assertEquals(4, pcm.read(2, samples, 1, 9));
+            Assert.assertEquals(-0.5f, samples[1], 0.0f);
+            Assert.assertEquals(32767 / 32768.0f, samples[2], 0.0f);
+            Assert.assertEquals(-1.0f, samples[3], 0.0f);
+            Assert.assertEquals(1 / 32768.0f, samples[4], 0.0f);
+            Assert.assertEquals(0, pcm.read(6, samples, 0, 1));
+        }
+    }
+
+    @Test
+    public void readsRawFloat() throws IOException {
+        float[] expected = {0.25f, -0.75f, 0.5f};
+        ByteBuffer data = ByteBuffer.allocate(expected.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float sample : expected) {
+            data.putFloat(sample);
+        }
+        File file = folder.newFile("mono.raw");
+        Files.write(file.toPath(), data.array());
+
+        try (PcmFile pcm = PcmFile.openRaw(file.toPath(), 48000, PcmFile.Encoding.PCM_FLOAT_32, 1)) {
+            float[] samples = new float[3];
+            Assert.assertEquals(3, pcm.read(0, samples, 0, 3));
+            Assert.assertArrayEquals(expected, samples, 0.0f);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNonWav() throws IOException {
+        File file = folder.newFile("text.wav");
+        Files.write(file.toPath(), "not a wave file".getBytes());
+        PcmFile.openWav(file.toPath());
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.vitech.modem.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * WAV files for tests.
+ */
+public final class WavFiles {
+    private WavFiles() {
+    }
+
+    /**
+     * <code>data</code> behind a canonical 44-byte header.
+     *
+     * @param format    1 for integer PCM, 3 for float
+     */
+    public static byte[] wav(int format, int nChannels, int sampleRate, int bitsPerSample, byte[] data) {
+        int blockAlign = nChannels * bitsPerSample / 8;
+        ByteBuffer wav = ByteBuffer.allocate(44 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + data.length).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) format).putShort((short) nChannels)
+                .putInt(sampleRate).putInt(sampleRate * blockAlign).putShort((short) blockAlign).putShort((short) bitsPerSample);
+        wav.put("data".getBytes()).putInt(data.length).put(data);
+        return wav.array();
+    }
+
+    /**
+     * The first <code>count</code> samples, scaled by <code>gain</code>, as 16-bit mono WAV.
+     */
+    public static byte[] mono16(int sampleRate, float[] samples, int count, float gain) {
+        ByteBuffer data = ByteBuffer.allocate(2 * count).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            data.putShort((short) (gain * samples[i] * Short.MAX_VALUE));
+        }
+        return wav(1, 1, sampleRate, 16, data.array());
+    }
+}
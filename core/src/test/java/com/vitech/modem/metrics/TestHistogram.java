@@ -0,0 +1,48 @@
+package com.vitech.modem.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestHistogram {
+    @Test
+    public void countsIntoBuckets() {
+        Histogram histogram = new Histogram(1.0, 2.0, 5.0);
+        for (double value : new double[] { 0.5, 1.0, 1.5, 4.0, 5.0, 7.0, 100.0 }) {
+            histogram.record(value);
+        }
+
+        Assert.assertArrayEquals(new long[] { 2, 1, 2, 2 }, histogram.getCounts());
+        Assert.assertEquals(7, histogram.getCount());
+        Assert.assertEquals(119.0 / 7, histogram.getMean(), 1e-9);
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertTrue(Double.isNaN(histogram.getMean()));
+    }
+
+    @Test
+    public void addsAndBoundsQuantiles() {
+        Histogram histogram = new Histogram(1.0, 2.0, 5.0);
+        Histogram other = new Histogram(1.0, 2.0, 5.0);
+        for (double value : new double[] { 0.5, 1.5, 1.5 }) {
+            histogram.record(value);
+        }
+        for (double value : new double[] { 3.0, 100.0 }) {
+            other.record(value);
+        }
+
+        histogram.add(other);
+        Assert.assertArrayEquals(new long[] { 1, 2, 1, 1 }, histogram.getCounts());
+        Assert.assertEquals(106.5 / 5, histogram.getMean(), 1e-9);
+        Assert.assertEquals(1.0, histogram.getQuantileBound(0.1), 0.0);
+        Assert.assertEquals(2.0, histogram.getQuantileBound(0.5), 0.0);
+        Assert.assertEquals(5.0, histogram.getQuantileBound(0.8), 0.0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, histogram.getQuantileBound(1.0), 0.0);
+        Assert.assertTrue(Double.isNaN(new Histogram(1.0).getQuantileBound(0.5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsortedBounds() {
+        new Histogram(2.0, 1.0);
+    }
+}
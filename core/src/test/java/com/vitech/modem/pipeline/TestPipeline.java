@@ -0,0 +1,143 @@
+package com.vitech.modem.pipeline;
+
+import com.vitech.modem.FSKDemodulator;
+import com.vitech.modem.FSKModulator;
+import com.vitech.modem.FskConfig;
+import com.vitech.modem.Transcoder;
+import com.vitech.modem.databits.ASCII;
+import com.vitech.modem.dsp.Decimator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TestPipeline {
+    private static final String TEXT = "Hello, world! The quick brown fox jumps over the lazy dog.\n";
+
+    @Test
+    public void decodesOnStageThreads() throws Exception {
+        byte[] pcm = pcm(TEXT);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Pipeline pipeline = decoder(out);
+
+        pipeline.start();
+        pipeline.transfer(new ByteArrayInputStream(pcm));
+        pipeline.await();
+
+        Assert.assertEquals(TEXT, new String(out.toByteArray()));
+
+        Pipeline.Stage decode = pipeline.getStages().get(0);
+        Pipeline.Stage decimate = pipeline.getStages().get(1);
+        Pipeline.Stage demodulate = pipeline.getStages().get(2);
+        Assert.assertEquals(pcm.length, decode.getBytesIn());
+        Assert.assertEquals(2L * pcm.length, decode.getBytesOut());
+        Assert.assertEquals(decode.getBytesOut(), decimate.getBytesIn());
+        Assert.assertEquals(decimate.getBytesOut(), demodulate.getBytesIn());
+        Assert.assertEquals(TEXT.length(), demodulate.getBytesOut());
+        for (Pipeline.Stage stage : pipeline.getStages()) {
+            Assert.assertTrue(stage.isFinished());
+            Assert.assertEquals(0, stage.getQueueDepth());
+            Assert.assertTrue(stage.getBusyNanos() > 0);
+            Assert.assertTrue(stage.getBytesPerSecond() > 0.0);
+        }
+    }
+
+    @Test
+    public void decodesInBatchesOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Pipeline pipeline = decoder(out);
+
+            pipeline.start(executor, 2);
+            pipeline.transfer(new ByteArrayInputStream(pcm(TEXT)));
+            pipeline.await();
+
+            Assert.assertEquals(TEXT, new String(out.toByteArray()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void reportsStageFailure() throws Exception {
+        Pipeline pipeline = Pipeline.builder()
+                .setBufferBytes(64)
+                .addStage("decode", new PcmDecodeStage())
+                .addStage("broken", new Transcoder() {
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException("broken");
+                    }
+                })
+                .setSink(new ByteArrayOutputStream())
+                .build();
+
+        pipeline.start();
+        try {
+            pipeline.transfer(new ByteArrayInputStream(pcm(TEXT)));
+            pipeline.await();
+            Assert.fail("failure not reported");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("broken"));
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void decodesPcmSplitAcrossBuffers() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Pipeline pipeline = Pipeline.builder()
+                .setBufferBytes(8)
+                .addStage("decode", new PcmDecodeStage())
+                .setSink(out)
+                .build();
+
+        pipeline.start();
+        // 3 samples, in odd sized pieces
+        byte[] pcm = {0x00, 0x40, (byte) 0xff, (byte) 0xff, 0x00, (byte) 0x80};
+        pipeline.write(pcm, 0, 3);
+        pipeline.write(pcm, 3, 3);
+        pipeline.endInput();
+        pipeline.await();
+
+        FloatBuffer samples = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        Assert.assertEquals(3, samples.remaining());
+        Assert.assertEquals(0.5f, samples.get(), 0.0f);
+        Assert.assertEquals(-1.0f / 32768, samples.get(), 0.0f);
+        Assert.assertEquals(-1.0f, samples.get(), 0.0f);
+    }
+
+    /**
+     * 9600 Hz PCM in; decimated by 2 to 4800 Hz for the demodulator. Small buffers keep every queue busy.
+     */
+    private static Pipeline decoder(ByteArrayOutputStream out) {
+        FSKDemodulator demodulator = new FSKDemodulator(4800, 300, 1200, 2100, 8, new ASCII(), FskConfig.builder().build(), 1);
+        return Pipeline.builder()
+                .setBufferBytes(512)
+                .setQueueDepth(2)
+                .addStage("decode", new PcmDecodeStage())
+                .addStage("decimate", new DecimateStage(new Decimator(2, 2300.0 / 9600)))
+                .addStage("demodulate", new DemodulateStage(demodulator))
+                .setSink(out)
+                .build();
+    }
+
+    private static byte[] pcm(String text) throws IOException {
+        FSKModulator modulator = new FSKModulator(9600, 300, 1200, 2100, 8, 1.0f, new ASCII());
+        modulator.setAmplitude(0.5f);
+        modulator.setLeaderBits(75.0f);
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        modulator.setInputStream(new ByteArrayInputStream(text.getBytes()));
+        modulator.setOutputStream(pcm);
+        modulator.run();
+        return pcm.toByteArray();
+    }
+}
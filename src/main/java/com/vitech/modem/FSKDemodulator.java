@@ -1,29 +0,0 @@
-package com.vitech.modem;
-
-import java.io.InputStream;
-import java.io.OutputStream;
-
-/**
- * Created by vic on 10/3/14.
- */
-public class FSKDemodulator implements ITranscoder {
-    @Override
-    public InputStream getInputStream() {
-        return null;
-    }
-
-    @Override
-    public void setInputStream(InputStream stream) {
-
-    }
-
-    @Override
-    public OutputStream getOutputStream() {
-        return null;
-    }
-
-    @Override
-    public void setOutputStream(OutputStream stream) {
-
-    }
-}
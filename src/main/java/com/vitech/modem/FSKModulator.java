@@ -1,7 +0,0 @@
-package com.vitech.modem;
-
-/**
- * Created by vic on 10/3/14.
- */
-public class FSKModulator {
-}
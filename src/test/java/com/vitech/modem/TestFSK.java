@@ -1,14 +0,0 @@
-package com.vitech.modem;
-
-import org.junit.Assert;
-import org.junit.Test;
-
-/**
- * Created by vic on 10/7/14.
- */
-public class TestFSK {
-    @Test
-    public void detectCarrier() {
-        Assert.assertTrue(false);
-    }
-}